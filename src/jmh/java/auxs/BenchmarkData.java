@@ -0,0 +1,71 @@
+package auxs;
+
+import articles.NewsArticle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic input data shared by the benchmarks
+ */
+public final class BenchmarkData {
+    private static final String[] VOCABULARY = {
+            "the", "market", "election", "Government", "said", "and", "of", "research", "team's", "score",
+            "vaccine", "data", "model", "price", "to", "in", "growth", "climate", "e-mail", "policy",
+            "football", "league", "Minister", "report", "study", "energy", "court", "crisis", "war", "peace"
+    };
+    private static final String[] LANGUAGES = {"english", "german", "french", "spanish"};
+    private static final String[] CATEGORIES = {"Politics", "Sports", "Science and Tech", "Health", "Economy"};
+
+    private BenchmarkData() {
+        // utility class
+    }
+
+    /**
+     * Creates an article-like text with mixed case and punctuation
+     *
+     * @param random source of randomness
+     * @param words number of words
+     * @return the text
+     */
+    public static String text(SplittableRandom random, int words) {
+        StringBuilder sb = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            sb.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+            sb.append(random.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates articles with unique uuids and titles, except for a fraction of duplicates
+     *
+     * @param count number of articles
+     * @param duplicateRate fraction of articles reusing an earlier uuid
+     * @param words number of words in each text
+     * @param seed random seed
+     * @return the articles
+     */
+    public static List<NewsArticle> articles(int count, double duplicateRate, int words, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<NewsArticle> articles = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int id = i > 0 && random.nextDouble() < duplicateRate ? random.nextInt(i) : i;
+
+            NewsArticle article = new NewsArticle();
+            article.setUuid("uuid-" + id);
+            article.setTitle("title " + id);
+            article.setUrl("https://news.example/" + id);
+            article.setAuthor("author " + random.nextInt(Math.max(count / 50, 1)));
+            article.setPublished(String.format("2025-%02d-%02dT%02d:%02d:00.000+02:00",
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60)));
+            article.setLanguage(LANGUAGES[random.nextInt(LANGUAGES.length)]);
+            article.setCategories(List.of(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            article.setText(text(random, words));
+            articles.add(article);
+        }
+        return articles;
+    }
+}
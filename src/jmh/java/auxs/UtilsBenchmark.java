@@ -0,0 +1,87 @@
+package auxs;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the text tokenizers and the k-way merge
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TextState {
+        @Param({"100", "1000", "10000"})
+        private int words;
+
+        private String text;
+
+        @Setup
+        public void setup() {
+            text = BenchmarkData.text(new SplittableRandom(7), words);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MergeState {
+        @Param({"4", "16"})
+        private int lists;
+
+        @Param({"1000", "100000"})
+        private int elements;
+
+        private List<List<String>> sortedLists;
+
+        @Setup
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(7);
+
+            // every list holds its share of the elements, already sorted (as the partial dbs provide them)
+            sortedLists = new ArrayList<>();
+            for (int i = 0; i < lists; i++) {
+                List<String> list = new ArrayList<>();
+                for (int j = 0; j < elements / lists; j++) {
+                    list.add(Long.toHexString(random.nextLong()));
+                }
+                list.sort(null);
+                sortedLists.add(list);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<String> textToWords(TextState state) {
+        return Utils.textToWords(state.text);
+    }
+
+    // the Vector API backend, called directly so it is measured next to the scalar textToWords
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public Set<String> textToWordsVector(TextState state) {
+        Set<String> words = new HashSet<>();
+        VectorTokenizer.tokenize(state.text, words, null);
+        return words;
+    }
+
+    @Benchmark
+    public List<String> textToUnicodeWords(TextState state) {
+        List<String> words = new ArrayList<>();
+        Utils.textToUnicodeWords(state.text, words);
+        return words;
+    }
+
+    @Benchmark
+    public List<String> mergeLists(MergeState state) {
+        return Utils.mergeLists(state.sortedLists);
+    }
+}
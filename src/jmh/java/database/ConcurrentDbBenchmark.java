@@ -0,0 +1,63 @@
+package database;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for merging the keyword counters of all partial databases
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentDbBenchmark {
+    @Param({"4", "8"})
+    private int partialDbs;
+
+    @Param({"10000", "200000"})
+    private int keywords;
+
+    private List<Map<String, Integer>> counters;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(3);
+        counters = new ArrayList<>();
+
+        // every partial db has seen about half of the vocabulary
+        for (int i = 0; i < partialDbs; i++) {
+            SequentialDb db = new SequentialDb(Set.of(), Set.of(), Set.of());
+            for (int k = 0; k < keywords; k++) {
+                if (random.nextBoolean()) {
+                    db.getKeyWordsOccurences().put("keyword" + k, 1 + random.nextInt(100));
+                }
+            }
+            counters.add(db.getKeyWordsOccurences());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetDb() {
+        ConcurrentDb db = ConcurrentDb.getInstance();
+        db.reset();
+        db.initPartialDbs(partialDbs);
+        for (int i = 0; i < partialDbs; i++) {
+            db.getPartialDb(i).getKeyWordsOccurences().putAll(counters.get(i));
+        }
+    }
+
+    @Benchmark
+    public Set<AbstractDataBase.PairData> mergeKeyWords() {
+        ConcurrentDb db = ConcurrentDb.getInstance();
+        db.mergeKeyWords();
+        return db.getKeywordsData();
+    }
+}
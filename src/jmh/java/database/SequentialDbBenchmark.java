@@ -0,0 +1,72 @@
+package database;
+
+import articles.NewsArticle;
+import auxs.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for filling a partial database and removing its duplicates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequentialDbBenchmark {
+    private static final Set<String> LANGUAGES = Set.of("english", "german", "french", "spanish");
+    private static final Set<String> CATEGORIES = Set.of("Politics", "Sports", "Science and Tech", "Health", "Economy");
+
+    @Param({"10000", "100000"})
+    private int articles;
+
+    @Param({"0.05"})
+    private double duplicateRate;
+
+    private List<NewsArticle> input;
+    private SequentialDb filledDb;
+    private Map<String, Integer> uuidCount;
+    private Map<String, Integer> titleCount;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkData.articles(articles, duplicateRate, 10, 11);
+
+        // global dedup maps as the master thread builds them
+        SequentialDb db = newDb();
+        input.forEach(db::addArticle);
+        uuidCount = new HashMap<>(db.getUuidCount());
+        titleCount = new HashMap<>(db.getTitleCount());
+    }
+
+    @Setup(Level.Invocation)
+    public void fillDb() {
+        filledDb = newDb();
+        input.forEach(filledDb::addArticle);
+    }
+
+    private static SequentialDb newDb() {
+        return new SequentialDb(LANGUAGES, CATEGORIES, Set.of());
+    }
+
+    @Benchmark
+    public SequentialDb addArticle() {
+        SequentialDb db = newDb();
+        for (NewsArticle article : input) {
+            db.addArticle(article);
+        }
+        return db;
+    }
+
+    @Benchmark
+    public SequentialDb removeDuplicates() {
+        filledDb.removeDuplicates(uuidCount, titleCount);
+        return filledDb;
+    }
+}
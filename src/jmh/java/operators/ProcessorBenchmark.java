@@ -0,0 +1,67 @@
+package operators;
+
+import articles.NewsArticle;
+import auxs.BenchmarkData;
+import auxs.Dictionary;
+import database.SequentialDb;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for processing the articles of a partial database, with and without bigram counting and the keyword
+ * counts of the other languages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorBenchmark {
+    private static final Set<String> LANGUAGES = Set.of("english", "german", "french", "spanish");
+    private static final Set<String> CATEGORIES = Set.of("Politics", "Sports", "Science and Tech", "Health", "Economy");
+    private static final Set<String> LINKING_WORDS = Set.of("the", "and", "of", "to", "in");
+
+    @Param({"false", "true"})
+    private boolean bigrams;
+
+    @Param({"false", "true"})
+    private boolean allLanguages;
+
+    @Param({"100"})
+    private int words;
+
+    private List<NewsArticle> input;
+    private SequentialDb db;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkData.articles(10000, 0, words, 11);
+    }
+
+    @Setup(Level.Invocation)
+    public void fillDb() {
+        db = new SequentialDb(LANGUAGES, CATEGORIES, LINKING_WORDS);
+        input.forEach(db::addArticle);
+        if (bigrams) {
+            db.enableBigrams(new Dictionary(LINKING_WORDS));
+        }
+        if (allLanguages) {
+            Map<String, Dictionary> dictionaries = new HashMap<>();
+            LANGUAGES.stream().filter(language -> !language.equals("english"))
+                    .forEach(language -> dictionaries.put(language, new Dictionary(LINKING_WORDS)));
+            db.enableLanguageKeywords(dictionaries);
+        }
+    }
+
+    @Benchmark
+    public SequentialDb processArticles() {
+        new Processor(db, article -> false).processArticles();
+        return db;
+    }
+}
@@ -0,0 +1,61 @@
+package operators;
+
+import auxs.BenchmarkData;
+import auxs.Constants;
+import database.CompressedInput;
+import database.SequentialDb;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for parsing one article file into a partial database. Compressed files are decompressed on a separate
+ * thread or inline depending on aggregator.decompress.pipelined (e.g. -jvmArgsAppend -Daggregator.decompress.pipelined=true)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderBenchmark {
+    @Param({"10", "100", "1000"})
+    private int articles;
+
+    @Param({"300"})
+    private int words;
+
+    @Param({"none", "gz", "zst"})
+    private String compression;
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        CompressedInput.Codec codec = compression.equals("none") ? null : CompressedInput.Codec.of("." + compression);
+        file = File.createTempFile("reader-bench", ".json" + (codec == null ? "" : codec.getExtension()));
+        file.deleteOnExit();
+        try (OutputStream out = codec == null
+                ? new FileOutputStream(file) : codec.compress(new FileOutputStream(file))) {
+            Constants.MAPPER.writeValue(out, BenchmarkData.articles(articles, 0, words, 5));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public SequentialDb readFile() {
+        SequentialDb db = new SequentialDb(Set.of(), Set.of(), Set.of());
+        new Reader(List.of(file.getPath()), db).execute();
+        return db;
+    }
+}
@@ -0,0 +1,49 @@
+package operators;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for writing an output list, one item per line
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriterBenchmark {
+    @Param({"1000", "100000"})
+    private int lines;
+
+    private File file;
+    private List<String> items;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("writer-bench", ".txt");
+        file.deleteOnExit();
+
+        // lines shaped like all_articles.txt entries
+        items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(String.format("%032x 2025-01-01T10:%02d:00.000+02:00", i, i % 60));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public File writeListToFile() {
+        Writer.writeListToFile(file.getPath(), items);
+        return file;
+    }
+}
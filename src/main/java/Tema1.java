@@ -1,10 +1,29 @@
+import auxs.Constants;
+import auxs.Options;
 import database.ConcurrentDb;
+import database.KeywordIndexFile;
+import database.SequentialDb;
+import database.TrendCounters;
+import distributed.Coordinator;
+import multithreading.ArticleExchange;
+import multithreading.ArticleStream;
+import multithreading.NearDuplicateDetector;
+import multithreading.PipelineMetrics;
+import multithreading.PipelineProfiler;
+import multithreading.StagePlan;
 import multithreading.WorkerThread;
 import database.DbInitializer;
+import query.QueryIndex;
+import query.QueryLoadTest;
+import query.QueryServer;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Phaser;
 
 /**
  * Main entry point for the News Aggregator application.
@@ -15,13 +34,13 @@ public class Tema1
      * Main method to start the news aggregation system.
      *
      * @param args command-line arguments:
-     *             args[0] - number of worker threads to use
+     *             args[0] - number of worker threads to use, or "auto" to size every stage from the input
      *             args[1] - path to the file containing list of news files
      *             args[2] - path to the file containing auxiliary data files
      */
     public static void main(String[] args) {
 
-        final int numThreads = Integer.parseInt(args[0]);
+        final boolean auto = "auto".equalsIgnoreCase(args[0]);
         final String newsFile =  args[1], additionalFile =  args[2];
 
         DbInitializer init = new DbInitializer();
@@ -30,13 +49,87 @@ public class Tema1
 
         try {
             List<String> files = init.initDb(newsFile, additionalFile);
-            ConcurrentDb.getInstance().initPartialDbs(numThreads);
+            final StagePlan plan = auto
+                    ? StagePlan.auto(files, ConcurrentDb.getInstance().getFileChunks())
+                    : StagePlan.fixed(Integer.parseInt(args[0]));
+            final int numThreads = plan.threads();
+
+            if (Options.MODE == Options.Mode.DISTRIBUTED) {
+                // the shard processes fill the partial dbs, the threads below only merge and write
+                new Coordinator(files, additionalFile, Options.DIST_WORKERS, Options.DIST_JVM).execute();
+            } else {
+                ConcurrentDb.getInstance().initPartialDbs(numThreads);
+            }
+
+            // only the stream mode bounds the articles in memory while reading: the staged and exchange modes hold
+            // every article until the global dedup, so spilling could not keep the input off the heap there
+            Path spillDir = null;
+            if (Options.SPILL_ARTICLES > 0) {
+                if (Options.MODE == Options.Mode.STREAM) {
+                    spillDir = Files.createTempDirectory(Path.of(Options.SPILL_DIR), "aggregator-spill-");
+                    ConcurrentDb.getInstance().initSpillStores(numThreads, spillDir);
+                } else {
+                    System.err.println("[WARN] spilling needs the stream mode, ignored");
+                }
+            }
+
+            if (Options.MODE == Options.Mode.APPROX) {
+                ConcurrentDb.getInstance().initPartialSketches(numThreads, Options.APPROX_TOP_K,
+                        Options.APPROX_EPSILON, Options.APPROX_DELTA, Options.APPROX_HLL_PRECISION);
+            }
+            if (Options.NEAR_DUP_THRESHOLD > 0) {
+                // only the staged and exchange modes keep the article texts until every thread has read its files
+                if (Options.MODE == Options.Mode.STAGED || Options.MODE == Options.Mode.EXCHANGE) {
+                    NearDuplicateDetector.getInstance().init(numThreads, Options.NEAR_DUP_THRESHOLD,
+                            Options.NEAR_DUP_BANDS, Options.NEAR_DUP_ROWS, Options.NEAR_DUP_SHINGLE);
+                } else {
+                    System.err.println("[WARN] near-duplicate detection needs the staged or exchange mode, ignored");
+                }
+            }
+            if (Options.KEYWORD_INDEX) {
+                enableOutsideApprox("aggregator.keywordIndex", ConcurrentDb.getInstance()::enableKeywordIndex);
+            }
+            if (Options.BIGRAMS) {
+                enableOutsideApprox("aggregator.bigrams", ConcurrentDb.getInstance()::enableBigrams);
+            }
+            if (Options.ALL_LANGUAGES) {
+                enableOutsideApprox("aggregator.keywords.allLanguages", ConcurrentDb.getInstance()::enableLanguageKeywords);
+            }
+            if (!Options.TRENDS.isEmpty()) {
+                enableOutsideApprox("aggregator.trends", () -> ConcurrentDb.getInstance().initTrends(
+                        TrendCounters.Window.valueOf(Options.TRENDS.toUpperCase()),
+                        Options.TRENDS_CAPACITY, Options.TRENDS_TOP_N));
+            }
+            if (Options.MODE == Options.Mode.EXCHANGE) {
+                ArticleExchange.getInstance().init(numThreads);
+            } else if (Options.MODE == Options.Mode.STREAM) {
+                int ioThreads = Options.STREAM_IO_THREADS > 0 ? Options.STREAM_IO_THREADS : numThreads;
+                ArticleStream.getInstance().start(files, ConcurrentDb.getInstance().getFileChunks(), ioThreads,
+                        numThreads, Options.STREAM_QUEUE_CAPACITY, Options.STREAM_BATCH_SIZE);
+            }
+
+            PipelineProfiler profiler = PipelineProfiler.getInstance();
+            if (profiler.isEnabled()) {
+                profiler.init(numThreads);
+            }
+            if (PipelineMetrics.getInstance().isEnabled()) {
+                PipelineMetrics.getInstance().init(numThreads);
+                System.out.println("[INFO] Live metrics: MBean aggregator:type=PipelineMetrics in process "
+                        + ProcessHandle.current().pid());
+            }
 
             WorkerThread[] workers = new WorkerThread[numThreads];
-            CyclicBarrier barrier = new CyclicBarrier(numThreads);
+            // the auto plan releases the threads without merge or write work, which a CyclicBarrier cannot do
+            CyclicBarrier barrier = auto ? null : new CyclicBarrier(numThreads);
+            Phaser phaser = auto ? new Phaser(numThreads) : null;
 
+            // taken before the JVM start time is read, so the management classes are not charged to startup
+            long firstStageTime = System.currentTimeMillis();
             for (int i = 0; i < numThreads; i++) {
-                workers[i] = new WorkerThread(files, i, numThreads, barrier,ConcurrentDb.getInstance().getPartialDb(i) );
+                SequentialDb localDb = Options.MODE == Options.Mode.DISTRIBUTED ? null : ConcurrentDb.getInstance().getPartialDb(i);
+                workers[i] = auto
+                        ? new WorkerThread(files, i, plan, phaser, localDb)
+                        : new WorkerThread(files, i, numThreads, barrier, localDb);
                 workers[i].start();
             }
 
@@ -48,11 +141,72 @@ public class Tema1
                 }
             }
 
+            if (Options.MODE == Options.Mode.STREAM) {
+                ArticleStream.getInstance().join();
+            }
+
+            if (spillDir != null) {
+                ConcurrentDb.getInstance().deleteSpillRuns();
+                Files.deleteIfExists(spillDir);
+            }
+
             long endTime = System.currentTimeMillis();
             System.out.println("Execution time with " + numThreads + " threads = " + (endTime - startTime) + " ms");
+            if (Options.STARTUP_TIMING) {
+                long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+                System.out.println("Time to first stage = " + (firstStageTime - jvmStart) + " ms");
+            }
+
+            if (profiler.isEnabled()) {
+                profiler.writeReport();
+            }
+
+            // the approximate and spilling runs keep no articles to index
+            if ((Options.QUERY_LOAD_TEST > 0 || Options.QUERY_PORT > 0) && Options.MODE != Options.Mode.APPROX
+                    && spillDir == null) {
+                serveQueries();
+            }
 
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
     }
+
+    /**
+     * Enables an optional output, unless the mode cannot build it: the shard processes and the approximate mode
+     * keep no posting lists, bigram counts, per-language counts or trend counters
+     *
+     * @param option the system property enabling the output, for the warning
+     * @param enable enables the output in the db
+     */
+    private static void enableOutsideApprox(String option, Runnable enable) {
+        if (Options.MODE != Options.Mode.APPROX && Options.MODE != Options.Mode.DISTRIBUTED) {
+            enable.run();
+        } else {
+            System.err.println("[WARN] " + option + " is ignored in " + Options.MODE + " mode");
+        }
+    }
+
+    /**
+     * Builds the query index over the aggregated data, then runs the load test and/or starts the local query server
+     *
+     * @throws IOException if the server cannot be started
+     */
+    private static void serveQueries() throws IOException {
+        long start = System.currentTimeMillis();
+        KeywordIndexFile keywordIndex = ConcurrentDb.getInstance().hasKeywordIndex()
+                ? KeywordIndexFile.open(Path.of(Constants.KEYWORD_INDEX_FILE)) : null;
+        QueryIndex index = new QueryIndex(ConcurrentDb.getInstance(), keywordIndex);
+        System.out.println("Query index built in " + (System.currentTimeMillis() - start) + " ms");
+
+        if (Options.QUERY_LOAD_TEST > 0) {
+            new QueryLoadTest(index, Options.QUERY_LOAD_TEST).execute();
+        }
+
+        if (Options.QUERY_PORT > 0) {
+            QueryServer server = new QueryServer(index, Options.QUERY_PORT);
+            server.start();
+            System.out.println("Query server listening on http://localhost:" + server.getPort());
+        }
+    }
 }
@@ -10,7 +10,14 @@ public final class Constants {
     public static final int MASTER_THREAD = 0;
     public static final String ALL_FILE = "all_articles.txt";
     public static final String WORDS_FILE = "keywords_count.txt";
+    public static final String BIGRAMS_FILE = "bigrams_count.txt";
+    public static final String LANGUAGE_WORDS_FILE = "keywords_count_%s.txt";
+    public static final String LANGUAGE_LINKING_WORDS_FILE = "%s_linking_words.txt";
+    public static final String TOP_WORDS_FILE = "keywords_top.txt";
     public static final String REPORT_FILE = "reports.txt";
+    public static final String PROFILE_FILE = "run_profile.json";
+    public static final String SAMPLE_REPORT_FILE = "sample_report.txt";
+    public static final String KEYWORD_INDEX_FILE = "keyword_index.bin";
     public static final String FILE_EXTENSION = ".txt";
     public static final String LANGUAGE = "english";
 
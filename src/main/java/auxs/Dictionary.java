@@ -0,0 +1,68 @@
+package auxs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary giving every distinct string a dense int id, shared by the threads so their id-keyed
+ * counters can be merged without translating the ids
+ */
+public final class Dictionary {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> words = new ArrayList<>();
+
+    // the reserved words given at construction hold the ids below this
+    private final int reserved;
+
+    public Dictionary() {
+        this(List.of());
+    }
+
+    /**
+     * Creates a dictionary whose first ids are reserved words, recognized by id with isReserved
+     *
+     * @param reservedWords the reserved words
+     */
+    public Dictionary(Collection<String> reservedWords) {
+        reservedWords.forEach(this::idOf);
+        reserved = words.size();
+    }
+
+    /**
+     * Returns the id of a string, assigning the next id the first time it is seen
+     *
+     * @param word the string
+     * @return its id
+     */
+    public int idOf(String word) {
+        Integer id = ids.get(word);
+        if (id != null) return id;
+
+        return ids.computeIfAbsent(word, w -> {
+            synchronized (words) {
+                words.add(w);
+                return words.size() - 1;
+            }
+        });
+    }
+
+    /**
+     * Returns the string of an id; called once the threads assigning ids have synchronized with the caller
+     *
+     * @param id an id returned by idOf
+     * @return the string
+     */
+    public String word(int id) {
+        return words.get(id);
+    }
+
+    public boolean isReserved(int id) {
+        return id < reserved;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,152 @@
+package auxs;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative int keys to int counts (no boxing, linear probing)
+ */
+public class IntIntMap {
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntMap() {
+        this(8);
+    }
+
+    public IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 4) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Adds a delta to the count of a key, inserting the key if needed
+     *
+     * @param key a non-negative key
+     * @param delta the value to add
+     */
+    public void add(int key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = delta;
+                resize(keys.length * 2);
+                return;
+            }
+        }
+        values[slot] += delta;
+    }
+
+    /**
+     * Returns the count of a key
+     *
+     * @param key the key
+     * @return its count, 0 if absent
+     */
+    public int get(int key) {
+        int slot = slot(key);
+        return keys[slot] == FREE ? 0 : values[slot];
+    }
+
+    /**
+     * Adds all counts of another map
+     *
+     * @param other the map to add
+     */
+    public void addAll(IntIntMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Subtracts an amount from every count and removes the keys left with a count of 0 or less
+     *
+     * @param amount the amount to subtract
+     */
+    public void subtractAll(int amount) {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[oldKeys.length];
+        values = new int[oldKeys.length];
+        Arrays.fill(keys, FREE);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && oldValues[i] > amount) {
+                add(oldKeys[i], oldValues[i] - amount);
+            }
+        }
+    }
+
+    /**
+     * Calls an action for every (key, count) entry
+     *
+     * @param action the action
+     */
+    public void forEach(Entry action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the counts of all keys, in no particular order
+     *
+     * @return the counts
+     */
+    public int[] values() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                result[n++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int h = key * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Consumer of (key, count) entries
+     */
+    @FunctionalInterface
+    public interface Entry {
+        void accept(int key, int count);
+    }
+}
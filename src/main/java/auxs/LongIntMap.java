@@ -0,0 +1,137 @@
+package auxs;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative long keys to int counts (no boxing, linear probing)
+ */
+public class LongIntMap {
+    private static final long FREE = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntMap() {
+        this(8);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 4) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Packs two non-negative ints into one key
+     *
+     * @param high the first int
+     * @param low the second int
+     * @return the key
+     */
+    public static long pack(int high, int low) {
+        return (long) high << 32 | low;
+    }
+
+    public static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int low(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Adds a delta to the count of a key, inserting the key if needed
+     *
+     * @param key a non-negative key
+     * @param delta the value to add
+     */
+    public void add(long key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = delta;
+                resize(keys.length * 2);
+                return;
+            }
+        }
+        values[slot] += delta;
+    }
+
+    /**
+     * Returns the count of a key
+     *
+     * @param key the key
+     * @return its count, 0 if absent
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        return keys[slot] == FREE ? 0 : values[slot];
+    }
+
+    /**
+     * Adds all counts of another map
+     *
+     * @param other the map to add
+     */
+    public void addAll(LongIntMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Calls an action for every (key, count) entry
+     *
+     * @param action the action
+     */
+    public void forEach(Entry action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Consumer of (key, count) entries
+     */
+    @FunctionalInterface
+    public interface Entry {
+        void accept(long key, int count);
+    }
+}
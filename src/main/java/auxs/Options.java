@@ -0,0 +1,110 @@
+package auxs;
+
+/**
+ * Utility class for optional run settings, read once from system properties (-Dname=value)
+ */
+public final class Options {
+    // query layer: serve queries on a local port / run the latency harness after aggregation
+    public static final int QUERY_PORT = Integer.getInteger("aggregator.query.port", 0);
+    public static final int QUERY_LOAD_TEST = Integer.getInteger("aggregator.query.loadTest", 0);
+
+    // per-stage, per-thread timing of the worker pipelines (run_profile.json), optionally with memory usage
+    public static final boolean PROFILE_MEMORY = Boolean.getBoolean("aggregator.profile.memory");
+    public static final boolean PROFILE = Boolean.getBoolean("aggregator.profile") || PROFILE_MEMORY;
+
+    // how the articles reach the worker threads (see Mode)
+    public static final Mode MODE = Mode.valueOf(System.getProperty("aggregator.mode", "staged").toUpperCase());
+
+    // stream mode: I/O threads (0: as many as the worker threads), queue capacity in batches, articles per batch
+    public static final int STREAM_IO_THREADS = Integer.getInteger("aggregator.stream.ioThreads", 0);
+    public static final int STREAM_QUEUE_CAPACITY = Integer.getInteger("aggregator.stream.queueCapacity", 64);
+    public static final int STREAM_BATCH_SIZE = Integer.getInteger("aggregator.stream.batchSize", 256);
+
+    // approx mode: keys monitored by the top-K summaries, Count-Min error/failure probability, HyperLogLog precision
+    public static final int APPROX_TOP_K = Integer.getInteger("aggregator.approx.topK", 1000);
+    public static final double APPROX_EPSILON = Double.parseDouble(System.getProperty("aggregator.approx.epsilon", "0.0001"));
+    public static final double APPROX_DELTA = Double.parseDouble(System.getProperty("aggregator.approx.delta", "0.01"));
+    public static final int APPROX_HLL_PRECISION = Integer.getInteger("aggregator.approx.hllPrecision", 14);
+
+    // sampling: fraction of the article files processed (1: all), seed of the deterministic file selection
+    public static final double SAMPLE_FRACTION = Double.parseDouble(System.getProperty("aggregator.sample.fraction", "1"));
+    public static final long SAMPLE_SEED = Long.getLong("aggregator.sample.seed", 42);
+
+    // distributed mode: number of shard processes and their JVM options
+    public static final int DIST_WORKERS = Integer.getInteger("aggregator.dist.workers", 2);
+    public static final String DIST_JVM = System.getProperty("aggregator.dist.jvm", "");
+
+    // spilling: processed articles per thread held in memory before a sorted run is written (0: off), run directory
+    public static final int SPILL_ARTICLES = Integer.getInteger("aggregator.spill.articles", 0);
+    public static final String SPILL_DIR = System.getProperty("aggregator.spill.dir", System.getProperty("java.io.tmpdir"));
+
+    // near-duplicate detection (staged and exchange modes): minimum Jaccard similarity of the texts (0: off),
+    // LSH bands and rows per band of the MinHash signatures, words per shingle
+    public static final double NEAR_DUP_THRESHOLD = Double.parseDouble(System.getProperty("aggregator.nearDup.threshold", "0"));
+    public static final int NEAR_DUP_BANDS = Integer.getInteger("aggregator.nearDup.bands", 16);
+    public static final int NEAR_DUP_ROWS = Integer.getInteger("aggregator.nearDup.rows", 4);
+    public static final int NEAR_DUP_SHINGLE = Integer.getInteger("aggregator.nearDup.shingle", 3);
+
+    // keyword index: compressed keyword -> english article postings, written to keyword_index.bin and queried by /search
+    public static final boolean KEYWORD_INDEX = Boolean.getBoolean("aggregator.keywordIndex");
+
+    // trend reports: time window (hour or day, empty: off), keys written per window, keys kept per window before pruning
+    public static final String TRENDS = System.getProperty("aggregator.trends", "");
+    public static final int TRENDS_TOP_N = Integer.getInteger("aggregator.trends.topN", 10);
+    public static final int TRENDS_CAPACITY = Integer.getInteger("aggregator.trends.capacity", 10000);
+
+    // bigram counts: pairs of adjacent english keywords per article, written to bigrams_count.txt
+    public static final boolean BIGRAMS = Boolean.getBoolean("aggregator.bigrams");
+
+    // keyword counts for the other languages of the languages file too, with <language>_linking_words.txt
+    // (next to the linking words file) and Unicode-aware tokenization, written to keywords_count_<language>.txt
+    public static final boolean ALL_LANGUAGES = Boolean.getBoolean("aggregator.keywords.allLanguages");
+
+    // live metrics: registers the MBean aggregator:type=PipelineMetrics (counters, rates, stage of every thread)
+    public static final boolean JMX = Boolean.getBoolean("aggregator.jmx");
+
+    // packed input: read the article files from <manifest>.pack when it exists and matches the manifest, also checking
+    // the size and modification time of every packed file (one stat per file) with verify
+    public static final boolean USE_ARCHIVE = Boolean.parseBoolean(System.getProperty("aggregator.archive", "true"));
+    public static final boolean ARCHIVE_VERIFY = Boolean.getBoolean("aggregator.archive.verify");
+
+    // large files: files above this size (bytes, 0: off) are split into chunks of about this size parsed by
+    // different threads; .ndjson/.jsonl files hold one article per line
+    public static final long SPLIT_BYTES = Long.getLong("aggregator.split.bytes", 32L << 20);
+
+    // compressed input (.gz, .zst): decompress on a separate virtual thread per file, overlapping the parser
+    // (by default only with several cores, on one core the handoffs cost more than they overlap)
+    public static final boolean PIPELINED_DECOMPRESSION = Boolean.parseBoolean(System.getProperty(
+            "aggregator.decompress.pipelined", String.valueOf(Runtime.getRuntime().availableProcessors() > 1)));
+
+    // prefetch: concurrent reads of upcoming article files on virtual threads, shared by all the readers and
+    // independent of the thread count (0: off), bytes of the files held read ahead
+    public static final int PREFETCH_IO = Integer.getInteger("aggregator.prefetch.io", 0);
+    public static final long PREFETCH_BUDGET = Long.getLong("aggregator.prefetch.budget", 64L << 20);
+
+    // word tokenizer of the keyword counts: scalar, or vector (Vector API, needs --add-modules jdk.incubator.vector)
+    public static final String TOKENIZER = System.getProperty("aggregator.tokenizer", "scalar");
+
+    // startup timing: also print the JVM uptime at which the worker pipelines started (AOT cache comparison)
+    public static final boolean STARTUP_TIMING = Boolean.getBoolean("aggregator.timing.startup");
+
+    /**
+     * Ingest modes of the worker pipelines
+     */
+    public enum Mode {
+        // every thread keeps the articles of its files, the master builds the global dedup maps
+        STAGED,
+        // articles are routed to the thread owning hash(uuid), titles to the owner of hash(title)
+        EXCHANGE,
+        // I/O threads stream bounded batches of articles to the worker threads
+        STREAM,
+        // articles only update fixed-size sketches; writes an approximate report with error bounds
+        APPROX,
+        // shard processes read and process the files, the coordinator merges their partial dbs and writes the outputs
+        DISTRIBUTED
+    }
+
+    private Options() {
+        // utility class
+    }
+}
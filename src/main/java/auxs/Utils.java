@@ -6,10 +6,32 @@ import java.util.*;
  * Utility class for methods used inside the programe
  */
 public final class Utils {
+    // the Vector API backend of textToWords: only loaded when selected and its module is present
+    private static final boolean VECTOR_TOKENIZER = useVectorTokenizer();
+
     private Utils() {
         // utility class
     }
 
+    /**
+     * Tells whether the words are split by VectorTokenizer (aggregator.tokenizer=vector)
+     * @return false for the scalar tokenizer, also when the vector one cannot be used
+     */
+    private static boolean useVectorTokenizer() {
+        if (!Options.TOKENIZER.equals("vector")) return false;
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            System.err.println("[WARN] the vector tokenizer needs --add-modules jdk.incubator.vector, using the scalar one");
+            return false;
+        }
+        // it lowercases ASCII letters itself, as toLowerCase() does in every locale but the Turkish ones
+        if (!"I".toLowerCase().equals("i")) {
+            System.err.println("[WARN] the vector tokenizer does not support the default locale, using the scalar one");
+            return false;
+        }
+        return true;
+    }
+
 
     public static String normalizeCategory(String category) {
         if (category == null) return null;
@@ -45,10 +67,25 @@ public final class Utils {
      * @return set of unique words
      */
     public static Set<String> textToWords(String text) {
+        return textToWords(text, null);
+    }
+
+    /**
+     * Converts a text into a set of words, also collecting the words in text order
+     * @param text input text
+     * @param wordList list receiving every word, in order and with repetitions (ignored if null)
+     * @return set of unique words
+     */
+    public static Set<String> textToWords(String text, List<String> wordList) {
         Set<String> wordsSet = new HashSet<>();
 
         if (text == null) return null;
 
+        if (VECTOR_TOKENIZER) {
+            VectorTokenizer.tokenize(text, wordsSet, wordList);
+            return wordsSet;
+        }
+
         // lowercase
         String lower = text.toLowerCase();
 
@@ -68,13 +105,80 @@ public final class Utils {
             }
 
             if (!sb.isEmpty()) {
-                wordsSet.add(sb.toString());
+                String word = sb.toString();
+                wordsSet.add(word);
+                if (wordList != null) {
+                    wordList.add(word);
+                }
             }
         }
 
         return wordsSet;
     }
 
+    /**
+     * Converts a text into its words, in order and with repetitions (same word rules as textToWords)
+     * @param text input text
+     * @return list of words, empty if the text is null
+     */
+    public static List<String> textToWordList(String text) {
+        List<String> wordList = new ArrayList<>();
+
+        if (text == null) return wordList;
+
+        if (VECTOR_TOKENIZER) {
+            VectorTokenizer.tokenize(text, null, wordList);
+            return wordList;
+        }
+
+        for (String w : text.toLowerCase().split("\\s+")) {
+            StringBuilder sb = new StringBuilder();
+
+            // keep only letters
+            for (int i = 0; i < w.length(); i++) {
+                char c = w.charAt(i);
+                if (c >= 'a' && c <= 'z') {
+                    sb.append(c);
+                }
+            }
+
+            if (!sb.isEmpty()) {
+                wordList.add(sb.toString());
+            }
+        }
+
+        return wordList;
+    }
+
+    /**
+     * Splits a text of any language into its words, in order and with repetitions: words are separated by
+     * whitespace or space characters, only letters and combining marks are kept, lowercased code point by code point
+     * @param text input text
+     * @param wordList list receiving the words
+     */
+    public static void textToUnicodeWords(String text, List<String> wordList) {
+        if (text == null) return;
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (!sb.isEmpty()) {
+                    wordList.add(sb.toString());
+                    sb.setLength(0);
+                }
+            } else if (Character.isLetter(c) || Character.getType(c) == Character.NON_SPACING_MARK) {
+                sb.appendCodePoint(Character.toLowerCase(c));
+            }
+        }
+
+        if (!sb.isEmpty()) {
+            wordList.add(sb.toString());
+        }
+    }
+
     /**
      * Merges multiple sorted lists into a single sorted list
      * @param lists input lists
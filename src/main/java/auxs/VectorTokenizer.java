@@ -0,0 +1,183 @@
+package auxs;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizer backend of Utils.textToWords built on the Vector API (jdk.incubator.vector), enabled with
+ * aggregator.tokenizer=vector and --add-modules jdk.incubator.vector.
+ * <p>
+ * The text is scanned a full vector of chars at a time (16 with AVX2, 32 with AVX-512): lane masks mark the ASCII
+ * whitespace, the ASCII letters and the non-ASCII chars, and the letters are lowercased with a masked OR. The masks
+ * are stored as bitsets, so the words are then found by jumping between whitespace bits instead of testing every
+ * char. A word made only of letters is a copy of the lowercased chars; a word holding a non-ASCII char is lowercased
+ * by the scalar String.toLowerCase, so the words are exactly those of the scalar path.
+ */
+final class VectorTokenizer {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private VectorTokenizer() {
+        // utility class
+    }
+
+    /**
+     * Splits a text into its words (same rules as Utils.textToWords)
+     *
+     * @param text input text, not null
+     * @param wordsSet set receiving the unique words (ignored if null)
+     * @param wordList list receiving every word, in order and with repetitions (ignored if null)
+     */
+    static void tokenize(String text, Set<String> wordsSet, List<String> wordList) {
+        int n = text.length();
+        char[] chars = text.toCharArray();
+        long[] spaces = new long[(n + 63) >>> 6];
+        long[] letters = new long[spaces.length];
+        // only allocated once a non-ASCII char is seen
+        long[] nonAscii = null;
+
+        // LANES divides 64, so the bits of a vector never straddle two longs
+        int i = 0;
+        for (; i <= n - LANES; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+
+            // ' ' and \t \n \u000B \f \r, the \s of the scalar split
+            VectorMask<Short> space = v.eq((short) ' ')
+                    .or(v.sub((short) '\t').compare(VectorOperators.UNSIGNED_LE, (short) ('\r' - '\t')));
+            // 'A'..'Z' | 0x20 is 'a'..'z', no other char lands there
+            VectorMask<Short> letter = v.or((short) 0x20).sub((short) 'a')
+                    .compare(VectorOperators.UNSIGNED_LE, (short) ('z' - 'a'));
+            VectorMask<Short> wide = v.compare(VectorOperators.UNSIGNED_GT, (short) 0x7F);
+
+            spaces[i >>> 6] |= space.toLong() << (i & 63);
+            letters[i >>> 6] |= letter.toLong() << (i & 63);
+            if (wide.anyTrue()) {
+                if (nonAscii == null) nonAscii = new long[spaces.length];
+                nonAscii[i >>> 6] |= wide.toLong() << (i & 63);
+            }
+            v.lanewise(VectorOperators.OR, (short) 0x20, letter).intoCharArray(chars, i);
+        }
+
+        // the tail shorter than a vector
+        for (; i < n; i++) {
+            char c = chars[i];
+            long bit = 1L << (i & 63);
+            if (c == ' ' || (c >= '\t' && c <= '\r')) {
+                spaces[i >>> 6] |= bit;
+            } else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'z') {
+                letters[i >>> 6] |= bit;
+                chars[i] = (char) (c | 0x20);
+            } else if (c > 0x7F) {
+                if (nonAscii == null) nonAscii = new long[spaces.length];
+                nonAscii[i >>> 6] |= bit;
+            }
+        }
+
+        for (int start = nextClear(spaces, 0, n); start < n; ) {
+            int end = nextSet(spaces, start, n);
+            String word = nonAscii != null && anySet(nonAscii, start, end)
+                    ? scalarWord(text.substring(start, end))
+                    : compactLetters(chars, letters, start, end);
+
+            if (word != null) {
+                if (wordsSet != null) wordsSet.add(word);
+                if (wordList != null) wordList.add(word);
+            }
+            start = nextClear(spaces, end, n);
+        }
+    }
+
+    /**
+     * Moves the lowercased letters of a whitespace-free range to its start, 64 chars at a time
+     *
+     * @return the letters, or null if the range has none
+     */
+    private static String compactLetters(char[] chars, long[] letters, int start, int end) {
+        int k = start;
+        for (int p = start; p < end; p += 64) {
+            int length = Math.min(64, end - p);
+            long bits = bits(letters, p, length);
+
+            if (bits == lowBits(length)) {
+                if (k != p) System.arraycopy(chars, p, chars, k, length);
+                k += length;
+            } else {
+                for (; bits != 0; bits &= bits - 1) {
+                    chars[k++] = chars[p + Long.numberOfTrailingZeros(bits)];
+                }
+            }
+        }
+        return k == start ? null : new String(chars, start, k - start);
+    }
+
+    /**
+     * Lowercases and filters a token holding non-ASCII chars exactly as the scalar path does
+     */
+    private static String scalarWord(String token) {
+        StringBuilder sb = new StringBuilder();
+        String lower = token.toLowerCase();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                sb.append(c);
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    /**
+     * Returns the length bits (at most 64) of a bitset starting at a position, in the low bits
+     */
+    private static long bits(long[] bitset, int from, int length) {
+        int w = from >>> 6, offset = from & 63;
+        long bits = bitset[w] >>> offset;
+        if (offset != 0 && w + 1 < bitset.length) {
+            bits |= bitset[w + 1] << (64 - offset);
+        }
+        return bits & lowBits(length);
+    }
+
+    private static long lowBits(int length) {
+        return length == 64 ? -1L : (1L << length) - 1;
+    }
+
+    private static boolean anySet(long[] bitset, int from, int to) {
+        for (int p = from; p < to; p += 64) {
+            if (bits(bitset, p, Math.min(64, to - p)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first set bit at or after from, or n if there is none
+     */
+    private static int nextSet(long[] bitset, int from, int n) {
+        if (from >= n) return n;
+        int w = from >>> 6;
+        long word = bitset[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bitset.length) return n;
+            word = bitset[w];
+        }
+        return Math.min(n, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Returns the first clear bit at or after from, or n if there is none
+     */
+    private static int nextClear(long[] bitset, int from, int n) {
+        if (from >= n) return n;
+        int w = from >>> 6;
+        long word = ~bitset[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bitset.length) return n;
+            word = ~bitset[w];
+        }
+        return Math.min(n, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+}
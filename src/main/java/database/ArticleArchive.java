@@ -0,0 +1,283 @@
+package database;
+
+import auxs.Options;
+import auxs.Utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Packed archive of the article files of a manifest, read instead of the files when it sits next to the manifest
+ * as &lt;manifest&gt;.pack (see tools.PackCorpus).
+ * <p>
+ * The archive holds the JSON contents of the files back to back, then an index of the manifest entries with the
+ * offset and length of their segment and the modification time of the packed file, and ends with a fixed footer
+ * locating the index and holding the modification time of the manifest. It is opened once and memory-mapped in
+ * windows of 1 GB (a segment never crosses a window), so reading a file costs a slice of a mapped buffer instead of
+ * an open, a stat and a close.
+ * <p>
+ * A manifest modified since packing (e.g. a regenerated corpus) makes the archive stale, and the files are read
+ * instead. Checking the files themselves costs a stat per file, so it is only done with aggregator.archive.verify:
+ * a file that still exists with another size or modification time then makes the archive stale too.
+ */
+public final class ArticleArchive {
+    public static final String EXTENSION = ".pack";
+
+    private static final int MAGIC = 0x41475033; // "AGP3", earlier archives have no modification times
+    private static final int FOOTER_BYTES = 8 + 8 + 4 + 4;
+    private static final long WINDOW = 1L << 30;
+
+    private static ArticleArchive instance;
+
+    private final MappedByteBuffer[] windows;
+    // resolved file path -> segment number
+    private final Map<String, Integer> segments;
+    private final long[] offsets;
+    private final int[] lengths;
+    // modification times of the packed files, in ms
+    private final long[] modified;
+    private final long manifestModified;
+
+    private ArticleArchive(MappedByteBuffer[] windows, Map<String, Integer> segments, long[] offsets, int[] lengths,
+                           long[] modified, long manifestModified) {
+        this.windows = windows;
+        this.segments = segments;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.modified = modified;
+        this.manifestModified = manifestModified;
+    }
+
+    /**
+     * Returns the archive in use, if any
+     *
+     * @return the archive opened by openIfPresent, or null when the files are read directly
+     */
+    public static synchronized ArticleArchive getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the size of an article file as stored: its segment in the archive in use, or the file on disk
+     *
+     * @param file the resolved path of a manifest file
+     * @return the size in bytes, 0 if the file is neither packed nor on disk
+     */
+    public static long sizeOf(String file) {
+        ArticleArchive archive = getInstance();
+        ByteBuffer segment = archive == null ? null : archive.segment(file);
+        return segment == null ? new File(file).length() : segment.remaining();
+    }
+
+    /**
+     * Opens the archive of a manifest if it exists, lists exactly the files of the manifest and the manifest (or
+     * with aggregator.archive.verify, any of the files) did not change since it was packed
+     *
+     * @param manifestPath the path of the article file list
+     * @param files the resolved files of the manifest
+     * @return true if the archive is used
+     */
+    public static synchronized boolean openIfPresent(String manifestPath, List<String> files) {
+        Path path = Path.of(manifestPath + EXTENSION);
+        if (!Files.exists(path)) return false;
+
+        try {
+            ArticleArchive archive = open(path, manifestPath);
+            if (!archive.segments.keySet().equals(new HashSet<>(files))) {
+                System.err.println("[WARN] " + path + " does not match the manifest, reading the files");
+                return false;
+            }
+            String changed = Files.getLastModifiedTime(Path.of(manifestPath)).toMillis() != archive.manifestModified
+                    ? manifestPath : Options.ARCHIVE_VERIFY ? archive.changedFile() : null;
+            if (changed != null) {
+                System.err.println("[WARN] " + changed + " changed since " + path + " was packed, reading the files");
+                return false;
+            }
+            instance = archive;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error opening the archive " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Packs the article files listed in a manifest
+     *
+     * @param manifestPath the path of the article file list
+     * @param archivePath the archive to write
+     * @return the number of files packed
+     * @throws IOException if a file cannot be read or the archive cannot be written
+     */
+    public static int write(String manifestPath, Path archivePath) throws IOException {
+        // taken before the files are read, like their own modification times
+        long manifestModified = Files.getLastModifiedTime(Path.of(manifestPath)).toMillis();
+        List<String> entries = readManifest(manifestPath);
+        long[] entryOffsets = new long[entries.size()];
+        int[] entryLengths = new int[entries.size()];
+        long[] entryModified = new long[entries.size()];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivePath)))) {
+            long position = 0;
+
+            for (int i = 0; i < entries.size(); i++) {
+                Path file = Path.of(Utils.replaceLastPathElement(manifestPath, entries.get(i)));
+                // taken before the read: a file written meanwhile looks changed, not packed up to date
+                entryModified[i] = Files.getLastModifiedTime(file).toMillis();
+                byte[] content = Files.readAllBytes(file);
+                if (content.length > WINDOW) {
+                    throw new IOException(entries.get(i) + " is larger than 1 GB");
+                }
+
+                // a segment crossing a window boundary starts at the next window instead
+                if (content.length > 0 && position / WINDOW != (position + content.length - 1) / WINDOW) {
+                    long padding = WINDOW - position % WINDOW;
+                    out.write(new byte[(int) padding]);
+                    position += padding;
+                }
+
+                entryOffsets[i] = position;
+                entryLengths[i] = content.length;
+                out.write(content);
+                position += content.length;
+            }
+
+            long indexOffset = position;
+            for (int i = 0; i < entries.size(); i++) {
+                byte[] entry = entries.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(entry.length);
+                out.write(entry);
+                out.writeLong(entryOffsets[i]);
+                out.writeInt(entryLengths[i]);
+                out.writeLong(entryModified[i]);
+            }
+
+            out.writeLong(indexOffset);
+            out.writeLong(manifestModified);
+            out.writeInt(entries.size());
+            out.writeInt(MAGIC);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Maps an archive and loads its index
+     *
+     * @param path the archive
+     * @param manifestPath the manifest the entries are resolved against
+     * @return the opened archive
+     * @throws IOException if the file cannot be read or is not an archive
+     */
+    private static ArticleArchive open(Path path, String manifestPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES) {
+                throw new IOException(path + " is not an article archive");
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            channel.read(footer, size - FOOTER_BYTES);
+            footer.flip();
+            long indexOffset = footer.getLong();
+            long manifestModified = footer.getLong();
+            int count = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException(path + " is not an article archive, or was packed by an older version");
+            }
+
+            // the mappings stay valid once the channel is closed
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((indexOffset + WINDOW - 1) / WINDOW)];
+            for (int w = 0; w < windows.length; w++) {
+                long start = w * WINDOW;
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, indexOffset - start));
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(indexOffset))));
+            Map<String, Integer> segments = new HashMap<>();
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            long[] modified = new long[count];
+
+            for (int i = 0; i < count; i++) {
+                byte[] entry = new byte[in.readUnsignedShort()];
+                in.readFully(entry);
+                segments.put(Utils.replaceLastPathElement(manifestPath, new String(entry, StandardCharsets.UTF_8)), i);
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                modified[i] = in.readLong();
+            }
+            return new ArticleArchive(windows, segments, offsets, lengths, modified, manifestModified);
+        }
+    }
+
+    /**
+     * Returns the contents of a packed file, without copying
+     *
+     * @param file the resolved path of a manifest file
+     * @return a read-only buffer over the JSON contents of the file, or null if the file is not packed
+     */
+    public ByteBuffer segment(String file) {
+        Integer i = segments.get(file);
+        if (i == null) return null;
+
+        return windows[(int) (offsets[i] / WINDOW)].slice((int) (offsets[i] % WINDOW), lengths[i]);
+    }
+
+    /**
+     * Compares the size and modification time of the packed files with the files on disk; a file that no longer
+     * exists is served from the archive
+     *
+     * @return the first file that changed since it was packed, or null
+     */
+    private String changedFile() {
+        for (Map.Entry<String, Integer> e : segments.entrySet()) {
+            int i = e.getValue();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Path.of(e.getKey()), BasicFileAttributes.class);
+                if (attributes.size() != lengths[i] || attributes.lastModifiedTime().toMillis() != modified[i]) {
+                    return e.getKey();
+                }
+            } catch (NoSuchFileException ex) {
+                // only packed
+            } catch (IOException ex) {
+                return e.getKey();
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Reads the entries of a manifest, as written in it
+     */
+    private static List<String> readManifest(String manifestPath) throws IOException {
+        List<String> entries = new ArrayList<>();
+
+        try (BufferedReader br = new BufferedReader(new FileReader(manifestPath))) {
+            int n = Integer.parseInt(br.readLine().trim());
+
+            for (int i = 0; i < n; i++) {
+                String line = br.readLine();
+                if (line == null)
+                    throw new IOException("Unexpected end of article file list.");
+
+                entries.add(line.trim());
+            }
+        }
+        return entries;
+    }
+}
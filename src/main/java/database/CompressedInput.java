@@ -0,0 +1,216 @@
+package database;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Input stream of a gzip (.gz) or zstd (.zst) article file, decompressed ahead of the parser on a virtual thread.
+ * <p>
+ * The decompressor fills the blocks of a small fixed pool and queues them, the parser reads the queued blocks and
+ * hands them back. Each side blocks when the other falls behind, so decompression overlaps parsing, the slower of the
+ * two sets the throughput and at most the pool is in flight per file. Virtual threads are cheap enough to start one
+ * per file, however small the files, and release their carrier while waiting for a block.
+ */
+public final class CompressedInput extends InputStream {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int BLOCKS = 4;
+    // queued after the last block, or when the decompressor failed
+    private static final Block END = new Block(new byte[0], 0);
+    // blocks of the finished streams, reused by the next ones instead of allocating blocks for every file
+    private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Compression formats, told by the file extension
+     */
+    public enum Codec {
+        GZIP(".gz"),
+        ZSTD(".zst");
+
+        private final String extension;
+
+        Codec(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Returns the codec of a file
+         *
+         * @param path the file
+         * @return its codec, or null if the file is not compressed
+         */
+        public static Codec of(String path) {
+            for (Codec codec : values()) {
+                if (path.endsWith(codec.extension)) return codec;
+            }
+            return null;
+        }
+
+        /**
+         * Wraps a stream in this format, decompressed by the reading thread
+         *
+         * @param in the compressed input
+         * @return the stream of the decompressed bytes
+         * @throws IOException if the header cannot be read
+         */
+        public InputStream decompress(InputStream in) throws IOException {
+            return switch (this) {
+                case GZIP -> new GZIPInputStream(in, BLOCK_SIZE);
+                case ZSTD -> new ZstdInputStream(in);
+            };
+        }
+
+        /**
+         * Wraps a stream written in this format
+         *
+         * @param out the compressed output
+         * @return the stream to write the uncompressed bytes to
+         * @throws IOException if the stream cannot be created
+         */
+        public OutputStream compress(OutputStream out) throws IOException {
+            return switch (this) {
+                case GZIP -> new GZIPOutputStream(out, BLOCK_SIZE);
+                case ZSTD -> new ZstdOutputStream(out);
+            };
+        }
+    }
+
+    private record Block(byte[] data, int length) {}
+
+    // blocks handed back by the parser, at most BLOCKS taken from the pool per stream
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(BLOCKS);
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private final Thread decompressor;
+    private volatile IOException failure;
+    private int blocksTaken;
+
+    private Block current;
+    private int position;
+
+    private CompressedInput(InputStream raw, Codec codec) {
+        decompressor = Thread.ofVirtual().name("decompress").start(() -> decompress(raw, codec));
+    }
+
+    /**
+     * Starts decompressing a stream
+     *
+     * @param raw the compressed bytes, closed once decompressed
+     * @param codec the compression format
+     * @return the stream of the decompressed bytes
+     */
+    public static CompressedInput open(InputStream raw, Codec codec) {
+        return new CompressedInput(raw, codec);
+    }
+
+    /**
+     * Returns the name of a file without its compression extension
+     *
+     * @param path the file
+     * @return the path of the uncompressed file
+     */
+    public static String uncompressedName(String path) {
+        Codec codec = Codec.of(path);
+        return codec == null ? path : path.substring(0, path.length() - codec.extension.length());
+    }
+
+    private void decompress(InputStream raw, Codec codec) {
+        try (InputStream in = codec.decompress(raw)) {
+            int n;
+            do {
+                byte[] data = nextFreeBlock();
+                n = in.readNBytes(data, 0, data.length);
+                if (n > 0) {
+                    filled.put(new Block(data, n));
+                } else {
+                    free.add(data);
+                }
+            } while (n == BLOCK_SIZE);
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException | LinkageError e) {
+            // e.g. no zstd native library for the platform: the parser must not wait forever
+            failure = new IOException(e);
+        } catch (InterruptedException e) {
+            // closed by the parser
+            return;
+        }
+        filled.add(END);
+    }
+
+    /**
+     * Takes a block handed back by the parser, or one from the pool while this stream holds fewer than BLOCKS
+     */
+    private byte[] nextFreeBlock() throws InterruptedException {
+        byte[] data = free.poll();
+        if (data != null) return data;
+        if (blocksTaken == BLOCKS) return free.take();
+
+        blocksTaken++;
+        data = POOL.poll();
+        return data != null ? data : new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public int read() throws IOException {
+        return next() ? current.data[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!next()) return -1;
+
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Makes sure the current block has unread bytes, handing the finished one back to the decompressor
+     *
+     * @return false at the end of the stream
+     */
+    private boolean next() throws IOException {
+        if (current == END) return false;
+        if (current != null && position < current.length) return true;
+        if (current != null) {
+            free.add(current.data);
+        }
+
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the decompressor");
+        }
+        position = 0;
+
+        if (current == END) {
+            // the decompressor is done: every block is back
+            POOL.addAll(free);
+            free.clear();
+            if (failure != null) throw failure;
+        }
+        return current != END;
+    }
+
+    @Override
+    public void close() {
+        decompressor.interrupt();
+    }
+}
@@ -1,12 +1,20 @@
 package database;
 
 import articles.NewsArticle;
+import auxs.Constants;
+import auxs.Dictionary;
+import auxs.IntIntMap;
+import auxs.LongIntMap;
 import auxs.Utils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A thread-safe singleton database implementation for storing and managing news articles
@@ -30,14 +38,49 @@ public class ConcurrentDb extends AbstractDataBase{
     private PairData kwData;
     private AtomicInteger counter = new AtomicInteger(0);
 
+    // file counts of the run and sum of squared articles per file (variance of the sampling estimates)
+    private int totalFiles;
+    private int sampledFiles;
+    private final LongAdder fileArticleSquares = new LongAdder();
+
+    // chunks of the large files, read by several threads instead of one (empty when no file is split)
+    private List<FileSplitter.Chunk> fileChunks = List.of();
+
     // dedup
     private final Map<String, Integer> uuidCount = new HashMap<>();
     private final Map<String, Integer> titleCount = new HashMap<>();
 
     // used to collect data from all threads
     private final List<SequentialDb>  partialDbs;
+
+    // spill mode: sorted runs of every thread, number of articles written from them
+    private final List<SpillStore> spillStores = new ArrayList<>();
+    private int spilledArticles;
+    private final List<SketchDb> partialSketches = new ArrayList<>();
+    private SketchDb sketchData;
     private final Map<String, Integer> keyWordsOccurences = new HashMap<>();
 
+    // articles removed as near-duplicates of a kept article (near-duplicate detection only)
+    private int nearDuplicatesRemoved;
+
+    // whether the merge stage writes the keyword index file
+    private boolean keywordIndex;
+
+    // trend reports: per dimension, window -> top-N lines of the window (null when off)
+    private List<Map<Integer, List<String>>> trendLines;
+    private int trendTopN;
+
+    // bigram counts: dictionary shared by the partial dbs and the merged "first second" pairs (null when off)
+    private Dictionary bigramWords;
+    private List<PairData> bigramsData;
+
+    // keyword counts of the other languages: linking words and shared dictionary of every language (sorted by
+    // language, empty when off), merged "word count" lists and top keyword of every language
+    private Map<String, Set<String>> languageLinkingWords = Map.of();
+    private final Map<String, Dictionary> languageKeywords = new TreeMap<>();
+    private final Map<String, List<PairData>> languageKeywordsData = new ConcurrentHashMap<>();
+    private final Map<String, PairData> languageKwData = new ConcurrentHashMap<>();
+
     /**
      * Functional interface representing a merge operation that combines data from partial databases
      */
@@ -46,6 +89,36 @@ public class ConcurrentDb extends AbstractDataBase{
          * Executes the merge computation.
          */
         void compute();
+
+        /**
+         * Returns the name of the operation, as shown in flight recordings
+         *
+         * @return the name
+         */
+        default String getName() {
+            return "merge";
+        }
+
+        /**
+         * Gives a merge operation a name
+         *
+         * @param name the name of the operation
+         * @param function the merge computation
+         * @return the named operation
+         */
+        static MergeFunction of(String name, MergeFunction function) {
+            return new MergeFunction() {
+                @Override
+                public void compute() {
+                    function.compute();
+                }
+
+                @Override
+                public String getName() {
+                    return name;
+                }
+            };
+        }
     }
 
     /**
@@ -67,6 +140,41 @@ public class ConcurrentDb extends AbstractDataBase{
         return INSTANCE;
     }
 
+    /**
+     * Clears all collected data and the features enabled for the run, so the singleton can be filled again
+     * (used by benchmarks); only the categories, languages and linking words read at startup are kept
+     */
+    void reset() {
+        articles = null;
+        categoryToArticle.clear();
+        languageToArticle.clear();
+        keywordsData.clear();
+        mostRecentArticle = null;
+        authorData = languageData = categoryData = kwData = null;
+        counter.set(0);
+        totalFiles = sampledFiles = 0;
+        fileArticleSquares.reset();
+        fileChunks = List.of();
+        uuidCount.clear();
+        titleCount.clear();
+        partialDbs.clear();
+        partialSketches.clear();
+        spillStores.clear();
+        spilledArticles = 0;
+        sketchData = null;
+        keyWordsOccurences.clear();
+        nearDuplicatesRemoved = 0;
+        keywordIndex = false;
+        trendLines = null;
+        trendTopN = 0;
+        bigramWords = null;
+        bigramsData = null;
+        languageLinkingWords = Map.of();
+        languageKeywords.clear();
+        languageKeywordsData.clear();
+        languageKwData.clear();
+    }
+
     public void initPartialDbs(int numThreads) {
         for (int i = 0; i < numThreads; i++) {
             partialDbs.add(new SequentialDb(languages, categories, linkingWords));
@@ -77,6 +185,77 @@ public class ConcurrentDb extends AbstractDataBase{
         return partialDbs.get(idx);
     }
 
+    /**
+     * Creates one spill store per thread; the articles are then merged from disk instead of memory
+     *
+     * @param numThreads the number of worker threads
+     * @param directory the directory receiving the runs
+     */
+    public void initSpillStores(int numThreads, Path directory) {
+        for (int i = 0; i < numThreads; i++) {
+            spillStores.add(new SpillStore(directory, "thread-" + i));
+        }
+    }
+
+    public SpillStore getSpillStore(int idx) {
+        return spillStores.get(idx);
+    }
+
+    public boolean isSpilling() {
+        return !spillStores.isEmpty();
+    }
+
+    /**
+     * Deletes the spilled runs of all threads
+     */
+    public void deleteSpillRuns() {
+        spillStores.forEach(SpillStore::deleteRuns);
+    }
+
+    /**
+     * Adds the partial results of a shard process (distributed mode)
+     *
+     * @param partial the decoded partial results
+     */
+    public void addPartial(PartialDbCodec.Partial partial) {
+        partialDbs.add(partial.db());
+        counter.addAndGet(partial.articlesRead());
+        fileArticleSquares.add(partial.fileArticleSquares());
+    }
+
+    /**
+     * Creates one sketch db per thread (approximate mode)
+     *
+     * @param numThreads the number of worker threads
+     * @param topK the number of keys monitored by the top-K summaries
+     * @param epsilon the relative error bound of the Count-Min sketches
+     * @param delta the failure probability of the Count-Min sketches
+     * @param hllPrecision the precision of the HyperLogLog sketches
+     */
+    public void initPartialSketches(int numThreads, int topK, double epsilon, double delta, int hllPrecision) {
+        for (int i = 0; i < numThreads; i++) {
+            partialSketches.add(new SketchDb(languages, categories, linkingWords, topK, epsilon, delta, hllPrecision));
+        }
+    }
+
+    public SketchDb getPartialSketch(int idx) {
+        return partialSketches.get(idx);
+    }
+
+    /**
+     * Merges the sketches of all threads into the first one (sketch union)
+     */
+    public void mergeSketches() {
+        sketchData = partialSketches.getFirst();
+        for (int i = 1; i < partialSketches.size(); i++) {
+            sketchData.merge(partialSketches.get(i));
+        }
+    }
+
+    public SketchDb getSketchData() {
+        return sketchData;
+    }
+
     public void generateGlobalDedupMaps() {
         for (var db : partialDbs) {
             db.getUuidCount().forEach((uuid, count) -> {
@@ -100,13 +279,240 @@ public class ConcurrentDb extends AbstractDataBase{
      * @return a list of MergeFunction operations to execute
      */
     public List<MergeFunction> getMergeOperations() {
-        return List.of(
-                this::mergeCategories,
-                this::mergeAuthor,
-                this::mergeMostRecentArticle,
-                this::mergeLanguages,
-                this::mergeKeyWords
-        );
+        List<MergeFunction> operations = new ArrayList<>();
+        if (isSpilling()) {
+            operations.addAll(List.of(
+                    MergeFunction.of("spilled-categories", this::mergeSpilledCategories),
+                    MergeFunction.of("authors", this::mergeAuthor),
+                    MergeFunction.of("most-recent-article", this::mergeMostRecentArticle),
+                    MergeFunction.of("spilled-languages", this::mergeSpilledLanguages),
+                    MergeFunction.of("keywords", this::mergeKeyWords),
+                    MergeFunction.of("spilled-articles", this::mergeSpilledArticles)
+            ));
+        } else {
+            operations.addAll(List.of(
+                    MergeFunction.of("categories", this::mergeCategories),
+                    MergeFunction.of("authors", this::mergeAuthor),
+                    MergeFunction.of("most-recent-article", this::mergeMostRecentArticle),
+                    MergeFunction.of("languages", this::mergeLanguages),
+                    MergeFunction.of("keywords", this::mergeKeyWords)
+            ));
+        }
+
+        if (bigramWords != null) {
+            operations.add(MergeFunction.of("bigrams", this::mergeBigrams));
+        }
+        // one operation per language, so the merge threads share the languages
+        for (String language : languageKeywords.keySet()) {
+            operations.add(MergeFunction.of("keywords-" + language, () -> mergeLanguageKeywords(language)));
+        }
+        if (keywordIndex) {
+            operations.add(MergeFunction.of("keyword-index", this::writeKeywordIndex));
+        }
+        if (trendLines != null) {
+            // one operation per dimension and shard of windows, so the merge threads share the windows
+            for (TrendCounters.Dimension dimension : TrendCounters.Dimension.values()) {
+                for (int shard = 0; shard < partialDbs.size(); shard++) {
+                    int s = shard;
+                    operations.add(MergeFunction.of("trends-" + dimension.name().toLowerCase() + "-" + s,
+                            () -> mergeTrends(dimension, s)));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Gives every partial db time-windowed counters, sharing one dictionary per dimension
+     *
+     * @param window the time window of the counters
+     * @param capacity keys kept per window and dimension before pruning
+     * @param topN keys written per window
+     */
+    public void initTrends(TrendCounters.Window window, int capacity, int topN) {
+        Dictionary[] dictionaries = new Dictionary[TrendCounters.Dimension.values().length];
+        Arrays.setAll(dictionaries, i -> new Dictionary());
+
+        partialDbs.forEach(db -> db.setTrendCounters(new TrendCounters(window, capacity, dictionaries)));
+        trendLines = new ArrayList<>();
+        for (int i = 0; i < dictionaries.length; i++) {
+            trendLines.add(new ConcurrentSkipListMap<>());
+        }
+        trendTopN = topN;
+    }
+
+    public boolean hasTrends() {
+        return trendLines != null;
+    }
+
+    /**
+     * Merges one shard of the windows of all threads for a dimension and keeps the top-N lines of every window
+     *
+     * @param dimension the dimension to merge
+     * @param shard the shard of windows (window index mod number of threads)
+     */
+    public void mergeTrends(TrendCounters.Dimension dimension, int shard) {
+        List<TrendCounters> partials = partialDbs.stream().map(SequentialDb::getTrendCounters).toList();
+        trendLines.get(dimension.ordinal()).putAll(TrendCounters.topLines(partials, dimension, shard,
+                partialDbs.size(), trendTopN,
+                dimension == TrendCounters.Dimension.CATEGORIES ? Utils::normalizeCategory : key -> key));
+    }
+
+    /**
+     * Returns the top-N lines of every window of a dimension, windows in ascending order
+     *
+     * @param dimension the dimension
+     * @return the lines
+     */
+    public List<String> getTrendLines(TrendCounters.Dimension dimension) {
+        return trendLines.get(dimension.ordinal()).values().stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Makes every partial db count bigrams, sharing one word dictionary that reserves the linking words
+     */
+    public void enableBigrams() {
+        // the linking words are reserved, so a single lookup gives a word's id and whether it breaks a phrase
+        bigramWords = new Dictionary(linkingWords);
+        bigramsData = List.of();
+        partialDbs.forEach(db -> db.enableBigrams(bigramWords));
+    }
+
+    public boolean hasBigrams() {
+        return bigramWords != null;
+    }
+
+    /**
+     * Merges the bigram counts of all partial databases and sorts the bigrams like the keywords
+     */
+    public void mergeBigrams() {
+        LongIntMap merged = new LongIntMap(partialDbs.stream()
+                .mapToInt(db -> db.getBigramOccurences().size()).max().orElse(0));
+        partialDbs.forEach(db -> merged.addAll(db.getBigramOccurences()));
+
+        // the words are only joined once per distinct bigram, for the output
+        List<PairData> data = new ArrayList<>(merged.size());
+        merged.forEach((bigram, count) -> data.add(new PairData(
+                bigramWords.word(LongIntMap.high(bigram)) + " " + bigramWords.word(LongIntMap.low(bigram)), count)));
+        data.sort(null);
+        bigramsData = data;
+    }
+
+    public List<PairData> getBigramsData() {
+        return bigramsData;
+    }
+
+    public void setLanguageLinkingWords(Map<String, Set<String>> languageLinkingWords) {
+        this.languageLinkingWords = languageLinkingWords;
+    }
+
+    /**
+     * Makes every partial db count the keywords of the languages other than english, sharing one dictionary per
+     * language that reserves the linking words of the language
+     */
+    public void enableLanguageKeywords() {
+        for (String language : languages) {
+            if (!language.equals(Constants.LANGUAGE)) {
+                languageKeywords.put(language, new Dictionary(languageLinkingWords.getOrDefault(language, Set.of())));
+            }
+        }
+        partialDbs.forEach(db -> db.enableLanguageKeywords(languageKeywords));
+    }
+
+    public boolean hasLanguageKeywords() {
+        return !languageKeywords.isEmpty();
+    }
+
+    /**
+     * Returns the languages whose keywords are counted besides english
+     *
+     * @return the languages, sorted
+     */
+    public Set<String> getKeywordLanguages() {
+        return languageKeywords.keySet();
+    }
+
+    /**
+     * Merges the keyword counts of a language from all partial databases and determines its top keyword
+     *
+     * @param language the language
+     */
+    public void mergeLanguageKeywords(String language) {
+        IntIntMap merged = new IntIntMap();
+        partialDbs.forEach(db -> merged.addAll(db.getLanguageKeywordOccurences(language)));
+
+        Dictionary words = languageKeywords.get(language);
+        List<PairData> data = new ArrayList<>(merged.size());
+        merged.forEach((id, count) -> data.add(new PairData(words.word(id), count)));
+        data.sort(null);
+
+        languageKeywordsData.put(language, data);
+        languageKwData.put(language, data.isEmpty() ? new PairData("", -1) : data.getFirst());
+    }
+
+    public List<PairData> getLanguageKeywordsData(String language) {
+        return languageKeywordsData.get(language);
+    }
+
+    public PairData getLanguageKwData(String language) {
+        return languageKwData.get(language);
+    }
+
+    /**
+     * Makes the merge stage write the keyword index, built from the posting lists of the partial dbs
+     */
+    public void enableKeywordIndex() {
+        keywordIndex = true;
+    }
+
+    public boolean hasKeywordIndex() {
+        return keywordIndex;
+    }
+
+    /**
+     * Merges the keyword posting lists of all threads and writes them to the keyword index file
+     */
+    public void writeKeywordIndex() {
+        try {
+            KeywordIndexFile.write(partialDbs, Path.of(Constants.KEYWORD_INDEX_FILE));
+        } catch (IOException e) {
+            System.err.println("Error writing the keyword index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all_articles.txt by merging the spilled article runs of all threads
+     */
+    public void mergeSpilledArticles() {
+        try {
+            spilledArticles = SpillStore.mergeArticles(spillStores, Constants.ALL_FILE);
+        } catch (IOException e) {
+            System.err.println("Error merging spilled articles: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the category files by merging the spilled category runs of all threads
+     */
+    public void mergeSpilledCategories() {
+        try {
+            generateTopCategory(SpillStore.mergeIndex(spillStores, SpillStore.RunType.CATEGORIES,
+                    category -> Utils.normalizeCategory(category) + Constants.FILE_EXTENSION));
+        } catch (IOException e) {
+            System.err.println("Error merging spilled categories: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the language files by merging the spilled language runs of all threads
+     */
+    public void mergeSpilledLanguages() {
+        try {
+            generateTopLanguage(SpillStore.mergeIndex(spillStores, SpillStore.RunType.LANGUAGES,
+                    language -> language + Constants.FILE_EXTENSION));
+        } catch (IOException e) {
+            System.err.println("Error merging spilled languages: " + e.getMessage());
+        }
     }
 
     /**
@@ -127,18 +533,29 @@ public class ConcurrentDb extends AbstractDataBase{
             }
         }
 
-        generateTopCategory();
+        generateTopCategory(listSizes(categoryToArticle));
+    }
+
+    /**
+     * Returns the number of articles of every entry of an index
+     */
+    private static Map<String, Integer> listSizes(Map<String, List<String>> index) {
+        Map<String, Integer> sizes = new HashMap<>();
+        index.forEach((key, list) -> sizes.put(key, list.size()));
+        return sizes;
     }
 
     /**
      * Determines the most popular category based on unique article count
+     *
+     * @param sizes category -> number of unique articles, for the non-empty categories
      */
-    private void generateTopCategory() {
+    private void generateTopCategory(Map<String, Integer> sizes) {
         String categ = "";
         int times = -1;
 
-        for (var entry : categoryToArticle.entrySet()) {
-            int eTimes = entry.getValue().size();
+        for (var entry : sizes.entrySet()) {
+            int eTimes = entry.getValue();
             if (eTimes > times) {
                 categ = entry.getKey();
                 times = eTimes;
@@ -164,18 +581,20 @@ public class ConcurrentDb extends AbstractDataBase{
             }
         }
 
-        generateTopLanguage();
+        generateTopLanguage(listSizes(languageToArticle));
     }
 
     /**
      * Determines the most popular language based on article count
+     *
+     * @param sizes language -> number of articles, for the non-empty languages
      */
-    private void generateTopLanguage() {
+    private void generateTopLanguage(Map<String, Integer> sizes) {
         String topLanguage = "";
         int times = -1;
 
-        for (var entry : languageToArticle.entrySet()) {
-            int entryTimes = entry.getValue().size();
+        for (var entry : sizes.entrySet()) {
+            int entryTimes = entry.getValue();
             if (entryTimes > times) {
                 topLanguage = entry.getKey();
                 times = entryTimes;
@@ -282,7 +701,24 @@ public class ConcurrentDb extends AbstractDataBase{
      * @return the number of articles removed as duplicates
      */
     public int getDuplicatesRemoved() {
-        return counter.intValue() - articles.size();
+        return counter.intValue() - getUniqueArticleCount() - nearDuplicatesRemoved;
+    }
+
+    public int getNearDuplicatesRemoved() {
+        return nearDuplicatesRemoved;
+    }
+
+    public void setNearDuplicatesRemoved(int nearDuplicatesRemoved) {
+        this.nearDuplicatesRemoved = nearDuplicatesRemoved;
+    }
+
+    /**
+     * Returns the number of unique articles (kept in memory or written from the spilled runs)
+     *
+     * @return the number of unique articles
+     */
+    public int getUniqueArticleCount() {
+        return isSpilling() ? spilledArticles : articles.size();
     }
 
     /**
@@ -294,6 +730,55 @@ public class ConcurrentDb extends AbstractDataBase{
         counter.addAndGet(n);
     }
 
+    /**
+     * Records the number of articles read from one file
+     *
+     * @param n the number of articles in the file
+     */
+    public void addFileArticles(int n) {
+        fileArticleSquares.add((long) n * n);
+    }
+
+    /**
+     * Sets the number of files listed and the number of files processed (fewer when sampling)
+     *
+     * @param totalFiles the number of files listed
+     * @param sampledFiles the number of files processed
+     */
+    public void setFileCounts(int totalFiles, int sampledFiles) {
+        this.totalFiles = totalFiles;
+        this.sampledFiles = sampledFiles;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * Sets the chunks of the files split for parallel parsing (the files are no longer in the file list)
+     *
+     * @param fileChunks the chunks of all split files
+     */
+    public void setFileChunks(List<FileSplitter.Chunk> fileChunks) {
+        this.fileChunks = fileChunks;
+    }
+
+    public List<FileSplitter.Chunk> getFileChunks() {
+        return fileChunks;
+    }
+
+    public int getSampledFiles() {
+        return sampledFiles;
+    }
+
+    public long getFileArticleSquares() {
+        return fileArticleSquares.sum();
+    }
+
+    public int getArticlesRead() {
+        return counter.intValue();
+    }
+
     public Map<String, List<String>> getCategoryToArticle() {
         return categoryToArticle;
     }
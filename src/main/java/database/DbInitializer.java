@@ -1,10 +1,16 @@
 package database;
 
+import auxs.Constants;
+import auxs.Options;
 import auxs.Utils;
+import sketches.Hashing;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -32,13 +38,64 @@ public class DbInitializer {
         ConcurrentDb db = ConcurrentDb.getInstance();
 
         List<String> filesToRead = loadArticleList(newsFilesPath);
+        db.setFileCounts(filesToRead.size(), filesToRead.size());
+
+        boolean archived = Options.USE_ARCHIVE && ArticleArchive.openIfPresent(newsFilesPath, filesToRead);
+        if (archived) {
+            System.out.println("[INFO] Reading the articles from " + newsFilesPath + ArticleArchive.EXTENSION);
+        }
+
+        if (Options.SAMPLE_FRACTION < 1) {
+            int totalFiles = filesToRead.size();
+            filesToRead = sampleFiles(newsFilesPath, filesToRead, Options.SAMPLE_FRACTION, Options.SAMPLE_SEED);
+            db.setFileCounts(totalFiles, filesToRead.size());
+        }
+
+        // the sampling estimates count articles per file, the shard processes are handed whole files
+        if (Options.SPLIT_BYTES > 0 && !archived && Options.SAMPLE_FRACTION >= 1
+                && Options.MODE != Options.Mode.DISTRIBUTED) {
+            filesToRead = splitLargeFiles(filesToRead, Options.SPLIT_BYTES);
+        }
+
+        initAuxiliaryData(additionalFilesPath);
+
+        return filesToRead;
+    }
+
+    /**
+     * Loads the languages, categories and linking words only (used by the shard processes)
+     *
+     * @param additionalFilesPath the path to the file containing auxiliary file paths
+     * @throws IOException if any file reading operation fails
+     */
+    public void initAuxiliaryData(String additionalFilesPath) throws IOException {
+        ConcurrentDb db = ConcurrentDb.getInstance();
         AuxiliaryFiles aux = loadAuxiliaryFiles(additionalFilesPath);
 
         db.setLanguages(loadListFile(aux.langFile));
         db.setCategories(loadListFile(aux.categFile));
         db.setLinkingWords(loadListFile(aux.wordsFile));
 
-        return filesToRead;
+        if (Options.ALL_LANGUAGES) {
+            db.setLanguageLinkingWords(loadLanguageLinkingWords(aux.wordsFile, db.getLanguages()));
+        }
+    }
+
+    /**
+     * Loads the linking words of every language from the optional files next to the linking words file
+     *
+     * @param wordsFile the path to the linking words file
+     * @param languages the languages
+     * @return language -> linking words, empty for the languages without a file
+     */
+    private Map<String, Set<String>> loadLanguageLinkingWords(String wordsFile, Set<String> languages) {
+        Map<String, Set<String>> result = new HashMap<>();
+
+        for (String language : languages) {
+            String path = Utils.replaceLastPathElement(wordsFile, String.format(Constants.LANGUAGE_LINKING_WORDS_FILE, language));
+            result.put(language, Files.exists(Path.of(path)) ? loadListFile(path) : Set.of());
+        }
+        return result;
     }
 
     /**
@@ -67,6 +124,66 @@ public class DbInitializer {
         return result;
     }
 
+    /**
+     * Splits the files larger than the chunk size into chunks parsed by different threads
+     *
+     * @param files all article files
+     * @param chunkBytes the file size above which a file is split, and the nominal chunk size
+     * @return the files read whole, in their original order
+     */
+    private List<String> splitLargeFiles(List<String> files, long chunkBytes) {
+        List<String> wholeFiles = new ArrayList<>();
+        List<FileSplitter.Chunk> chunks = new ArrayList<>();
+        int splitFiles = 0;
+
+        for (String file : files) {
+            // a compressed file cannot be cut at arbitrary offsets
+            if (new File(file).length() <= chunkBytes || CompressedInput.Codec.of(file) != null) {
+                wholeFiles.add(file);
+                continue;
+            }
+
+            try {
+                chunks.addAll(FileSplitter.split(file, chunkBytes));
+                splitFiles++;
+            } catch (IOException e) {
+                System.err.println("[WARN] cannot split " + file + ", reading it whole: " + e.getMessage());
+                wholeFiles.add(file);
+            }
+        }
+
+        if (splitFiles > 0) {
+            System.out.println("[INFO] Split " + splitFiles + " files into " + chunks.size() + " chunks");
+        }
+        ConcurrentDb.getInstance().setFileChunks(chunks);
+        return wholeFiles;
+    }
+
+    /**
+     * Keeps every file independently with the given probability. The choice only depends on the seed and the
+     * file entry as listed, so a sample is reproducible and grows monotonically with the fraction.
+     *
+     * @param listPath the path of the article file list
+     * @param files all article files
+     * @param fraction the probability of keeping a file
+     * @param seed the sampling seed
+     * @return the sampled files, in their original order
+     */
+    private List<String> sampleFiles(String listPath, List<String> files, double fraction, long seed) {
+        List<String> sample = new ArrayList<>();
+        // the entries are resolved against the directory of the list
+        int prefix = Utils.replaceLastPathElement(listPath, "").length();
+
+        for (String file : files) {
+            // uniform in [0, 1) from the top 53 bits of the hash
+            double u = (Hashing.hash64(seed + "/" + file.substring(prefix)) >>> 11) * 0x1.0p-53;
+            if (u < fraction) {
+                sample.add(file);
+            }
+        }
+        return sample;
+    }
+
     /**
      * Loads the paths to auxiliary files (languages, categories, and linking words)
      *
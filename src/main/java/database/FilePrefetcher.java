@@ -0,0 +1,201 @@
+package database;
+
+import auxs.Options;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-ahead of the article files of a reader (enabled with aggregator.prefetch.io): while a file is parsed, the
+ * following ones are read whole into pooled buffers on virtual threads, so disk latency overlaps parsing.
+ * <p>
+ * Two process-wide limits apply to the prefetchers of all the readers: at most aggregator.prefetch.io reads run at
+ * once, independently of the number of worker threads, and the buffers read ahead hold at most
+ * aggregator.prefetch.budget bytes. The parsing thread issues the reads itself when it takes a file, in file order,
+ * and stops at the first one the budget cannot take, so nobody ever blocks on the budget: a file that was not read
+ * ahead (budget exhausted, packed in an archive, or failed) is simply read by the parser as before.
+ */
+public final class FilePrefetcher implements AutoCloseable {
+    private static final int MIN_BUFFER_BITS = 16;
+    private static final int MAX_BUFFER_BITS = 30;
+
+    // budget in KB, so budgets over 2 GB still fit the permits
+    private static final int BUDGET_KB = (int) Math.min(Integer.MAX_VALUE, Options.PREFETCH_BUDGET >> 10);
+    private static final Semaphore BUDGET = new Semaphore(BUDGET_KB);
+    private static final Semaphore IO_SLOTS = new Semaphore(Math.max(1, Options.PREFETCH_IO));
+
+    // released buffers by power-of-two capacity (from 2^MIN_BUFFER_BITS), together at most one budget of idle memory
+    private static final List<Queue<byte[]>> POOL = new ArrayList<>();
+    private static final AtomicLong POOLED_BYTES = new AtomicLong();
+
+    static {
+        for (int bits = MIN_BUFFER_BITS; bits <= MAX_BUFFER_BITS; bits++) {
+            POOL.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * The contents of a file read ahead, to be handed back with release once parsed
+     *
+     * @param data a pooled buffer
+     * @param length the size of the file
+     */
+    public record Buffer(byte[] data, int length) {}
+
+    private final List<String> files;
+    private final ArticleArchive archive;
+    private final List<CompletableFuture<Buffer>> pending;
+    // files beyond the window are not read ahead yet
+    private final int window;
+    private int next;
+
+    private FilePrefetcher(List<String> files, ArticleArchive archive) {
+        this.files = files;
+        this.archive = archive;
+        this.pending = new ArrayList<>(Collections.nCopies(files.size(), null));
+        this.window = Options.PREFETCH_IO;
+    }
+
+    /**
+     * Creates the prefetcher of a list of files
+     *
+     * @param files the files, in the order they are parsed
+     * @param archive the archive in use, or null
+     * @return the prefetcher, or null if prefetching is off
+     */
+    public static FilePrefetcher of(List<String> files, ArticleArchive archive) {
+        return Options.PREFETCH_IO > 0 && BUDGET_KB > 0 ? new FilePrefetcher(files, archive) : null;
+    }
+
+    /**
+     * Reads ahead the files following a file, then waits for the file itself if it was read ahead
+     *
+     * @param i the index of the file about to be parsed
+     * @return its contents, or null if the parser has to read it
+     */
+    public Buffer take(int i) {
+        next = Math.max(next, i + 1);
+        while (next < files.size() && next <= i + window && issue(next)) {
+            next++;
+        }
+
+        CompletableFuture<Buffer> read = pending.set(i, null);
+        return read == null ? null : read.join();
+    }
+
+    /**
+     * Starts reading a file ahead, if it is not in the archive and the budget can take it
+     *
+     * @return false if the budget is exhausted
+     */
+    private boolean issue(int i) {
+        String file = files.get(i);
+        if (archive != null && archive.segment(file) != null) return true;
+
+        long size;
+        try {
+            size = Files.size(Path.of(file));
+        } catch (IOException e) {
+            // reported when the parser opens it
+            return true;
+        }
+        // files over 1 GB are streamed by the parser
+        if (size > 1L << MAX_BUFFER_BITS) return true;
+
+        int bits = Math.max(MIN_BUFFER_BITS, 64 - Long.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        // files larger than the whole budget are streamed by the parser
+        if (kb(bits) > BUDGET_KB) return true;
+        if (!BUDGET.tryAcquire(kb(bits))) return false;
+
+        CompletableFuture<Buffer> read = new CompletableFuture<>();
+        pending.set(i, read);
+        Thread.ofVirtual().name("prefetch").start(() -> {
+            try {
+                read.complete(readFile(file, bits));
+            } catch (RuntimeException | Error e) {
+                // e.g. out of memory for the buffer: the parser must not wait forever
+                BUDGET.release(kb(bits));
+                read.complete(null);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Reads a file into a buffer of 2^bits bytes, charged to the budget
+     *
+     * @return the contents, or null (and the buffer released) if the file cannot be read whole
+     */
+    private static Buffer readFile(String file, int bits) {
+        byte[] data = POOL.get(bits - MIN_BUFFER_BITS).poll();
+        if (data != null) {
+            POOLED_BYTES.addAndGet(-data.length);
+        } else {
+            data = new byte[1 << bits];
+        }
+
+        IO_SLOTS.acquireUninterruptibly();
+        try (InputStream in = Files.newInputStream(Path.of(file))) {
+            int length = in.readNBytes(data, 0, data.length);
+            // grown since its size was taken: the parser reads it
+            if (length == data.length && in.read() != -1) {
+                release(data);
+                return null;
+            }
+            return new Buffer(data, length);
+        } catch (IOException e) {
+            release(data);
+            return null;
+        } finally {
+            IO_SLOTS.release();
+        }
+    }
+
+    /**
+     * Hands a parsed file back: its buffer returns to the pool and its bytes to the budget
+     *
+     * @param buffer the contents returned by take
+     */
+    public static void release(Buffer buffer) {
+        release(buffer.data());
+    }
+
+    private static void release(byte[] data) {
+        int bits = Integer.numberOfTrailingZeros(data.length);
+        if (POOLED_BYTES.addAndGet(data.length) <= Options.PREFETCH_BUDGET) {
+            POOL.get(bits - MIN_BUFFER_BITS).add(data);
+        } else {
+            POOLED_BYTES.addAndGet(-data.length);
+        }
+        BUDGET.release(kb(bits));
+    }
+
+    private static int kb(int bits) {
+        return 1 << (bits - 10);
+    }
+
+    /**
+     * Releases the files read ahead but never taken, once their reads are done
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < pending.size(); i++) {
+            CompletableFuture<Buffer> read = pending.set(i, null);
+            if (read != null) {
+                read.thenAccept(buffer -> {
+                    if (buffer != null) release(buffer);
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Splits a large article file into chunks of whole articles, parsed by different readers, so one huge file does not
+ * leave the other threads idle.
+ * <p>
+ * NDJSON files (.ndjson or .jsonl, one article per line) are cut at the first line after every nominal chunk start.
+ * JSON arrays are cut at the first top-level object after it, found by a structural pre-scan of the memory-mapped
+ * file: every segment is scanned once, in parallel, counting its unescaped quotes and its bracket depth change both
+ * as if it started outside and inside a string. A prefix over the segments then gives the exact string state and depth
+ * at every nominal start, from which the next top-level object is a short scan. The readers map their chunk again,
+ * so no bytes are copied.
+ */
+public final class FileSplitter {
+    // a chunk is mapped as one buffer
+    private static final long MAX_CHUNK = 1L << 30;
+    private static final int SCAN_BUFFER = 1 << 16;
+
+    // classes of the bytes seen by the pre-scan, 0 for all the others: one table load and a branch that is
+    // almost never taken per byte, instead of a switch
+    private static final byte QUOTE = 1, BACKSLASH = 2, OPEN = 3, CLOSE = 4;
+    private static final byte[] BYTE_CLASS = new byte[256];
+
+    static {
+        BYTE_CLASS['"'] = QUOTE;
+        BYTE_CLASS['\\'] = BACKSLASH;
+        BYTE_CLASS['{'] = OPEN;
+        BYTE_CLASS['['] = OPEN;
+        BYTE_CLASS['}'] = CLOSE;
+        BYTE_CLASS[']'] = CLOSE;
+    }
+
+    private final String path;
+    private final MappedByteBuffer[] segments;
+    private final long step;
+    private final long size;
+
+    /**
+     * A byte range of an article file holding whole articles
+     *
+     * @param path the file
+     * @param start the offset of the first article
+     * @param end the offset after the last article
+     * @param ndjson true for lines of an NDJSON file, false for elements of a JSON array
+     */
+    public record Chunk(String path, long start, long end, boolean ndjson) {
+        public long length() {
+            return end - start;
+        }
+
+        /**
+         * Maps the range of the chunk
+         *
+         * @return a read-only buffer over the articles of the chunk
+         * @throws IOException if the file cannot be mapped
+         */
+        public ByteBuffer map() throws IOException {
+            try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+        }
+    }
+
+    /**
+     * Bracket depth change and quote parity of a segment, for both possible string states at its start
+     */
+    private record SegmentScan(boolean oddQuotes, int depthOutside, int depthInside) {}
+
+    private FileSplitter(String path, MappedByteBuffer[] segments, long step, long size) {
+        this.path = path;
+        this.segments = segments;
+        this.step = step;
+        this.size = size;
+    }
+
+    /**
+     * Returns whether a file holds one article per line instead of a JSON array
+     *
+     * @param path the file
+     * @return true for the .ndjson and .jsonl files
+     */
+    public static boolean isNdjson(String path) {
+        return path.endsWith(".ndjson") || path.endsWith(".jsonl");
+    }
+
+    /**
+     * Splits a file into chunks of about chunkBytes
+     *
+     * @param path the file
+     * @param chunkBytes the nominal chunk size (at most 1 GB)
+     * @return the chunks, in file order
+     * @throws IOException if the file cannot be read or is neither a JSON array nor NDJSON
+     */
+    public static List<Chunk> split(String path, long chunkBytes) throws IOException {
+        long step = Math.clamp(chunkBytes, 1, MAX_CHUNK);
+
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + step - 1) / step)];
+            for (int s = 0; s < segments.length; s++) {
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, s * step, Math.min(step, size - s * step));
+            }
+
+            FileSplitter splitter = new FileSplitter(path, segments, step, size);
+            return isNdjson(path) ? splitter.splitLines() : splitter.splitArray();
+        }
+    }
+
+    /**
+     * Cuts the file after the first newline at or after every nominal start
+     */
+    private List<Chunk> splitLines() {
+        long[] starts = new long[segments.length];
+
+        for (int s = 1; s < segments.length; s++) {
+            long pos = s * step;
+            while (pos < size && get(pos - 1) != '\n') {
+                pos++;
+            }
+            starts[s] = pos;
+        }
+        return toChunks(starts, size, true);
+    }
+
+    /**
+     * Cuts the top-level array before the first top-level object at or after every nominal start
+     */
+    private List<Chunk> splitArray() throws IOException {
+        long open = 0;
+        while (open < size && isWhitespace(get(open))) open++;
+        long close = size;
+        while (close > open && isWhitespace(get(close - 1))) close--;
+
+        if (open == size || get(open) != '[' || get(close - 1) != ']') {
+            throw new IOException(path + " is neither a JSON array nor NDJSON");
+        }
+
+        SegmentScan[] scans = IntStream.range(0, segments.length).parallel()
+                .mapToObj(this::scanSegment)
+                .toArray(SegmentScan[]::new);
+
+        // the string state and depth at the start of every segment, the file starting outside of any string
+        boolean[] inString = new boolean[segments.length];
+        int[] depth = new int[segments.length];
+        for (int s = 1; s < segments.length; s++) {
+            SegmentScan previous = scans[s - 1];
+            depth[s] = depth[s - 1] + (inString[s - 1] ? previous.depthInside : previous.depthOutside);
+            inString[s] = inString[s - 1] ^ previous.oddQuotes;
+        }
+
+        long[] starts = IntStream.range(0, segments.length).parallel()
+                .mapToLong(s -> nextTopLevelObject(s * step, inString[s], depth[s]))
+                .toArray();
+        // the closing bracket ends the last chunk
+        return toChunks(starts, close - 1, false);
+    }
+
+    /**
+     * Scans a segment as if it started outside a string; the braces seen "inside" are the ones that count
+     * if it actually started inside a string
+     */
+    private SegmentScan scanSegment(int s) {
+        MappedByteBuffer segment = segments[s];
+        byte[] buffer = new byte[SCAN_BUFFER];
+        boolean escaped = isEscaped(s * step);
+        boolean inString = false;
+        int depthOutside = 0, depthInside = 0;
+
+        for (int offset = 0; offset < segment.limit(); offset += buffer.length) {
+            int n = Math.min(buffer.length, segment.limit() - offset);
+            segment.get(offset, buffer, 0, n);
+
+            for (int i = 0; i < n; i++) {
+                byte type = BYTE_CLASS[buffer[i] & 0xFF];
+                if (type == 0 || escaped) {
+                    escaped = false;
+                    continue;
+                }
+                switch (type) {
+                    // backslashes only appear in strings
+                    case BACKSLASH -> escaped = true;
+                    case QUOTE -> inString = !inString;
+                    case OPEN -> {
+                        if (inString) depthInside++;
+                        else depthOutside++;
+                    }
+                    default -> {
+                        if (inString) depthInside--;
+                        else depthOutside--;
+                    }
+                }
+            }
+        }
+        return new SegmentScan(inString, depthOutside, depthInside);
+    }
+
+    /**
+     * Finds the first object starting at depth 1 (an element of the top-level array)
+     *
+     * @return its offset, or the file size if there is none
+     */
+    private long nextTopLevelObject(long pos, boolean inString, int depth) {
+        boolean escaped = isEscaped(pos);
+
+        for (; pos < size; pos++) {
+            byte b = get(pos);
+            if (escaped) {
+                escaped = false;
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == '"') {
+                inString = !inString;
+            } else if (!inString) {
+                if (b == '{' && depth == 1) return pos;
+                if (b == '{' || b == '[') depth++;
+                else if (b == '}' || b == ']') depth--;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Builds the chunks between the distinct starts below the limit
+     */
+    private List<Chunk> toChunks(long[] starts, long limit, boolean ndjson) {
+        List<Long> bounds = new ArrayList<>();
+        for (long start : starts) {
+            if (start < limit && (bounds.isEmpty() || bounds.getLast() != start)) {
+                bounds.add(start);
+            }
+        }
+        bounds.add(limit);
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+            long end = bounds.get(i + 1);
+            if (!ndjson) {
+                // drops the separator before the next element
+                while (isWhitespace(get(end - 1))) end--;
+                if (get(end - 1) == ',') end--;
+                while (isWhitespace(get(end - 1))) end--;
+            }
+            chunks.add(new Chunk(path, bounds.get(i), end, ndjson));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns whether the byte at pos follows an odd run of backslashes
+     */
+    private boolean isEscaped(long pos) {
+        long run = 0;
+        while (pos - run > 0 && get(pos - run - 1) == '\\') {
+            run++;
+        }
+        return run % 2 == 1;
+    }
+
+    private byte get(long pos) {
+        return segments[(int) (pos / step)].get((int) (pos % step));
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,281 @@
+package database;
+
+import auxs.IntList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Inverted index from english keywords to the articles containing them, stored in a memory-mapped file.
+ * <p>
+ * Articles are identified by dense ordinals: the articles indexed by thread t follow those of threads 0..t-1, so
+ * the per-thread posting lists concatenate into sorted global lists without sorting. Each posting list is stored
+ * as its length and the gaps between consecutive ordinals, as varints (one byte per gap below 128). The file holds
+ * the posting lists, then the article uuids, then the sorted keyword dictionary with the offset of every list, and
+ * ends with a fixed footer locating the sections.
+ */
+public final class KeywordIndexFile {
+    private static final int MAGIC = 0x41474b49; // "AGKI"
+    private static final int FOOTER_BYTES = 8 + 8 + 4 + 4 + 4;
+    private static final int[] NO_ARTICLES = new int[0];
+
+    private final MappedByteBuffer buffer;
+    private final String[] uuids;
+    private final String[] keywords;
+    private final long[] offsets;
+
+    private KeywordIndexFile(MappedByteBuffer buffer, String[] uuids, String[] keywords, long[] offsets) {
+        this.buffer = buffer;
+        this.uuids = uuids;
+        this.keywords = keywords;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Merges the posting lists of the partial dbs and writes the index file
+     *
+     * @param partialDbs the processed partial dbs, in thread order
+     * @param path the file to write
+     * @throws IOException if the file cannot be written or exceeds 2 GB
+     */
+    public static void write(List<SequentialDb> partialDbs, Path path) throws IOException {
+        int[] starts = new int[partialDbs.size() + 1];
+        Set<String> allKeywords = new HashSet<>();
+        for (int t = 0; t < partialDbs.size(); t++) {
+            starts[t + 1] = starts[t] + partialDbs.get(t).getIndexedArticles().size();
+            allKeywords.addAll(partialDbs.get(t).getKeywordPostings().keySet());
+        }
+
+        String[] sortedKeywords = allKeywords.toArray(new String[0]);
+        Arrays.sort(sortedKeywords);
+        long[] listOffsets = new long[sortedKeywords.length];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            // posting lists, in keyword order
+            for (int k = 0; k < sortedKeywords.length; k++) {
+                listOffsets[k] = out.size();
+
+                int count = 0;
+                for (SequentialDb db : partialDbs) {
+                    IntList local = db.getKeywordPostings().get(sortedKeywords[k]);
+                    count += local == null ? 0 : local.size();
+                }
+                writeVarint(out, count);
+
+                int previous = 0;
+                for (int t = 0; t < partialDbs.size(); t++) {
+                    IntList local = partialDbs.get(t).getKeywordPostings().get(sortedKeywords[k]);
+                    if (local == null) continue;
+
+                    for (int i = 0; i < local.size(); i++) {
+                        int ordinal = starts[t] + local.get(i);
+                        writeVarint(out, ordinal - previous);
+                        previous = ordinal;
+                    }
+                }
+            }
+
+            // article table
+            long docsOffset = out.size();
+            for (SequentialDb db : partialDbs) {
+                for (String uuid : db.getIndexedArticles()) {
+                    writeString(out, uuid);
+                }
+            }
+
+            // keyword dictionary
+            long dictOffset = out.size();
+            for (int k = 0; k < sortedKeywords.length; k++) {
+                writeString(out, sortedKeywords[k]);
+                out.writeLong(listOffsets[k]);
+            }
+
+            out.writeLong(docsOffset);
+            out.writeLong(dictOffset);
+            out.writeInt(starts[partialDbs.size()]);
+            out.writeInt(sortedKeywords.length);
+            out.writeInt(MAGIC);
+
+            // DataOutputStream.size() saturates at Integer.MAX_VALUE
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Keyword index " + path + " exceeds 2 GB");
+            }
+        }
+    }
+
+    /**
+     * Maps an index file; the article uuids and the dictionary are loaded, the posting lists stay mapped
+     *
+     * @param path the index file
+     * @return the opened index
+     * @throws IOException if the file cannot be read or is not a keyword index
+     */
+    public static KeywordIndexFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < FOOTER_BYTES) {
+                throw new IOException(path + " is not a keyword index");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            buffer.position((int) channel.size() - FOOTER_BYTES);
+            long docsOffset = buffer.getLong();
+            long dictOffset = buffer.getLong();
+            int docCount = buffer.getInt();
+            int keywordCount = buffer.getInt();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a keyword index");
+            }
+
+            buffer.position((int) docsOffset);
+            String[] uuids = new String[docCount];
+            for (int i = 0; i < docCount; i++) {
+                uuids[i] = readString(buffer);
+            }
+
+            buffer.position((int) dictOffset);
+            String[] keywords = new String[keywordCount];
+            long[] offsets = new long[keywordCount];
+            for (int k = 0; k < keywordCount; k++) {
+                keywords[k] = readString(buffer);
+                offsets[k] = buffer.getLong();
+            }
+            return new KeywordIndexFile(buffer, uuids, keywords, offsets);
+        }
+    }
+
+    /**
+     * Decodes the posting list of a keyword
+     *
+     * @param keyword the keyword (lowercase letters, as produced by the tokenizer)
+     * @return the sorted ordinals of the articles containing the keyword
+     */
+    public int[] lookup(String keyword) {
+        int k = Arrays.binarySearch(keywords, keyword);
+        if (k < 0) return NO_ARTICLES;
+
+        // absolute reads on a duplicate, so concurrent lookups do not share a position
+        ByteBuffer in = buffer.duplicate().position((int) offsets[k]);
+        int[] ordinals = new int[readVarint(in)];
+        int previous = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            previous += readVarint(in);
+            ordinals[i] = previous;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Finds the articles containing all the keywords, intersecting the shortest lists first
+     *
+     * @param keywords the keywords
+     * @return the sorted ordinals of the matching articles
+     */
+    public int[] and(Collection<String> keywords) {
+        if (keywords.isEmpty()) return NO_ARTICLES;
+
+        List<int[]> lists = new ArrayList<>();
+        for (String keyword : keywords) {
+            lists.add(lookup(keyword));
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] result = lists.getFirst();
+        for (int l = 1; l < lists.size() && result.length > 0; l++) {
+            int[] other = lists.get(l);
+            int[] common = new int[result.length];
+            int n = 0;
+
+            for (int i = 0, j = 0; i < result.length && j < other.length; ) {
+                if (result[i] < other[j]) i++;
+                else if (result[i] > other[j]) j++;
+                else {
+                    common[n++] = result[i];
+                    i++;
+                    j++;
+                }
+            }
+            result = Arrays.copyOf(common, n);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the articles containing any of the keywords
+     *
+     * @param keywords the keywords
+     * @return the sorted ordinals of the matching articles
+     */
+    public int[] or(Collection<String> keywords) {
+        int[] result = NO_ARTICLES;
+        for (String keyword : keywords) {
+            int[] other = lookup(keyword);
+            int[] union = new int[result.length + other.length];
+            int n = 0, i = 0, j = 0;
+
+            while (i < result.length || j < other.length) {
+                if (j == other.length || (i < result.length && result[i] < other[j])) union[n++] = result[i++];
+                else if (i == result.length || other[j] < result[i]) union[n++] = other[j++];
+                else {
+                    union[n++] = result[i++];
+                    j++;
+                }
+            }
+            result = Arrays.copyOf(union, n);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the uuid of an article ordinal
+     *
+     * @param ordinal the ordinal
+     * @return the article uuid
+     */
+    public String uuid(int ordinal) {
+        return uuids[ordinal];
+    }
+
+    public int size() {
+        return uuids.length;
+    }
+
+    public int keywordCount() {
+        return keywords.length;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package database;
+
+import articles.NewsArticle;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the retained heap size of the structures of a SequentialDb (64-bit JVM, compressed oops, compact strings).
+ * <p>
+ * Strings shared with the articles (uuids, titles, authors) are only counted for the article set; the other
+ * structures are charged for their own entries, boxed counters and the strings they alone hold (keywords),
+ * so the estimates can be summed.
+ */
+public final class MemoryEstimator {
+    private static final long OBJECT_HEADER = 12;
+    private static final long ARRAY_HEADER = 16;
+    private static final long REFERENCE = 4;
+    private static final long STRING_SHALLOW = 24;
+    private static final long HASH_NODE = 32;
+    private static final long BOXED_INTEGER = 16;
+    private static final long ARRAY_LIST_SHALLOW = 24;
+    private static final long HASH_MAP_SHALLOW = 48;
+    // reference slot in the table of a HashMap at the default 0.75 load factor
+    private static final double TABLE_SLOT = REFERENCE / 0.75;
+
+    private MemoryEstimator() {
+        // utility class
+    }
+
+    /**
+     * Estimates the retained size of every structure of a partial database
+     *
+     * @param db the partial database
+     * @return structure name -> estimated bytes
+     */
+    public static Map<String, Long> estimate(SequentialDb db) {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put("articleSet", articleSet(db.getArticleSet()));
+        sizes.put("uuidCount", counterMap(db.getUuidCount(), false));
+        sizes.put("titleCount", counterMap(db.getTitleCount(), false));
+        sizes.put("keyWordsOccurences", counterMap(db.getKeyWordsOccurences(), true));
+        sizes.put("authorOccurences", counterMap(db.getAuthorOccurences(), false));
+        sizes.put("categoryToArticle", listMap(db.getCategoryToArticle()));
+        sizes.put("languageToArticle", listMap(db.getLanguageToArticle()));
+        return sizes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Estimates a String (object + byte array, latin1 or utf16)
+     */
+    static long string(String s) {
+        if (s == null) return 0;
+
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) <= 0xFF;
+        }
+        return STRING_SHALLOW + align(ARRAY_HEADER + (long) s.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long hashEntries(int size) {
+        return HASH_MAP_SHALLOW + (long) (size * (HASH_NODE + TABLE_SLOT));
+    }
+
+    private static long list(Collection<?> list) {
+        return ARRAY_LIST_SHALLOW + align(ARRAY_HEADER + REFERENCE * (long) list.size());
+    }
+
+    /**
+     * Estimates the article set, including the articles and all their fields
+     */
+    private static long articleSet(Collection<NewsArticle> articles) {
+        long bytes = hashEntries(articles.size());
+        long articleShallow = align(OBJECT_HEADER + 8 * REFERENCE);
+
+        for (NewsArticle a : articles) {
+            bytes += articleShallow;
+            bytes += string(a.getUuid()) + string(a.getUrl()) + string(a.getAuthor()) + string(a.getPublished())
+                    + string(a.getTitle()) + string(a.getText()) + string(a.getLanguage());
+            if (a.getCategories() != null) {
+                bytes += list(a.getCategories());
+                for (String c : a.getCategories()) {
+                    bytes += string(c);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates a counter map; boxed values outside the Integer cache are separate objects
+     */
+    private static long counterMap(Map<String, Integer> map, boolean ownsKeys) {
+        long bytes = hashEntries(map.size());
+        for (var entry : map.entrySet()) {
+            if (entry.getValue() > 127) bytes += BOXED_INTEGER;
+            if (ownsKeys) bytes += string(entry.getKey());
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates an index of uuid lists (the uuids themselves belong to the articles)
+     */
+    private static long listMap(Map<String, List<String>> map) {
+        long bytes = hashEntries(map.size());
+        for (List<String> list : map.values()) {
+            bytes += list(list);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,304 @@
+package database;
+
+import articles.NewsArticle;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compact binary encoding of the partial results exchanged by the shard processes of the distributed mode.
+ * <p>
+ * A partial db file holds the articles left after deduplication (sorted, without their text), the category and
+ * language indices as ordinals into that article table, the keyword and author counters and the most recent article.
+ * Counts files hold the uuid and title dedup counters of a shard; dedup files the keys seen more than once overall.
+ */
+public final class PartialDbCodec {
+    private static final int PARTIAL_MAGIC = 0x41474450; // "AGDP"
+    private static final int COUNTS_MAGIC = 0x41474443;  // "AGDC"
+    private static final int DEDUP_MAGIC = 0x41474444;   // "AGDD"
+
+    /**
+     * Partial results of a shard
+     *
+     * @param db the processed partial db
+     * @param articlesRead the number of articles read by the shard (duplicates included)
+     * @param fileArticleSquares the sum of squared articles per file (sampling variance)
+     */
+    public record Partial(SequentialDb db, int articlesRead, long fileArticleSquares) {}
+
+    /**
+     * Keys seen more than once over all shards
+     *
+     * @param uuids duplicated uuids
+     * @param titles duplicated titles
+     */
+    public record DuplicateKeys(Set<String> uuids, Set<String> titles) {
+        /**
+         * Checks whether an article has a duplicated uuid or title
+         *
+         * @param article the article
+         * @return true if the article must be removed
+         */
+        public boolean isDuplicate(NewsArticle article) {
+            return uuids.contains(article.getUuid()) || titles.contains(article.getTitle());
+        }
+    }
+
+    private PartialDbCodec() {
+        // utility class
+    }
+
+    /**
+     * Writes the processed state of a partial db
+     *
+     * @param partial the partial results
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writePartial(Partial partial, Path path) throws IOException {
+        SequentialDb db = partial.db();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(PARTIAL_MAGIC);
+            out.writeInt(partial.articlesRead());
+            out.writeLong(partial.fileArticleSquares());
+
+            // article table, sorted like the global article list
+            List<NewsArticle> articles = db.getArticles();
+            Map<String, Integer> ordinals = new HashMap<>(articles.size() * 2);
+            out.writeInt(articles.size());
+            for (NewsArticle a : articles) {
+                ordinals.put(a.getUuid(), ordinals.size());
+                writeString(out, a.getUuid());
+                writeString(out, a.getUrl());
+                writeString(out, a.getAuthor());
+                writeString(out, a.getPublished());
+                writeString(out, a.getTitle());
+                writeString(out, a.getLanguage());
+
+                List<String> categories = a.getCategories();
+                out.writeInt(categories == null ? -1 : categories.size());
+                if (categories != null) {
+                    for (String c : categories) {
+                        writeString(out, c);
+                    }
+                }
+            }
+
+            NewsArticle mostRecent = db.getMostRecentArticle();
+            out.writeInt(mostRecent == null ? -1 : ordinals.get(mostRecent.getUuid()));
+
+            writeIndex(out, db.getCategoryToArticle(), ordinals);
+            writeIndex(out, db.getLanguageToArticle(), ordinals);
+            writeCounter(out, db.getKeyWordsOccurences());
+            writeCounter(out, db.getAuthorOccurences());
+        }
+    }
+
+    /**
+     * Reads a partial db written by writePartial
+     *
+     * @param path the file to read
+     * @param languages the set of valid language codes
+     * @param categories the set of valid category names
+     * @param linkingWords the set of linking words
+     * @return the partial results
+     * @throws IOException if the file cannot be read or is not a partial db file
+     */
+    public static Partial readPartial(Path path, Set<String> languages, Set<String> categories,
+                                      Set<String> linkingWords) throws IOException {
+        SequentialDb db = new SequentialDb(languages, categories, linkingWords);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            checkMagic(in, PARTIAL_MAGIC, path);
+            int articlesRead = in.readInt();
+            long fileArticleSquares = in.readLong();
+
+            NewsArticle[] articles = new NewsArticle[in.readInt()];
+            for (int i = 0; i < articles.length; i++) {
+                NewsArticle a = new NewsArticle();
+                a.setUuid(readString(in));
+                a.setUrl(readString(in));
+                a.setAuthor(readString(in));
+                a.setPublished(readString(in));
+                a.setTitle(readString(in));
+                a.setLanguage(readString(in));
+
+                int numCategories = in.readInt();
+                if (numCategories >= 0) {
+                    List<String> c = new ArrayList<>(numCategories);
+                    for (int j = 0; j < numCategories; j++) {
+                        c.add(readString(in));
+                    }
+                    a.setCategories(c);
+                }
+
+                articles[i] = a;
+                db.getArticleSet().add(a);
+            }
+
+            int mostRecent = in.readInt();
+            if (mostRecent >= 0) {
+                db.setMostRecentArticle(articles[mostRecent]);
+            }
+
+            readIndex(in, db.getCategoryToArticle(), articles);
+            readIndex(in, db.getLanguageToArticle(), articles);
+            readCounter(in, db.getKeyWordsOccurences());
+            readCounter(in, db.getAuthorOccurences());
+
+            return new Partial(db, articlesRead, fileArticleSquares);
+        }
+    }
+
+    /**
+     * Writes the uuid and title dedup counters of a shard
+     *
+     * @param db the partial db after reading
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCounts(SequentialDb db, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(COUNTS_MAGIC);
+            writeCounter(out, db.getUuidCount());
+            writeCounter(out, db.getTitleCount());
+        }
+    }
+
+    /**
+     * Adds the dedup counters of a shard to global counters
+     *
+     * @param path the counts file
+     * @param uuidCount global uuid counter
+     * @param titleCount global title counter
+     * @throws IOException if the file cannot be read
+     */
+    public static void readCounts(Path path, Map<String, Integer> uuidCount, Map<String, Integer> titleCount)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            checkMagic(in, COUNTS_MAGIC, path);
+            readCounter(in, uuidCount);
+            readCounter(in, titleCount);
+        }
+    }
+
+    /**
+     * Writes the duplicated keys
+     *
+     * @param keys the keys seen more than once
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeDuplicateKeys(DuplicateKeys keys, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(DEDUP_MAGIC);
+            writeStrings(out, keys.uuids());
+            writeStrings(out, keys.titles());
+        }
+    }
+
+    /**
+     * Reads the duplicated keys
+     *
+     * @param path the dedup file
+     * @return the keys seen more than once
+     * @throws IOException if the file cannot be read
+     */
+    public static DuplicateKeys readDuplicateKeys(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            checkMagic(in, DEDUP_MAGIC, path);
+            return new DuplicateKeys(readStrings(in), readStrings(in));
+        }
+    }
+
+    private static void checkMagic(DataInputStream in, int magic, Path path) throws IOException {
+        if (in.readInt() != magic) {
+            throw new IOException("Unexpected format of partial result file " + path);
+        }
+    }
+
+    private static void writeIndex(DataOutputStream out, Map<String, List<String>> index, Map<String, Integer> ordinals)
+            throws IOException {
+        out.writeInt(index.size());
+        for (var entry : index.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String uuid : entry.getValue()) {
+                out.writeInt(ordinals.get(uuid));
+            }
+        }
+    }
+
+    private static void readIndex(DataInputStream in, Map<String, List<String>> index, NewsArticle[] articles)
+            throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            int n = in.readInt();
+
+            List<String> uuids = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                uuids.add(articles[in.readInt()].getUuid());
+            }
+            index.put(key, uuids);
+        }
+    }
+
+    private static void writeCounter(DataOutputStream out, Map<String, Integer> counter) throws IOException {
+        out.writeInt(counter.size());
+        for (var entry : counter.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static void readCounter(DataInputStream in, Map<String, Integer> counter) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            counter.merge(key, in.readInt(), Integer::sum);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Set<String> strings = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 length (-1 for null) and bytes
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,7 +1,12 @@
 package database;
 
 import articles.NewsArticle;
+import auxs.Dictionary;
+import auxs.IntIntMap;
+import auxs.IntList;
+import auxs.LongIntMap;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +23,21 @@ public class SequentialDb extends AbstractDataBase {
     private final Map<String, Integer> uuidCount;
     private final Map<String, Integer> titleCount;
 
+    // keyword index: uuids of the indexed articles (local ordinal = position), keyword -> ascending local ordinals
+    private final List<String> indexedArticles = new ArrayList<>();
+    private final Map<String, IntList> keywordPostings = new HashMap<>();
+
+    // time-windowed counters (null when the trend reports are off)
+    private TrendCounters trendCounters;
+
+    // bigram counts keyed by the packed ids of both words in a dictionary shared by the threads (null when off)
+    private Dictionary bigramWords;
+    private LongIntMap bigramOccurences;
+
+    // keyword counts of the other languages: dictionaries shared by the threads and per-thread counts by word id
+    private Map<String, Dictionary> languageKeywords = Map.of();
+    private final Map<String, IntIntMap> languageKeywordOccurences = new HashMap<>();
+
     /**
      * Constructs a new SequentialDb with the specified articles and metadata
      *
@@ -48,6 +68,15 @@ public class SequentialDb extends AbstractDataBase {
 
     public void addArticle(NewsArticle article) {
         articleSet.add(article);
+        countArticle(article);
+    }
+
+    /**
+     * Counts the uuid and title of an article in the dedup maps, without keeping the article
+     *
+     * @param article the article to count
+     */
+    public void countArticle(NewsArticle article) {
         uuidCount.merge(article.getUuid(), 1, Integer::sum);
         titleCount.merge(article.getTitle(), 1, Integer::sum);
     }
@@ -90,6 +119,56 @@ public class SequentialDb extends AbstractDataBase {
         keyWordsOccurences.merge(keyword, 1, Integer::sum);
     }
 
+    /**
+     * Increments the occurrence count of a bigram
+     *
+     * @param bigram the ids of both words, packed with LongIntMap.pack
+     */
+    public void incrementBigramOccurrence(long bigram) {
+        bigramOccurences.add(bigram, 1);
+    }
+
+    /**
+     * Starts counting bigrams, with word ids from a dictionary shared by all partial dbs
+     *
+     * @param words the shared dictionary, with the linking words reserved
+     */
+    public void enableBigrams(Dictionary words) {
+        bigramWords = words;
+        bigramOccurences = new LongIntMap();
+    }
+
+    /**
+     * Starts counting the keywords of other languages than english
+     *
+     * @param dictionaries language -> dictionary shared by all partial dbs, with the linking words reserved
+     */
+    public void enableLanguageKeywords(Map<String, Dictionary> dictionaries) {
+        languageKeywords = dictionaries;
+        dictionaries.keySet().forEach(language -> languageKeywordOccurences.put(language, new IntIntMap()));
+    }
+
+    /**
+     * Gives an article the next local ordinal of the keyword index
+     *
+     * @param uuid the UUID of the article
+     * @return the local ordinal of the article
+     */
+    public int indexArticle(String uuid) {
+        indexedArticles.add(uuid);
+        return indexedArticles.size() - 1;
+    }
+
+    /**
+     * Adds an article to the posting list of a keyword; ordinals are added in increasing order
+     *
+     * @param keyword the keyword
+     * @param ordinal the local ordinal of the article
+     */
+    public void addPosting(String keyword, int ordinal) {
+        keywordPostings.computeIfAbsent(keyword, k -> new IntList()).add(ordinal);
+    }
+
     /**
      * Sorts the article UUIDs for the specified category and removes duplicates, sorted by their UUID
      *
@@ -117,6 +196,15 @@ public class SequentialDb extends AbstractDataBase {
         articleSet.removeIf(article -> uuidMap.get(article.getUuid()) > 1 || titleMap.get(article.getTitle()) > 1);
     }
 
+    /**
+     * Removes the articles reported as duplicates by a predicate
+     *
+     * @param isDuplicate predicate telling whether an article has a duplicate uuid or title
+     */
+    public void removeDuplicates(Predicate<NewsArticle> isDuplicate) {
+        articleSet.removeIf(isDuplicate);
+    }
+
     public List<NewsArticle> getArticles() {
         var articles = new ArrayList<>(articleSet);
         Collections.sort(articles);
@@ -137,6 +225,38 @@ public class SequentialDb extends AbstractDataBase {
         return languageToArticle;
     }
 
+    public List<String> getIndexedArticles() {
+        return indexedArticles;
+    }
+
+    public Map<String, IntList> getKeywordPostings() {
+        return keywordPostings;
+    }
+
+    public TrendCounters getTrendCounters() {
+        return trendCounters;
+    }
+
+    public void setTrendCounters(TrendCounters trendCounters) {
+        this.trendCounters = trendCounters;
+    }
+
+    public Dictionary getBigramWords() {
+        return bigramWords;
+    }
+
+    public LongIntMap getBigramOccurences() {
+        return bigramOccurences;
+    }
+
+    public Dictionary getLanguageKeywords(String language) {
+        return languageKeywords.get(language);
+    }
+
+    public IntIntMap getLanguageKeywordOccurences(String language) {
+        return languageKeywordOccurences.get(language);
+    }
+
     public Map<String, Integer> getKeyWordsOccurences() {
         return keyWordsOccurences;
     }
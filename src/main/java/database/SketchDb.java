@@ -0,0 +1,191 @@
+package database;
+
+import articles.NewsArticle;
+import auxs.Constants;
+import auxs.Utils;
+import sketches.CountMinSketch;
+import sketches.HyperLogLog;
+import sketches.SpaceSaving;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sequential (non-thread-safe) database of fixed-size, mergeable sketches, used by the approximate mode.
+ * <p>
+ * The articles are not kept: each one only updates the sketches, so the memory does not depend on the input size.
+ * Duplicates cannot be removed without keeping every uuid and title, so the counts include them; the number of
+ * duplicates is estimated from the distinct uuid count instead.
+ */
+public class SketchDb extends AbstractDataBase {
+    private final SpaceSaving topKeywords;
+    private final SpaceSaving topAuthors;
+    private final CountMinSketch keywordFrequencies;
+    private final CountMinSketch authorFrequencies;
+    private final HyperLogLog uniqueUuids;
+    private final HyperLogLog uniqueTitles;
+
+    // bounded by the configured languages and categories
+    private final Map<String, Integer> languageCount = new HashMap<>();
+    private final Map<String, Integer> categoryCount = new HashMap<>();
+
+    private NewsArticle mostRecentArticle;
+    private long articles;
+
+    /**
+     * Constructs an empty SketchDb
+     *
+     * @param languages the set of valid language codes
+     * @param categories the set of valid category names
+     * @param linkingWords the set of linking words to skip
+     * @param topK the number of keys monitored by the top-K summaries
+     * @param epsilon the relative error bound of the Count-Min sketches
+     * @param delta the failure probability of the Count-Min sketches
+     * @param hllPrecision the precision of the HyperLogLog sketches
+     */
+    public SketchDb(Set<String> languages, Set<String> categories, Set<String> linkingWords,
+                    int topK, double epsilon, double delta, int hllPrecision) {
+        this.languages = languages;
+        this.categories = categories;
+        this.linkingWords = linkingWords;
+
+        topKeywords = new SpaceSaving(topK);
+        topAuthors = new SpaceSaving(topK);
+        keywordFrequencies = new CountMinSketch(epsilon, delta);
+        authorFrequencies = new CountMinSketch(epsilon, delta);
+        uniqueUuids = new HyperLogLog(hllPrecision);
+        uniqueTitles = new HyperLogLog(hllPrecision);
+    }
+
+    /**
+     * Updates the sketches with an article (the same fields as the exact Processor)
+     *
+     * @param article the article read
+     */
+    public void addArticle(NewsArticle article) {
+        articles++;
+        uniqueUuids.add(article.getUuid());
+        uniqueTitles.add(article.getTitle());
+
+        topAuthors.add(article.getAuthor(), 1);
+        authorFrequencies.add(article.getAuthor(), 1);
+
+        if (languages.contains(article.getLanguage())) {
+            languageCount.merge(article.getLanguage(), 1, Integer::sum);
+        }
+        article.getCategories().stream()
+                .distinct()
+                .filter(categories::contains)
+                .forEach(c -> categoryCount.merge(c, 1, Integer::sum));
+
+        if (mostRecentArticle == null || article.compareTo(mostRecentArticle) < 0) {
+            mostRecentArticle = article;
+        }
+
+        if (!Constants.LANGUAGE.equals(article.getLanguage())) return;
+
+        Set<String> words = Utils.textToWords(article.getText());
+        if (words == null) return;
+
+        for (String word : words) {
+            if (linkingWords.contains(word)) continue;
+
+            topKeywords.add(word, 1);
+            keywordFrequencies.add(word, 1);
+        }
+    }
+
+    /**
+     * Adds all the data of another SketchDb (sketch union)
+     *
+     * @param other the db to merge
+     */
+    public void merge(SketchDb other) {
+        articles += other.articles;
+        uniqueUuids.merge(other.uniqueUuids);
+        uniqueTitles.merge(other.uniqueTitles);
+        topAuthors.merge(other.topAuthors);
+        authorFrequencies.merge(other.authorFrequencies);
+        topKeywords.merge(other.topKeywords);
+        keywordFrequencies.merge(other.keywordFrequencies);
+
+        other.languageCount.forEach((k, v) -> languageCount.merge(k, v, Integer::sum));
+        other.categoryCount.forEach((k, v) -> categoryCount.merge(k, v, Integer::sum));
+
+        if (other.mostRecentArticle != null
+                && (mostRecentArticle == null || other.mostRecentArticle.compareTo(mostRecentArticle) < 0)) {
+            mostRecentArticle = other.mostRecentArticle;
+        }
+    }
+
+    /**
+     * Returns the most frequent keywords, each count tightened by the Count-Min estimate (both overestimate)
+     *
+     * @return the top-K entries, by decreasing count then key
+     */
+    public List<SpaceSaving.Entry> getTopKeywords() {
+        return tighten(topKeywords, keywordFrequencies);
+    }
+
+    /**
+     * Returns the most frequent authors, each count tightened by the Count-Min estimate (both overestimate)
+     *
+     * @return the top-K entries, by decreasing count then key
+     */
+    public List<SpaceSaving.Entry> getTopAuthors() {
+        return tighten(topAuthors, authorFrequencies);
+    }
+
+    private static List<SpaceSaving.Entry> tighten(SpaceSaving summary, CountMinSketch frequencies) {
+        return summary.entries().stream()
+                .map(e -> {
+                    long count = Math.min(e.count(), frequencies.estimate(e.key()));
+                    // the true count is at least e.count() - e.error()
+                    return new SpaceSaving.Entry(e.key(), count, Math.max(0, count - (e.count() - e.error())));
+                })
+                .sorted((a, b) -> a.count() != b.count() ? Long.compare(b.count(), a.count()) : a.key().compareTo(b.key()))
+                .toList();
+    }
+
+    public long getArticles() {
+        return articles;
+    }
+
+    public HyperLogLog getUniqueUuids() {
+        return uniqueUuids;
+    }
+
+    public HyperLogLog getUniqueTitles() {
+        return uniqueTitles;
+    }
+
+    public CountMinSketch getKeywordFrequencies() {
+        return keywordFrequencies;
+    }
+
+    public CountMinSketch getAuthorFrequencies() {
+        return authorFrequencies;
+    }
+
+    public SpaceSaving getKeywordSummary() {
+        return topKeywords;
+    }
+
+    public SpaceSaving getAuthorSummary() {
+        return topAuthors;
+    }
+
+    public Map<String, Integer> getLanguageCount() {
+        return languageCount;
+    }
+
+    public Map<String, Integer> getCategoryCount() {
+        return categoryCount;
+    }
+
+    public NewsArticle getMostRecentArticle() {
+        return mostRecentArticle;
+    }
+}
@@ -0,0 +1,251 @@
+package database;
+
+import articles.NewsArticle;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Per-thread store of sorted runs spilled to disk, used when the processed articles do not fit in the heap.
+ * <p>
+ * Every spill moves the processed articles and the category/language indices of a partial db into three run files
+ * of compact (key, uuid) records: (published, uuid) for the articles, (category or language, uuid) for the indices.
+ * The outputs are then written by streaming k-way merges over the memory-mapped runs of all threads, so only one
+ * record per run is held in memory.
+ */
+public class SpillStore {
+    /**
+     * The three kinds of runs
+     */
+    public enum RunType { ARTICLES, CATEGORIES, LANGUAGES }
+
+    private final Path directory;
+    private final String prefix;
+    private final Map<RunType, List<Path>> runs = new EnumMap<>(RunType.class);
+
+    /**
+     * Constructs an empty store
+     *
+     * @param directory the directory receiving the run files
+     * @param prefix the prefix of this store's run files
+     */
+    public SpillStore(Path directory, String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+        for (RunType type : RunType.values()) {
+            runs.put(type, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Writes the articles and indices of a partial db as sorted runs, then removes them from the db
+     *
+     * @param db the partial db (after processing)
+     * @throws UncheckedIOException if a run cannot be written
+     */
+    public void spill(SequentialDb db) {
+        try {
+            // articles in the global list order: most recent first, then by uuid
+            List<NewsArticle> articles = db.getArticles();
+            List<String[]> articleRecords = new ArrayList<>(articles.size());
+            articles.forEach(a -> articleRecords.add(new String[] {a.getPublished(), a.getUuid()}));
+            writeRun(RunType.ARTICLES, articleRecords);
+
+            writeRun(RunType.CATEGORIES, indexRecords(db.getCategoryToArticle()));
+            writeRun(RunType.LANGUAGES, indexRecords(db.getLanguageToArticle()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill to " + directory, e);
+        }
+
+        // keep the most recent article, it is a single object
+        db.getArticleSet().clear();
+        db.getCategoryToArticle().values().forEach(List::clear);
+        db.getLanguageToArticle().values().forEach(List::clear);
+    }
+
+    /**
+     * Flattens an index into (key, uuid) records sorted by key, then uuid
+     */
+    private static List<String[]> indexRecords(Map<String, List<String>> index) {
+        List<String[]> records = new ArrayList<>();
+        new TreeMap<>(index).forEach((key, uuids) -> {
+            List<String> sorted = new ArrayList<>(uuids);
+            Collections.sort(sorted);
+            sorted.forEach(uuid -> records.add(new String[] {key, uuid}));
+        });
+        return records;
+    }
+
+    private void writeRun(RunType type, List<String[]> records) throws IOException {
+        if (records.isEmpty()) return;
+
+        List<Path> typeRuns = runs.get(type);
+        Path file = directory.resolve(prefix + "-" + type.name().toLowerCase() + "-" + typeRuns.size() + ".run");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (String[] record : records) {
+                writeString(out, record[0]);
+                writeString(out, record[1]);
+            }
+        }
+        typeRuns.add(file);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Merges the article runs of all stores into the all articles file ("uuid published" lines)
+     *
+     * @param stores the stores of all threads
+     * @param filename the output file
+     * @return the number of articles written
+     * @throws IOException if a run cannot be read or the output written
+     */
+    public static int mergeArticles(List<SpillStore> stores, String filename) throws IOException {
+        // most recent first, then by uuid (NewsArticle order)
+        Comparator<RunCursor> order = Comparator.<RunCursor, String>comparing(c -> c.key, Comparator.reverseOrder())
+                .thenComparing(c -> c.uuid);
+        int count = 0;
+
+        try (Merge merge = new Merge(stores, RunType.ARTICLES, order);
+             BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            for (RunCursor c; (c = merge.next()) != null; count++) {
+                writer.write(c.uuid + " " + c.key);
+                writer.newLine();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Merges the index runs of all stores, writing one file of distinct sorted uuids per non-empty key
+     *
+     * @param stores the stores of all threads
+     * @param type CATEGORIES or LANGUAGES
+     * @param filename maps a key to its output file
+     * @return key -> number of uuids written, for the non-empty keys
+     * @throws IOException if a run cannot be read or an output written
+     */
+    public static Map<String, Integer> mergeIndex(List<SpillStore> stores, RunType type,
+                                                  Function<String, String> filename) throws IOException {
+        Comparator<RunCursor> order = Comparator.<RunCursor, String>comparing(c -> c.key).thenComparing(c -> c.uuid);
+        Map<String, Integer> sizes = new HashMap<>();
+
+        try (Merge merge = new Merge(stores, type, order)) {
+            BufferedWriter writer = null;
+            String currentKey = null, lastUuid = null;
+
+            try {
+                for (RunCursor c; (c = merge.next()) != null; ) {
+                    if (!c.key.equals(currentKey)) {
+                        if (writer != null) writer.close();
+                        currentKey = c.key;
+                        lastUuid = null;
+                        writer = new BufferedWriter(new FileWriter(filename.apply(currentKey)));
+                    }
+                    if (c.uuid.equals(lastUuid)) continue;
+
+                    writer.write(c.uuid);
+                    writer.newLine();
+                    lastUuid = c.uuid;
+                    sizes.merge(currentKey, 1, Integer::sum);
+                }
+            } finally {
+                if (writer != null) writer.close();
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Deletes the run files of a store
+     */
+    public void deleteRuns() {
+        runs.values().forEach(files -> files.forEach(file -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error deleting " + file + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * K-way merge over the memory-mapped runs of one type
+     */
+    private static final class Merge implements Closeable {
+        private final PriorityQueue<RunCursor> heap;
+        private final List<FileChannel> channels = new ArrayList<>();
+        private RunCursor last;
+
+        Merge(List<SpillStore> stores, RunType type, Comparator<RunCursor> order) throws IOException {
+            heap = new PriorityQueue<>(order);
+            for (SpillStore store : stores) {
+                for (Path file : store.runs.get(type)) {
+                    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                    channels.add(channel);
+
+                    RunCursor cursor = new RunCursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                    if (cursor.advance()) heap.add(cursor);
+                }
+            }
+        }
+
+        /**
+         * Returns the cursor positioned on the next record in order (valid until the following call)
+         */
+        RunCursor next() {
+            if (last != null && last.advance()) {
+                heap.add(last);
+            }
+            last = heap.poll();
+            return last;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Sequential reader of the records of a mapped run
+     */
+    private static final class RunCursor {
+        private final MappedByteBuffer buffer;
+        String key;
+        String uuid;
+
+        RunCursor(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean advance() {
+            if (!buffer.hasRemaining()) return false;
+
+            key = readString(buffer);
+            uuid = readString(buffer);
+            return true;
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
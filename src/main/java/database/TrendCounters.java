@@ -0,0 +1,216 @@
+package database;
+
+import auxs.Dictionary;
+import auxs.IntIntMap;
+import database.AbstractDataBase.PairData;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keyword, author and category counters of one thread, bucketed by the publish time window of the articles.
+ * <p>
+ * Every window holds a sparse primitive map per dimension, keyed by the ids of a dictionary shared by all
+ * threads. A map holding more than capacity keys is pruned Misra-Gries style: the count of its (capacity / 2 + 1)-th
+ * largest key is subtracted from every key and the keys left at zero are dropped, so memory stays bounded with
+ * millions of keys and the heavy hitters survive. Pruned counts are lower bounds, short by at most
+ * 2 * (window total) / capacity.
+ */
+public class TrendCounters {
+    private static final int NO_BUCKET = Integer.MIN_VALUE;
+
+    /**
+     * Counted dimensions and the files of their per-window top-N
+     */
+    public enum Dimension {
+        KEYWORDS("trends_keywords.txt"),
+        AUTHORS("trends_authors.txt"),
+        CATEGORIES("trends_categories.txt");
+
+        private final String file;
+
+        Dimension(String file) {
+            this.file = file;
+        }
+
+        public String getFile() {
+            return file;
+        }
+    }
+
+    /**
+     * Time windows, as whole hours or days (UTC) since the epoch
+     */
+    public enum Window {
+        HOUR(3600, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH")),
+        DAY(86400, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+
+        private final long seconds;
+        private final DateTimeFormatter label;
+
+        Window(long seconds, DateTimeFormatter label) {
+            this.seconds = seconds;
+            this.label = label;
+        }
+
+        /**
+         * Returns the window of a publish timestamp
+         *
+         * @param published ISO-8601 timestamp with offset
+         * @return the window index, or NO_BUCKET if the timestamp cannot be parsed
+         */
+        int bucketOf(String published) {
+            if (published == null) return NO_BUCKET;
+
+            try {
+                long epochSecond = OffsetDateTime.parse(published).toEpochSecond();
+                return (int) Math.floorDiv(epochSecond, seconds);
+            } catch (DateTimeParseException e) {
+                return NO_BUCKET;
+            }
+        }
+
+        /**
+         * Formats the start of a window
+         *
+         * @param bucket the window index
+         * @return the label, e.g. 2024-12-24T05 or 2024-12-24
+         */
+        public String label(int bucket) {
+            return label.format(OffsetDateTime.ofInstant(Instant.ofEpochSecond(bucket * seconds), ZoneOffset.UTC));
+        }
+    }
+
+    private final Window window;
+    private final int capacity;
+    private final Dictionary[] dictionaries;
+
+    // per dimension: window -> key id -> count
+    private final List<Map<Integer, IntIntMap>> buckets = new ArrayList<>();
+
+    // per dimension: last window counted and its map (the keys of an article all fall in one window)
+    private final int[] lastBucket = new int[Dimension.values().length];
+    private final IntIntMap[] lastCounts = new IntIntMap[Dimension.values().length];
+
+    /**
+     * Creates empty counters
+     *
+     * @param window the time window
+     * @param capacity keys kept per window and dimension before pruning
+     * @param dictionaries the shared dictionary of every dimension
+     */
+    public TrendCounters(Window window, int capacity, Dictionary[] dictionaries) {
+        this.window = window;
+        this.capacity = capacity;
+        this.dictionaries = dictionaries;
+        for (int i = 0; i < Dimension.values().length; i++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Returns the window of a publish timestamp, to be passed to add
+     *
+     * @param published the publish timestamp of an article
+     * @return the window index, or a value rejected by hasBucket
+     */
+    public int bucketOf(String published) {
+        return window.bucketOf(published);
+    }
+
+    public static boolean hasBucket(int bucket) {
+        return bucket != NO_BUCKET;
+    }
+
+    /**
+     * Counts one occurrence of a key in a window
+     *
+     * @param dimension the dimension of the key
+     * @param bucket the window, from bucketOf
+     * @param key the keyword, author or category
+     */
+    public void add(Dimension dimension, int bucket, String key) {
+        int d = dimension.ordinal();
+        if (lastCounts[d] == null || lastBucket[d] != bucket) {
+            lastCounts[d] = buckets.get(d).computeIfAbsent(bucket, b -> new IntIntMap());
+            lastBucket[d] = bucket;
+        }
+
+        lastCounts[d].add(dictionaries[d].idOf(key), 1);
+        prune(lastCounts[d]);
+    }
+
+    /**
+     * Merges one shard of the windows (window index mod shards) of all threads for a dimension and selects the
+     * n most frequent keys of every merged window. The counters of the threads must not be updated afterwards.
+     *
+     * @param partials the counters of all threads
+     * @param dimension the dimension
+     * @param shard the shard of windows to merge
+     * @param shards the number of shards
+     * @param n keys per window
+     * @param format maps a selected key to its written form
+     * @return window -> "window key count" lines, by count descending then key ascending
+     */
+    public static SortedMap<Integer, List<String>> topLines(List<TrendCounters> partials, Dimension dimension,
+                                                            int shard, int shards, int n, UnaryOperator<String> format) {
+        int d = dimension.ordinal();
+        Map<Integer, IntIntMap> merged = new HashMap<>();
+
+        for (TrendCounters partial : partials) {
+            partial.buckets.get(d).forEach((bucket, counts) -> {
+                if (Math.floorMod(bucket, shards) != shard) return;
+
+                // windows seen by a single thread are taken over instead of copied
+                IntIntMap own = merged.putIfAbsent(bucket, counts);
+                if (own != null) {
+                    own.addAll(counts);
+                    partial.prune(own);
+                }
+            });
+        }
+
+        SortedMap<Integer, List<String>> lines = new TreeMap<>();
+        merged.forEach((bucket, counts) -> {
+            String label = partials.getFirst().window.label(bucket);
+            lines.put(bucket, top(counts, partials.getFirst().dictionaries[d], n).stream()
+                    .map(pair -> label + " " + format.apply(pair.data()) + " " + pair.times())
+                    .toList());
+        });
+        return lines;
+    }
+
+    /**
+     * Selects the n most frequent keys of a window
+     */
+    private static List<PairData> top(IntIntMap counts, Dictionary dictionary, int n) {
+        // min-heap of the n best entries (PairData orders by count descending, then key ascending)
+        PriorityQueue<PairData> top = new PriorityQueue<>(Comparator.reverseOrder());
+
+        counts.forEach((id, count) -> {
+            // most keys lose against the current n-th key without building their pair
+            PairData last = top.size() == n ? top.peek() : null;
+            if (last != null && count < last.times()) return;
+
+            String key = dictionary.word(id);
+            if (last != null && count == last.times() && key.compareTo(last.data()) > 0) return;
+
+            top.add(new PairData(key, count));
+            if (top.size() > n) top.poll();
+        });
+        return top.stream().sorted().toList();
+    }
+
+    private void prune(IntIntMap counts) {
+        if (counts.size() <= capacity) return;
+
+        int[] values = counts.values();
+        Arrays.sort(values);
+        counts.subtractAll(values[values.length - 1 - capacity / 2]);
+    }
+}
@@ -0,0 +1,180 @@
+package distributed;
+
+import database.ConcurrentDb;
+import database.PartialDbCodec;
+import multithreading.WorkPartitioner;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Coordinator of the distributed mode: splits the article files across shard processes, combines their dedup
+ * counts, and loads their partial dbs into ConcurrentDb, whose merge stages then run as in a single process.
+ * <p>
+ * The shards run on this machine as fresh JVMs with the same classpath; the work directory is the only state they
+ * share with the coordinator, so running them elsewhere only needs that directory on shared storage.
+ */
+public class Coordinator {
+    private final List<String> files;
+    private final String additionalFile;
+    private final int numShards;
+    private final List<String> jvmArgs;
+
+    /**
+     * Constructs a Coordinator
+     *
+     * @param files all article files
+     * @param additionalFile the path to the file containing auxiliary file paths
+     * @param numShards the number of shard processes
+     * @param jvmOptions extra JVM options of the shard processes (space separated)
+     */
+    public Coordinator(List<String> files, String additionalFile, int numShards, String jvmOptions) {
+        this.files = files;
+        this.additionalFile = new File(additionalFile).getAbsolutePath();
+        this.numShards = numShards;
+        this.jvmArgs = jvmOptions.isBlank() ? List.of() : List.of(jvmOptions.trim().split("\\s+"));
+    }
+
+    static Path countsFile(Path workDir, int shardId) {
+        return workDir.resolve("shard-" + shardId + ".counts");
+    }
+
+    static Path partialFile(Path workDir, int shardId) {
+        return workDir.resolve("shard-" + shardId + ".part");
+    }
+
+    /**
+     * Runs the shards and loads their results into ConcurrentDb
+     *
+     * @throws IOException if a shard fails or a partial result cannot be read
+     */
+    public void execute() throws IOException {
+        Path workDir = Files.createTempDirectory("aggregator-shards-");
+        List<Shard> shards = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < numShards; i++) {
+                shards.add(startShard(i, workDir));
+            }
+
+            // phase 1: combine the dedup counts of all shards
+            Map<String, Integer> uuidCount = new HashMap<>();
+            Map<String, Integer> titleCount = new HashMap<>();
+            for (Shard shard : shards) {
+                shard.expect(ShardWorker.COUNTED);
+                PartialDbCodec.readCounts(countsFile(workDir, shard.id), uuidCount, titleCount);
+            }
+
+            Path dedupFile = workDir.resolve("dedup.bin");
+            PartialDbCodec.writeDuplicateKeys(new PartialDbCodec.DuplicateKeys(
+                    duplicatedKeys(uuidCount), duplicatedKeys(titleCount)), dedupFile);
+            uuidCount.clear();
+            titleCount.clear();
+
+            for (Shard shard : shards) {
+                shard.send(ShardWorker.DEDUP + dedupFile);
+            }
+
+            // phase 2: load the partial dbs, in shard order
+            ConcurrentDb db = ConcurrentDb.getInstance();
+            for (Shard shard : shards) {
+                shard.expect(ShardWorker.DONE);
+                shard.waitFor();
+                db.addPartial(PartialDbCodec.readPartial(partialFile(workDir, shard.id),
+                        db.getLanguages(), db.getCategories(), db.getLinkingWords()));
+            }
+        } finally {
+            // no-op for the shards that exited
+            shards.forEach(shard -> shard.process.destroy());
+            deleteRecursively(workDir.toFile());
+        }
+    }
+
+    private static Set<String> duplicatedKeys(Map<String, Integer> counts) {
+        Set<String> keys = new HashSet<>();
+        counts.forEach((key, count) -> {
+            if (count > 1) keys.add(key);
+        });
+        return keys;
+    }
+
+    /**
+     * Writes the file list of a shard and starts its process
+     */
+    private Shard startShard(int shardId, Path workDir) throws IOException {
+        List<String> shardFiles = new WorkPartitioner(shardId, numShards).partitionList(files).stream()
+                .map(f -> new File(f).getAbsolutePath())
+                .toList();
+        Path filesList = workDir.resolve("shard-" + shardId + ".files");
+        Files.write(filesList, shardFiles);
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(String.valueOf(shardId));
+        command.add(filesList.toString());
+        command.add(additionalFile);
+        command.add(workDir.toString());
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        return new Shard(shardId, process);
+    }
+
+    /**
+     * A running shard process and its protocol streams
+     */
+    private static final class Shard {
+        final int id;
+        final Process process;
+        final BufferedReader out;
+        final Writer in;
+
+        Shard(int id, Process process) {
+            this.id = id;
+            this.process = process;
+            this.out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            this.in = new OutputStreamWriter(process.getOutputStream());
+        }
+
+        void expect(String message) throws IOException {
+            String line = out.readLine();
+            if (!message.equals(line)) {
+                process.destroy();
+                throw new IOException("Shard " + id + " sent " + line + " instead of " + message);
+            }
+        }
+
+        void send(String message) throws IOException {
+            in.write(message + "\n");
+            in.flush();
+        }
+
+        void waitFor() throws IOException {
+            try {
+                if (process.waitFor() != 0) {
+                    throw new IOException("Shard " + id + " exited with code " + process.exitValue());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for shard " + id, e);
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
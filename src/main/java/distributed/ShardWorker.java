@@ -0,0 +1,90 @@
+package distributed;
+
+import database.ConcurrentDb;
+import database.DbInitializer;
+import database.PartialDbCodec;
+import database.SequentialDb;
+import operators.Processor;
+import operators.Reader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Shard process of the distributed mode: reads and processes a part of the article files.
+ * <p>
+ * Protocol with the Coordinator (one line per message): the shard writes its dedup counts and prints COUNTED,
+ * waits for "DEDUP path" on stdin, removes the duplicates listed in that file, processes its articles, writes its
+ * partial db and prints DONE.
+ * <p>
+ * Usage: ShardWorker shardId filesList additionalFile workDir
+ */
+public class ShardWorker {
+    static final String COUNTED = "COUNTED";
+    static final String DEDUP = "DEDUP ";
+    static final String DONE = "DONE";
+
+    private final int shardId;
+    private final List<String> files;
+    private final Path workDir;
+
+    /**
+     * Constructs a ShardWorker
+     *
+     * @param shardId the id of the shard
+     * @param files the article files of the shard
+     * @param workDir the directory shared with the coordinator
+     */
+    public ShardWorker(int shardId, List<String> files, Path workDir) {
+        this.shardId = shardId;
+        this.files = files;
+        this.workDir = workDir;
+    }
+
+    public static void main(String[] args) {
+        try {
+            new DbInitializer().initAuxiliaryData(args[2]);
+            List<String> files = Files.readAllLines(Path.of(args[1]));
+
+            new ShardWorker(Integer.parseInt(args[0]), files, Path.of(args[3])).execute();
+        } catch (IOException e) {
+            System.err.println("Shard " + args[0] + " failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs both phases of the shard
+     *
+     * @throws IOException if a file cannot be read or written, or the coordinator closes the protocol
+     */
+    public void execute() throws IOException {
+        ConcurrentDb mainDb = ConcurrentDb.getInstance();
+        SequentialDb db = new SequentialDb(mainDb.getLanguages(), mainDb.getCategories(), mainDb.getLinkingWords());
+
+        // phase 1: read and count uuids and titles
+        new Reader(files, db).execute();
+        PartialDbCodec.writeCounts(db, Coordinator.countsFile(workDir, shardId));
+        System.out.println(COUNTED);
+        System.out.flush();
+
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in));
+        String line = stdin.readLine();
+        if (line == null || !line.startsWith(DEDUP)) {
+            throw new IOException("Expected the dedup file from the coordinator, got " + line);
+        }
+
+        // phase 2: remove the global duplicates, process and write the partial db
+        PartialDbCodec.DuplicateKeys duplicates = PartialDbCodec.readDuplicateKeys(Path.of(line.substring(DEDUP.length())));
+        new Processor(db, duplicates::isDuplicate).execute();
+
+        PartialDbCodec.writePartial(new PartialDbCodec.Partial(db, mainDb.getArticlesRead(), mainDb.getFileArticleSquares()),
+                Coordinator.partialFile(workDir, shardId));
+        System.out.println(DONE);
+        System.out.flush();
+    }
+}
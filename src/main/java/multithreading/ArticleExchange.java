@@ -0,0 +1,119 @@
+package multithreading;
+
+import articles.NewsArticle;
+import database.SequentialDb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Singleton exchange routing the parsed articles to the threads owning them.
+ * <p>
+ * An article is owned by the thread of hash(uuid) and its title by the thread of hash(title). Every (source,
+ * destination) pair has its own outbox, written only by the source before a barrier and read only by the
+ * destination after it, so no locking is needed: the barrier publishes the outboxes.
+ */
+public class ArticleExchange {
+    private static ArticleExchange instance;
+
+    private int numThreads;
+
+    // outboxes.get(source).get(destination), dropped once drained
+    private List<List<Outbox>> outboxes;
+
+    // title -> occurrences, for the titles owned by each thread
+    private List<Map<String, Integer>> titleCounts;
+
+    /**
+     * The articles and titles a source thread sends to a destination thread
+     */
+    private record Outbox(List<NewsArticle> articles, List<String> titles) {}
+
+    private ArticleExchange() {
+    }
+
+    public static synchronized ArticleExchange getInstance() {
+        if (instance == null) {
+            instance = new ArticleExchange();
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the outboxes for a number of threads
+     *
+     * @param numThreads the number of worker threads
+     */
+    public void init(int numThreads) {
+        this.numThreads = numThreads;
+        outboxes = new ArrayList<>(numThreads);
+        titleCounts = new ArrayList<>(numThreads);
+
+        for (int i = 0; i < numThreads; i++) {
+            List<Outbox> sourceOutboxes = new ArrayList<>(numThreads);
+            for (int j = 0; j < numThreads; j++) {
+                sourceOutboxes.add(new Outbox(new ArrayList<>(), new ArrayList<>()));
+            }
+            outboxes.add(sourceOutboxes);
+            titleCounts.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Returns the thread owning a key
+     */
+    private int owner(String key) {
+        int h = Objects.hashCode(key);
+        return Math.floorMod(h ^ (h >>> 16), numThreads);
+    }
+
+    /**
+     * Sends an article to the owner of its uuid and its title to the owner of the title
+     *
+     * @param source the thread that parsed the article
+     * @param article the parsed article
+     */
+    public void route(int source, NewsArticle article) {
+        List<Outbox> sourceOutboxes = outboxes.get(source);
+        sourceOutboxes.get(owner(article.getUuid())).articles().add(article);
+        sourceOutboxes.get(owner(article.getTitle())).titles().add(article.getTitle());
+    }
+
+    /**
+     * Moves the articles and titles sent to a thread into its partition (after the routing barrier)
+     *
+     * @param destination the owner thread
+     * @param localDb the partial db of the owner
+     */
+    public void drain(int destination, SequentialDb localDb) {
+        Map<String, Integer> counts = titleCounts.get(destination);
+
+        for (int source = 0; source < numThreads; source++) {
+            Outbox outbox = outboxes.get(source).get(destination);
+            for (NewsArticle a : outbox.articles()) {
+                localDb.addArticle(a);
+            }
+            for (String title : outbox.titles()) {
+                counts.merge(title, 1, Integer::sum);
+            }
+
+            outboxes.get(source).set(destination, null);
+        }
+    }
+
+    /**
+     * Checks whether an article has a duplicate uuid or title (after the drain barrier).
+     * Every copy of a uuid lands in the same partition, so the owner's uuid counts are global.
+     *
+     * @param article the article to check
+     * @param ownerDb the partial db of the uuid owner
+     * @return true if the article must be removed
+     */
+    public boolean isDuplicate(NewsArticle article, SequentialDb ownerDb) {
+        return ownerDb.getUuidCount().get(article.getUuid()) > 1
+                || titleCounts.get(owner(article.getTitle())).get(article.getTitle()) > 1;
+    }
+}
@@ -0,0 +1,205 @@
+package multithreading;
+
+import articles.NewsArticle;
+import database.FileSplitter;
+import operators.Reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.Consumer;
+
+/**
+ * Singleton bounded stream of parsed article batches, fed by I/O threads and consumed by the worker threads.
+ * <p>
+ * The producers read their files twice: the first pass feeds the dedup counts, the second the processing. Each
+ * pass ends with one end-of-pass marker per consumer. Producers block when the queue is full, so at most
+ * queueCapacity batches of parsed articles are in flight, whatever the input size.
+ * <p>
+ * If a producer fails, the other producers are stopped and the queue is replaced by a failure marker, which every
+ * consumer passes on and rethrows instead of waiting for an end-of-pass marker that never comes.
+ */
+public class ArticleStream {
+    private static ArticleStream instance;
+
+    // marks the end of a pass; compared by identity
+    private static final List<NewsArticle> END_OF_PASS = new ArrayList<>();
+    // marks the failure of a producer; compared by identity
+    private static final List<NewsArticle> FAILED = new ArrayList<>();
+
+    private static final int PASSES = 2;
+
+    private BlockingQueue<List<NewsArticle>> queue;
+    private int batchSize;
+    private int numConsumers;
+    private Thread[] producers;
+    private volatile Throwable failure;
+
+    private ArticleStream() {
+    }
+
+    public static synchronized ArticleStream getInstance() {
+        if (instance == null) {
+            instance = new ArticleStream();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the I/O threads reading the files
+     *
+     * @param files all files to read
+     * @param chunks the chunks of the split files
+     * @param ioThreads the number of I/O threads
+     * @param numConsumers the number of worker threads consuming the stream
+     * @param queueCapacity the maximum number of batches in the queue
+     * @param batchSize the number of articles per batch
+     */
+    public void start(List<String> files, List<FileSplitter.Chunk> chunks, int ioThreads, int numConsumers, int queueCapacity, int batchSize) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.numConsumers = numConsumers;
+        this.failure = null;
+
+        // the last producer finishing a pass closes it for all consumers
+        CyclicBarrier passBarrier = new CyclicBarrier(ioThreads, this::endPass);
+
+        producers = new Thread[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            WorkPartitioner partitioner = new WorkPartitioner(i, ioThreads);
+            List<String> filesToRead = partitioner.partitionList(files);
+            List<FileSplitter.Chunk> chunksToRead = partitioner.partitionList(chunks);
+            producers[i] = new Thread(() -> produce(filesToRead, chunksToRead, passBarrier), "reader-" + i);
+            producers[i].start();
+        }
+    }
+
+    /**
+     * Reads a partition of files once per pass, in batches
+     */
+    private void produce(List<String> filesToRead, List<FileSplitter.Chunk> chunksToRead, CyclicBarrier passBarrier) {
+        try {
+            for (int pass = 0; pass < PASSES; pass++) {
+                BatchSink sink = new BatchSink();
+
+                // only the first pass counts the articles read
+                new Reader(filesToRead, chunksToRead, sink, pass == 0).execute();
+                sink.flush();
+                passBarrier.await();
+            }
+        } catch (InterruptedException | BrokenBarrierException e) {
+            // stopped by a failing producer, which already reported its failure
+            if (failure == null) {
+                System.err.println("Reader thread stopped: " + e.getMessage());
+            }
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            fail(e, passBarrier);
+        }
+    }
+
+    /**
+     * Stops the other producers and hands the failure to the consumers
+     */
+    private synchronized void fail(Throwable e, CyclicBarrier passBarrier) {
+        // a producer stopped by the first failure may fail too (e.g. interrupted in put)
+        if (failure != null) return;
+
+        failure = e;
+        System.err.println("Reader thread failed: " + e);
+        for (Thread producer : producers) {
+            if (producer != Thread.currentThread()) producer.interrupt();
+        }
+        passBarrier.reset();
+
+        // the batches left are never processed: the consumers only need the marker
+        queue.clear();
+        queue.offer(FAILED);
+    }
+
+    /**
+     * Groups the articles of a producer into batches
+     */
+    private class BatchSink implements Consumer<NewsArticle> {
+        private List<NewsArticle> batch = new ArrayList<>(batchSize);
+
+        @Override
+        public void accept(NewsArticle article) {
+            batch.add(article);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+
+            put(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Sends one end-of-pass marker to every consumer
+     */
+    private void endPass() {
+        for (int i = 0; i < numConsumers; i++) {
+            put(END_OF_PASS);
+        }
+    }
+
+    /**
+     * Puts a batch in the queue, waiting while it is full (backpressure)
+     */
+    private void put(List<NewsArticle> batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing articles", e);
+        }
+    }
+
+    /**
+     * Takes the next batch of the current pass
+     *
+     * @return the batch, or null when the pass is over for the calling consumer
+     * @throws IllegalStateException if a producer failed
+     */
+    public List<NewsArticle> take() {
+        try {
+            List<NewsArticle> batch = queue.take();
+            if (batch == FAILED) {
+                // left for the next consumer
+                queue.offer(FAILED);
+                throw new IllegalStateException("Reading the articles failed", failure);
+            }
+            return batch == END_OF_PASS ? null : batch;
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while waiting for articles");
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the I/O threads to finish
+     *
+     * @throws IllegalStateException if a producer failed
+     */
+    public void join() {
+        for (Thread producer : producers) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Reading the articles failed", failure);
+        }
+    }
+}
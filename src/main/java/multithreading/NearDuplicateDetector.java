@@ -0,0 +1,292 @@
+package multithreading;
+
+import articles.NewsArticle;
+import auxs.Utils;
+import sketches.Hashing;
+import sketches.MinHash;
+
+import java.util.*;
+
+/**
+ * Singleton detector of near-duplicate articles (syndicated copies with edited titles or texts), using MinHash
+ * signatures of the article texts and LSH banding.
+ * <p>
+ * The signature is cut into bands of rows; two articles become a candidate pair when all the rows of one band are
+ * equal, which happens with probability 1 - (1 - s^rows)^bands for a Jaccard similarity s, so no pairwise
+ * comparison is needed. Candidates are verified against the threshold on the full signatures. Every thread
+ * signs its own articles and buckets its own bands; the master joins the verified pairs into clusters and keeps
+ * the article with the smallest uuid of every cluster.
+ */
+public class NearDuplicateDetector {
+    private static NearDuplicateDetector instance;
+
+    private int numThreads;
+    private double threshold;
+    private int bands;
+    private int rows;
+    private MinHash minHash;
+
+    // uuids and signatures of the articles signed by every thread, indexed globally by thread order
+    private List<List<String>> uuids;
+    private List<List<int[]>> signatures;
+    private int[] offsets;
+
+    // verified pairs of global indices found by every thread, as (a << 32 | b)
+    private long[][] pairs;
+
+    private Set<String> nearDuplicates = Set.of();
+
+    private NearDuplicateDetector() {
+    }
+
+    public static synchronized NearDuplicateDetector getInstance() {
+        if (instance == null) {
+            instance = new NearDuplicateDetector();
+        }
+        return instance;
+    }
+
+    /**
+     * Prepares the detector for a number of threads
+     *
+     * @param numThreads the number of worker threads
+     * @param threshold minimum estimated Jaccard similarity of near-duplicate texts
+     * @param bands number of LSH bands
+     * @param rows signature positions per band
+     * @param shingleSize words per shingle
+     */
+    public void init(int numThreads, double threshold, int bands, int rows, int shingleSize) {
+        this.numThreads = numThreads;
+        this.threshold = threshold;
+        this.bands = bands;
+        this.rows = rows;
+        this.minHash = new MinHash(bands * rows, shingleSize, 0x5eed);
+
+        // nothing of a previous run is kept
+        offsets = null;
+        nearDuplicates = Set.of();
+        uuids = new ArrayList<>(numThreads);
+        signatures = new ArrayList<>(numThreads);
+        pairs = new long[numThreads][];
+        for (int i = 0; i < numThreads; i++) {
+            uuids.add(new ArrayList<>());
+            signatures.add(new ArrayList<>());
+        }
+    }
+
+    public boolean isEnabled() {
+        return minHash != null;
+    }
+
+    /**
+     * Signs the texts of the articles of a thread; articles without words are never near-duplicates
+     *
+     * @param threadId the signing thread
+     * @param articles the (exactly deduplicated) articles of the thread
+     */
+    public void sign(int threadId, Collection<NewsArticle> articles) {
+        for (NewsArticle article : articles) {
+            int[] signature = minHash.signature(Utils.textToWordList(article.getText()));
+            if (signature == null) continue;
+
+            uuids.get(threadId).add(article.getUuid());
+            signatures.get(threadId).add(signature);
+        }
+    }
+
+    /**
+     * Buckets the articles by the bands owned by a thread (bands threadId, threadId + numThreads, ...) and verifies
+     * the candidates. Called after every thread has signed its articles.
+     *
+     * @param threadId the thread
+     */
+    public void findPairs(int threadId) {
+        int[] starts = offsets();
+        int total = starts[numThreads];
+        LongList found = new LongList();
+
+        // (32-bit band key << 32 | global index), sorted to bring every bucket together
+        long[] keys = new long[total];
+
+        for (int band = threadId; band < bands; band += numThreads) {
+            for (int t = 0, i = 0; t < numThreads; t++) {
+                for (int[] signature : signatures.get(t)) {
+                    keys[i] = (long) bandKey(signature, band) << 32 | i;
+                    i++;
+                }
+            }
+            Arrays.sort(keys);
+
+            for (int from = 0, to; from < total; from = to) {
+                to = from + 1;
+                while (to < total && keys[to] >>> 32 == keys[from] >>> 32) to++;
+
+                if (to - from > 1) {
+                    verifyBucket(Arrays.copyOfRange(keys, from, to), found);
+                }
+            }
+        }
+        pairs[threadId] = found.toArray();
+    }
+
+    /**
+     * Joins the pairs of all threads into clusters and marks every member but the smallest uuid as a
+     * near-duplicate (master thread, after every thread found its pairs)
+     *
+     * @return the number of near-duplicates
+     */
+    public int resolve() {
+        int[] starts = offsets();
+        UnionFind clusters = new UnionFind(starts[numThreads]);
+        for (long[] threadPairs : pairs) {
+            for (long pair : threadPairs) {
+                clusters.union((int) (pair >>> 32), (int) pair);
+            }
+        }
+
+        // the smallest uuid of every cluster stays
+        Map<Integer, String> keeper = new HashMap<>();
+        Set<String> members = new HashSet<>();
+        for (long[] threadPairs : pairs) {
+            for (long pair : threadPairs) {
+                for (int index : new int[] {(int) (pair >>> 32), (int) pair}) {
+                    String uuid = uuid(index);
+                    members.add(uuid);
+                    keeper.merge(clusters.find(index), uuid, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+                }
+            }
+        }
+        members.removeAll(keeper.values());
+        nearDuplicates = members;
+
+        // the signatures are no longer needed
+        for (int t = 0; t < numThreads; t++) {
+            signatures.set(t, List.of());
+        }
+        return nearDuplicates.size();
+    }
+
+    /**
+     * Tells whether an article was found to be a near-duplicate of a kept article (after resolve)
+     *
+     * @param article the article
+     * @return true if the article must be removed
+     */
+    public boolean isNearDuplicate(NewsArticle article) {
+        return nearDuplicates.contains(article.getUuid());
+    }
+
+    /**
+     * Verifies the members of a bucket, in uuid order, against the members not similar to any earlier one: a
+     * bucket of m copies costs m comparisons instead of m^2, and the pairs do not depend on the thread split
+     */
+    private void verifyBucket(long[] bucket, LongList found) {
+        Integer[] members = new Integer[bucket.length];
+        for (int i = 0; i < bucket.length; i++) {
+            members[i] = (int) bucket[i];
+        }
+        Arrays.sort(members, Comparator.comparing(this::uuid));
+
+        List<Integer> representatives = new ArrayList<>();
+        for (int member : members) {
+            boolean matched = false;
+
+            for (int representative : representatives) {
+                if (MinHash.similarity(signature(representative), signature(member)) >= threshold) {
+                    found.add((long) representative << 32 | member);
+                    matched = true;
+                    break;
+                }
+            }
+
+            if (!matched) {
+                representatives.add(member);
+            }
+        }
+    }
+
+    private int bandKey(int[] signature, int band) {
+        long h = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            h = Hashing.mix64(h ^ signature[r]);
+        }
+        return (int) h;
+    }
+
+    private synchronized int[] offsets() {
+        if (offsets == null) {
+            offsets = new int[numThreads + 1];
+            for (int t = 0; t < numThreads; t++) {
+                offsets[t + 1] = offsets[t] + uuids.get(t).size();
+            }
+        }
+        return offsets;
+    }
+
+    private int thread(int index) {
+        int t = Arrays.binarySearch(offsets, index);
+        if (t < 0) return -t - 2;
+
+        // skip the threads that signed nothing
+        while (offsets[t + 1] == index) t++;
+        return t;
+    }
+
+    private String uuid(int index) {
+        int t = thread(index);
+        return uuids.get(t).get(index - offsets[t]);
+    }
+
+    private int[] signature(int index) {
+        int t = thread(index);
+        return signatures.get(t).get(index - offsets[t]);
+    }
+
+    /**
+     * Growable list of primitive longs
+     */
+    private static class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Union-find over global article indices, with path halving
+     */
+    private static class UnionFind {
+        private final int[] parent;
+
+        UnionFind(int size) {
+            parent = new int[size];
+            for (int i = 0; i < size; i++) {
+                parent[i] = i;
+            }
+        }
+
+        int find(int x) {
+            while (parent[x] != x) {
+                parent[x] = parent[parent[x]];
+                x = parent[x];
+            }
+            return x;
+        }
+
+        void union(int a, int b) {
+            int ra = find(a), rb = find(b);
+            if (ra != rb) {
+                parent[Math.max(ra, rb)] = Math.min(ra, rb);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package multithreading;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events of the pipeline, recorded with -XX:StartFlightRecording (or jcmd JFR.start) and
+ * shown under Aggregator in JDK Mission Control, next to the GC, lock and I/O events of the same threads.
+ * <p>
+ * An event is created and begun around the work and its fields are only filled when shouldCommit() is true, so
+ * with no recording running the JIT removes the event and the cost is a branch.
+ */
+public final class PipelineEvents {
+    private PipelineEvents() {
+        // holder of the event types
+    }
+
+    /**
+     * Returns the id of the worker thread running the caller
+     *
+     * @return the worker id, or -1 outside the worker threads (I/O threads of the stream mode, master setup)
+     */
+    public static int currentWorker() {
+        return Thread.currentThread() instanceof WorkerThread worker ? worker.getWorkerId() : -1;
+    }
+
+    @Name("aggregator.Stage")
+    @Label("Pipeline Stage")
+    @Category({"Aggregator", "Pipeline"})
+    @Description("A stage of the pipeline of a worker thread; barrier stages measure wait time")
+    @StackTrace(false)
+    public static class Stage extends Event {
+        @Label("Worker")
+        public int worker;
+
+        @Label("Stage")
+        public String stage;
+
+        @Label("Barrier")
+        public boolean barrier;
+    }
+
+    @Name("aggregator.FileRead")
+    @Label("Article File Read")
+    @Category({"Aggregator", "I/O"})
+    @Description("Reading and parsing one article file or chunk of a split file")
+    @StackTrace(false)
+    public static class FileRead extends Event {
+        @Label("Worker")
+        public int worker;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Offset")
+        @Description("Start of the chunk in the file, 0 for a whole file")
+        @DataAmount
+        public long offset;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Articles")
+        public int articles;
+    }
+
+    @Name("aggregator.Merge")
+    @Label("Merge Operation")
+    @Category({"Aggregator", "Pipeline"})
+    @Description("One merge operation of the partial databases")
+    @StackTrace(false)
+    public static class Merge extends Event {
+        @Label("Worker")
+        public int worker;
+
+        @Label("Operation")
+        public String operation;
+    }
+
+    @Name("aggregator.FileWrite")
+    @Label("Output File Write")
+    @Category({"Aggregator", "I/O"})
+    @Description("Writing one output file")
+    @StackTrace(false)
+    public static class FileWrite extends Event {
+        @Label("Worker")
+        public int worker;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Lines")
+        public int lines;
+    }
+}
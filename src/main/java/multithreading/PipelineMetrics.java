@@ -0,0 +1,214 @@
+package multithreading;
+
+import auxs.Options;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Singleton live metrics of a run (enabled with aggregator.jmx), exposed as the MBean aggregator:type=PipelineMetrics
+ * so progress and stalls can be watched with JConsole, VisualVM or jcmd while the run is going.
+ * <p>
+ * The counters are LongAdders: every updating thread lands on its own cell under contention and the cells are only
+ * summed when an attribute is read, so counting costs an uncontended add. The stage of every worker thread is a
+ * single slot written by that thread; the threads waiting at a barrier are counted from these slots on read.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+    private static final String OBJECT_NAME = "aggregator:type=PipelineMetrics";
+    private static final String BARRIER_PREFIX = "barrier after ";
+
+    private final boolean enabled;
+
+    private final LongAdder filesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder articlesParsed = new LongAdder();
+    private final LongAdder articlesProcessed = new LongAdder();
+    private final LongAdder mergeTasksDone = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final Rate parsedRate = new Rate();
+    private final Rate processedRate = new Rate();
+
+    private AtomicReferenceArray<String> threadStages = new AtomicReferenceArray<>(0);
+    private long runStart = System.nanoTime();
+
+    private PipelineMetrics() {
+        enabled = Options.JMX;
+    }
+
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Prepares one stage slot per thread, clears the counters (the auto plan reads and processes its probe files
+     * before) and registers the MBean
+     *
+     * @param numThreads the number of worker threads
+     */
+    public void init(int numThreads) {
+        threadStages = new AtomicReferenceArray<>(numThreads);
+        for (LongAdder counter : List.of(filesRead, bytesRead, articlesParsed, articlesProcessed, mergeTasksDone,
+                bytesWritten)) {
+            counter.reset();
+        }
+        runStart = System.nanoTime();
+        parsedRate.reset(runStart, 0);
+        processedRate.reset(runStart, 0);
+
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering the pipeline metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counts a file read and parsed
+     *
+     * @param bytes the size of the file
+     * @param articles the number of articles parsed from it
+     */
+    public void fileRead(long bytes, int articles) {
+        if (!enabled) return;
+
+        filesRead.increment();
+        bytesRead.add(bytes);
+        articlesParsed.add(articles);
+    }
+
+    public void articleProcessed() {
+        if (enabled) articlesProcessed.increment();
+    }
+
+    public void mergeTaskDone() {
+        if (enabled) mergeTasksDone.increment();
+    }
+
+    public void bytesWritten(long bytes) {
+        if (enabled) bytesWritten.add(bytes);
+    }
+
+    /**
+     * Publishes the stage a worker thread starts (called by that thread)
+     *
+     * @param threadId the thread id
+     * @param stage the stage name, or "barrier after X" for a barrier following stage X
+     */
+    void enterStage(int threadId, String stage) {
+        if (enabled) threadStages.set(threadId, stage);
+    }
+
+    static String barrierAfter(String stage) {
+        return BARRIER_PREFIX + stage;
+    }
+
+    @Override
+    public long getFilesRead() {
+        return filesRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getArticlesParsed() {
+        return articlesParsed.sum();
+    }
+
+    @Override
+    public long getArticlesProcessed() {
+        return articlesProcessed.sum();
+    }
+
+    @Override
+    public long getMergeTasksDone() {
+        return mergeTasksDone.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public double getArticlesParsedPerSecond() {
+        return parsedRate.update(System.nanoTime(), articlesParsed.sum());
+    }
+
+    @Override
+    public double getArticlesProcessedPerSecond() {
+        return processedRate.update(System.nanoTime(), articlesProcessed.sum());
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+    }
+
+    @Override
+    public String[] getThreadStages() {
+        List<String> stages = new ArrayList<>();
+        for (int i = 0; i < threadStages.length(); i++) {
+            String stage = threadStages.get(i);
+            stages.add(i + ": " + (stage == null ? "starting" : stage));
+        }
+        return stages.toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getBarrierWaiters() {
+        Map<String, Integer> waiters = new TreeMap<>();
+        for (int i = 0; i < threadStages.length(); i++) {
+            String stage = threadStages.get(i);
+            if (stage != null && stage.startsWith(BARRIER_PREFIX)) {
+                waiters.merge(stage, 1, Integer::sum);
+            }
+        }
+        return waiters.entrySet().stream().map(e -> e.getKey() + ": " + e.getValue()).toArray(String[]::new);
+    }
+
+    /**
+     * Rate of a counter over the last interval of at least one second, so every poll sees a recent rate
+     */
+    private static class Rate {
+        private static final long MIN_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+        private long sampleNanos;
+        private long sampleValue;
+        private double perSecond;
+
+        synchronized void reset(long now, long value) {
+            sampleNanos = now;
+            sampleValue = value;
+            perSecond = 0;
+        }
+
+        synchronized double update(long now, long value) {
+            if (now - sampleNanos >= MIN_INTERVAL) {
+                perSecond = (value - sampleValue) * 1e9 / (now - sampleNanos);
+                sampleNanos = now;
+                sampleValue = value;
+            }
+            return perSecond;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package multithreading;
+
+/**
+ * Management interface of the live pipeline metrics, registered as aggregator:type=PipelineMetrics
+ */
+public interface PipelineMetricsMBean {
+    long getFilesRead();
+
+    long getBytesRead();
+
+    long getArticlesParsed();
+
+    long getArticlesProcessed();
+
+    long getMergeTasksDone();
+
+    long getBytesWritten();
+
+    /**
+     * @return articles parsed per second over the last sampling interval (at least one second)
+     */
+    double getArticlesParsedPerSecond();
+
+    /**
+     * @return articles processed per second over the last sampling interval (at least one second)
+     */
+    double getArticlesProcessedPerSecond();
+
+    long getElapsedMillis();
+
+    /**
+     * @return the stage every worker thread is executing, as "thread: stage"
+     */
+    String[] getThreadStages();
+
+    /**
+     * @return the number of threads waiting at every barrier, as "barrier after stage: threads"
+     */
+    String[] getBarrierWaiters();
+}
@@ -0,0 +1,330 @@
+package multithreading;
+
+import auxs.Constants;
+import auxs.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * Singleton collecting per-thread, per-stage wall times of the worker pipelines (enabled with aggregator.profile).
+ * With aggregator.profile.memory it also records the bytes allocated by every stage, the heap occupancy after it,
+ * the GC time spent during it and retained-size estimates of the partial databases.
+ * Each thread only appends to its own sample lists, so recording needs no synchronization; the report is built
+ * after all workers have been joined.
+ */
+public class PipelineProfiler {
+    private static final PipelineProfiler INSTANCE = new PipelineProfiler();
+
+    private final boolean enabled;
+    private final boolean memoryEnabled;
+    private List<List<StageSample>> samples;
+    private long runStart;
+
+    // memory mode: per-thread counters at the start of the current stage, and samples
+    private com.sun.management.ThreadMXBean threadBean;
+    private long[] allocatedAtStart;
+    private long[] gcMillisAtStart;
+    private List<List<MemorySample>> memorySamples;
+    private List<List<RetainedSizes>> retainedSizes;
+
+    /**
+     * Timing of one stage executed by one thread
+     *
+     * @param thread the thread id
+     * @param stage the stage name
+     * @param barrier whether the stage is a synchronization barrier (its duration is wait time)
+     * @param startNanos start time, relative to the start of the run
+     * @param durationNanos wall time spent in the stage
+     */
+    public record StageSample(int thread, String stage, boolean barrier, long startNanos, long durationNanos) {}
+
+    /**
+     * Wait times of all threads at one barrier
+     *
+     * @param index the barrier index (in pipeline order)
+     * @param after the work that precedes the barrier
+     * @param waitNanos wait time of every thread
+     * @param maxWaitNanos longest wait
+     * @param meanWaitNanos average wait, a measure of the imbalance of the preceding phase
+     */
+    public record BarrierProfile(int index, String after, long[] waitNanos, long maxWaitNanos, long meanWaitNanos) {}
+
+    /**
+     * Slowest thread of a phase (the work between two barriers)
+     *
+     * @param phase the phase index
+     * @param stages the stages executed by the slowest thread
+     * @param thread the slowest thread
+     * @param durationNanos its work time, which bounds the phase
+     */
+    public record PhaseProfile(int phase, String stages, int thread, long durationNanos) {}
+
+    /**
+     * Memory usage of one stage executed by one thread
+     *
+     * @param thread the thread id
+     * @param stage the stage name
+     * @param allocatedBytes bytes allocated by this thread during the stage
+     * @param heapUsedAfterBytes heap occupancy when the stage ended (all threads)
+     * @param gcMillis collection time of all collectors during the stage (pauses hit every thread)
+     */
+    public record MemorySample(int thread, String stage, long allocatedBytes, long heapUsedAfterBytes, long gcMillis) {}
+
+    /**
+     * Estimated retained sizes of the structures of one partial database
+     *
+     * @param thread the thread owning the partial database
+     * @param point the pipeline point of the estimate
+     * @param bytes structure name -> estimated bytes
+     */
+    public record RetainedSizes(int thread, String point, Map<String, Long> bytes) {}
+
+    /**
+     * Memory part of the run profile
+     *
+     * @param heapPeakBytes sum of the peak usages of the heap pools (an upper bound of the high-water mark)
+     * @param stages per-stage samples
+     * @param retained retained-size estimates
+     */
+    public record MemoryProfile(long heapPeakBytes, List<MemorySample> stages, List<RetainedSizes> retained) {}
+
+    /**
+     * Machine-readable profile of a whole run
+     */
+    public record RunProfile(int threads, long wallNanos, long criticalPathNanos, List<PhaseProfile> criticalPath,
+                             List<BarrierProfile> barriers, List<StageSample> stages, MemoryProfile memory) {}
+
+    private PipelineProfiler() {
+        enabled = Options.PROFILE;
+        memoryEnabled = Options.PROFILE_MEMORY;
+    }
+
+    public static PipelineProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isMemoryEnabled() {
+        return memoryEnabled;
+    }
+
+    /**
+     * Prepares one sample list per thread and marks the start of the run
+     *
+     * @param numThreads the number of worker threads
+     */
+    public void init(int numThreads) {
+        samples = new ArrayList<>();
+        memorySamples = new ArrayList<>();
+        retainedSizes = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            samples.add(new ArrayList<>());
+            memorySamples.add(new ArrayList<>());
+            retainedSizes.add(new ArrayList<>());
+        }
+
+        if (memoryEnabled) {
+            threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+            allocatedAtStart = new long[numThreads];
+            gcMillisAtStart = new long[numThreads];
+
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+            }
+        }
+        runStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the start of a stage for the memory counters (called by the thread that executes it)
+     *
+     * @param threadId the thread id
+     */
+    void beginStage(int threadId) {
+        if (!memoryEnabled) return;
+
+        allocatedAtStart[threadId] = threadBean.getCurrentThreadAllocatedBytes();
+        gcMillisAtStart[threadId] = gcMillis();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(gc.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Records the estimated retained sizes of a partial database (called by the thread owning it)
+     *
+     * @param threadId the thread id
+     * @param point the pipeline point of the estimate
+     * @param bytes structure name -> estimated bytes
+     */
+    public void recordRetainedSizes(int threadId, String point, Map<String, Long> bytes) {
+        retainedSizes.get(threadId).add(new RetainedSizes(threadId, point, bytes));
+    }
+
+    /**
+     * Records the execution of a stage (called by the thread that executed it)
+     *
+     * @param threadId the thread id
+     * @param stage the stage name
+     * @param barrier whether the stage is a synchronization barrier
+     * @param start start timestamp (System.nanoTime)
+     * @param end end timestamp (System.nanoTime)
+     */
+    void record(int threadId, String stage, boolean barrier, long start, long end) {
+        samples.get(threadId).add(new StageSample(threadId, stage, barrier, start - runStart, end - start));
+
+        if (memoryEnabled) {
+            long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedAtStart[threadId];
+            long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            memorySamples.get(threadId).add(new MemorySample(threadId, stage, allocated, heapUsed,
+                    gcMillis() - gcMillisAtStart[threadId]));
+        }
+    }
+
+    /**
+     * Builds the run profile; phases are delimited by barriers, the slowest thread of every phase is on the
+     * critical path
+     *
+     * @return the run profile
+     */
+    public RunProfile buildProfile() {
+        int numThreads = samples.size();
+        int numBarriers = samples.stream()
+                .mapToInt(list -> (int) list.stream().filter(StageSample::barrier).count())
+                .max().orElse(0);
+
+        long[][] work = new long[numBarriers + 1][numThreads];
+        long[][] waits = new long[numBarriers][numThreads];
+        List<List<Set<String>>> names = new ArrayList<>();
+        for (int phase = 0; phase <= numBarriers; phase++) {
+            List<Set<String>> phaseNames = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                phaseNames.add(new LinkedHashSet<>());
+            }
+            names.add(phaseNames);
+        }
+
+        long wall = 0;
+        List<StageSample> all = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int phase = 0;
+            for (StageSample sample : samples.get(t)) {
+                if (sample.barrier()) {
+                    waits[phase++][t] = sample.durationNanos();
+                } else {
+                    work[phase][t] += sample.durationNanos();
+                    names.get(phase).get(t).add(sample.stage());
+                }
+                wall = Math.max(wall, sample.startNanos() + sample.durationNanos());
+            }
+            all.addAll(samples.get(t));
+        }
+        all.sort(Comparator.comparingLong(StageSample::startNanos));
+
+        List<PhaseProfile> criticalPath = new ArrayList<>();
+        long criticalNanos = 0;
+        for (int phase = 0; phase <= numBarriers; phase++) {
+            int slowest = 0;
+            for (int t = 1; t < numThreads; t++) {
+                if (work[phase][t] > work[phase][slowest]) slowest = t;
+            }
+            String stages = names.get(phase).get(slowest).isEmpty() ? "-" : String.join("+", names.get(phase).get(slowest));
+            criticalPath.add(new PhaseProfile(phase, stages, slowest, work[phase][slowest]));
+            criticalNanos += work[phase][slowest];
+        }
+
+        List<BarrierProfile> barriers = new ArrayList<>();
+        for (int b = 0; b < numBarriers; b++) {
+            long max = Arrays.stream(waits[b]).max().orElse(0);
+            long mean = (long) Arrays.stream(waits[b]).average().orElse(0);
+            barriers.add(new BarrierProfile(b, criticalPath.get(b).stages(), waits[b], max, mean));
+        }
+
+        return new RunProfile(numThreads, wall, criticalNanos, criticalPath, barriers, all,
+                memoryEnabled ? buildMemoryProfile() : null);
+    }
+
+    private MemoryProfile buildMemoryProfile() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+
+        List<MemorySample> stages = new ArrayList<>();
+        memorySamples.forEach(stages::addAll);
+        List<RetainedSizes> retained = new ArrayList<>();
+        retainedSizes.forEach(retained::addAll);
+        return new MemoryProfile(peak, stages, retained);
+    }
+
+    /**
+     * Writes the JSON run profile and prints the critical-path summary
+     */
+    public void writeReport() {
+        RunProfile profile = buildProfile();
+
+        try {
+            Constants.MAPPER.writerWithDefaultPrettyPrinter().writeValue(new File(Constants.PROFILE_FILE), profile);
+        } catch (IOException e) {
+            System.err.println("Error writing run profile: " + e.getMessage());
+        }
+
+        System.out.printf("Critical path: %.1f ms of %.1f ms wall time%n",
+                profile.criticalPathNanos() / 1e6, profile.wallNanos() / 1e6);
+        for (PhaseProfile phase : profile.criticalPath()) {
+            System.out.printf("  %-24s thread %-3d %10.1f ms", phase.stages(), phase.thread(), phase.durationNanos() / 1e6);
+            if (phase.phase() < profile.barriers().size()) {
+                BarrierProfile barrier = profile.barriers().get(phase.phase());
+                System.out.printf("   barrier wait max %.1f ms, mean %.1f ms",
+                        barrier.maxWaitNanos() / 1e6, barrier.meanWaitNanos() / 1e6);
+            }
+            System.out.println();
+        }
+
+        if (profile.memory() != null) {
+            printMemorySummary(profile.memory());
+        }
+    }
+
+    /**
+     * Prints allocations per stage (summed over threads) and retained sizes per structure (summed over partial dbs)
+     *
+     * @param memory the memory profile
+     */
+    private void printMemorySummary(MemoryProfile memory) {
+        System.out.printf("Heap high-water: %.1f MB%n", memory.heapPeakBytes() / 1e6);
+
+        Map<String, long[]> perStage = new LinkedHashMap<>();
+        for (MemorySample sample : memory.stages()) {
+            long[] totals = perStage.computeIfAbsent(sample.stage(), s -> new long[3]);
+            totals[0] += sample.allocatedBytes();
+            totals[1] = Math.max(totals[1], sample.heapUsedAfterBytes());
+            totals[2] = Math.max(totals[2], sample.gcMillis());
+        }
+        perStage.forEach((stage, totals) -> System.out.printf(
+                "  %-16s allocated %10.1f MB   heap after <= %8.1f MB   gc %6d ms%n",
+                stage, totals[0] / 1e6, totals[1] / 1e6, totals[2]));
+
+        Map<String, Map<String, Long>> perPoint = new LinkedHashMap<>();
+        for (RetainedSizes sizes : memory.retained()) {
+            Map<String, Long> totals = perPoint.computeIfAbsent(sizes.point(), p -> new LinkedHashMap<>());
+            sizes.bytes().forEach((structure, bytes) -> totals.merge(structure, bytes, Long::sum));
+        }
+        perPoint.forEach((point, totals) -> {
+            System.out.println("  retained " + point + ":");
+            totals.forEach((structure, bytes) -> System.out.printf("    %-20s %10.1f MB%n", structure, bytes / 1e6));
+        });
+    }
+}
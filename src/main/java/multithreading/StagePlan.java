@@ -0,0 +1,108 @@
+package multithreading;
+
+import database.ArticleArchive;
+import database.ConcurrentDb;
+import database.FileSplitter;
+import database.SequentialDb;
+import operators.Processor;
+import operators.Reader;
+
+import java.util.List;
+
+/**
+ * Parallelism of the pipeline stages: the threads that read and process, and how many of them write.
+ * The merge stage uses at most one thread per merge operation.
+ *
+ * @param threads the number of worker threads (read, dedup and process stages)
+ * @param writeThreads the number of threads writing the output files
+ */
+public record StagePlan(int threads, int writeThreads) {
+    // work below which an extra thread costs more (start, barrier, merge fan-in) than it saves
+    private static final double MIN_WORK_MS = 20;
+    // write time relative to read + process time, as measured by the run profiles of generated corpora
+    private static final double WRITE_TO_INGEST_RATIO = 0.1;
+    // files read and processed to measure the throughput
+    private static final int PROBE_FILES = 4;
+
+    /**
+     * Uses the same number of threads for every stage
+     *
+     * @param threads the number of threads
+     * @return the plan
+     */
+    public static StagePlan fixed(int threads) {
+        return new StagePlan(threads, threads);
+    }
+
+    /**
+     * Sizes the stages from the cores, the number and total size of the files and chunks and the read throughput
+     * measured on the first files
+     *
+     * @param files all article files read whole
+     * @param chunks the chunks of the split files
+     * @return the plan
+     */
+    public static StagePlan auto(List<String> files, List<FileSplitter.Chunk> chunks) {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long totalBytes = 0;
+        for (String file : files) {
+            totalBytes += ArticleArchive.sizeOf(file);
+        }
+        for (FileSplitter.Chunk chunk : chunks) {
+            totalBytes += chunk.length();
+        }
+
+        // a split file is probed on its first chunk
+        List<String> probe = files.subList(0, Math.min(PROBE_FILES, files.size()));
+        List<FileSplitter.Chunk> probeChunks = probe.isEmpty() ? chunks.subList(0, Math.min(1, chunks.size())) : List.of();
+        long probeBytes = 0;
+        for (String file : probe) {
+            probeBytes += ArticleArchive.sizeOf(file);
+        }
+        for (FileSplitter.Chunk chunk : probeChunks) {
+            probeBytes += chunk.length();
+        }
+
+        // the first round warms up the parser and the JIT, the second one is timed
+        probeIngest(probe, probeChunks);
+        double probeMs = Math.max(probeIngest(probe, probeChunks), 0.001);
+        double bytesPerMs = probeBytes > 0 ? probeBytes / probeMs : 1;
+
+        double ingestMs = totalBytes / bytesPerMs;
+        int units = files.size() + chunks.size();
+        int threads = Math.clamp(Math.round(ingestMs / MIN_WORK_MS), 1, Math.max(1, Math.min(cores, units)));
+        int writeThreads = Math.clamp(Math.round(ingestMs * WRITE_TO_INGEST_RATIO / MIN_WORK_MS), 1, threads);
+
+        System.out.printf("Auto plan: %d read/process threads, %d write threads (%d files, %d chunks, %.1f MB, %.1f MB/s per thread)%n",
+                threads, writeThreads, files.size(), chunks.size(), totalBytes / 1e6, bytesPerMs / 1e3);
+        return new StagePlan(threads, writeThreads);
+    }
+
+    /**
+     * Reads and processes files into a throwaway db (the articles are not counted)
+     *
+     * @param files the files to ingest
+     * @param chunks the chunks to ingest
+     * @return the elapsed time in ms
+     */
+    private static double probeIngest(List<String> files, List<FileSplitter.Chunk> chunks) {
+        ConcurrentDb mainDb = ConcurrentDb.getInstance();
+        SequentialDb db = new SequentialDb(mainDb.getLanguages(), mainDb.getCategories(), mainDb.getLinkingWords());
+
+        long start = System.nanoTime();
+        new Reader(files, chunks, db::addArticle, false).execute();
+        new Processor(db, article -> false).execute();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * Returns the number of threads of the merge stage
+     *
+     * @param operations the number of merge operations
+     * @return at most one thread per operation
+     */
+    public int mergeThreads(int operations) {
+        return Math.max(1, Math.min(threads, operations));
+    }
+}
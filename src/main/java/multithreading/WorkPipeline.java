@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Phaser;
 
 /**
  * A pipelinefor executing a sequence of stages in order
@@ -14,11 +15,17 @@ public class WorkPipeline {
     // The ordered list of stages to execute in the pipeline
     private final List<PipelineStage> stages;
 
+    // id of the thread running the pipeline (used for profiling)
+    private final int threadId;
+
     /**
      * Constructs a new empty WorkPipeline
+     *
+     * @param threadId the id of the thread that executes the pipeline
      */
-    public WorkPipeline() {
+    public WorkPipeline(int threadId) {
         this.stages = new ArrayList<>();
+        this.threadId = threadId;
     }
     /**
      * Adds a stage to the end of the pipeline
@@ -33,9 +40,39 @@ public class WorkPipeline {
      * Executes all stages in the pipeline sequentially
      */
     public void execute() {
+        PipelineProfiler profiler = PipelineProfiler.getInstance();
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        String previous = "build-pipeline";
+
         for (PipelineStage stage : stages) {
-            stage.execute();
+            // barriers are published with the stage they wait on, so stalls show which phase is slow
+            if (stage instanceof SynchronizationStage) {
+                metrics.enterStage(threadId, PipelineMetrics.barrierAfter(previous));
+            } else {
+                metrics.enterStage(threadId, stage.getName());
+                previous = stage.getName();
+            }
+
+            PipelineEvents.Stage event = new PipelineEvents.Stage();
+            event.begin();
+
+            if (!profiler.isEnabled()) {
+                stage.execute();
+            } else {
+                profiler.beginStage(threadId);
+                long start = System.nanoTime();
+                stage.execute();
+                profiler.record(threadId, stage.getName(), stage instanceof SynchronizationStage, start, System.nanoTime());
+            }
+
+            if (event.shouldCommit()) {
+                event.worker = threadId;
+                event.stage = stage.getName();
+                event.barrier = stage instanceof SynchronizationStage;
+                event.commit();
+            }
         }
+        metrics.enterStage(threadId, "done");
     }
 
     /**
@@ -46,13 +83,24 @@ public class WorkPipeline {
          * Executes this pipeline stage
          */
         void execute();
+
+        /**
+         * Returns the name of the stage, as shown in run profiles
+         *
+         * @return the stage name
+         */
+        String getName();
     }
 
     /**
-     * A pipeline stage that synchronizes multiple threads using a CyclicBarrier
+     * A pipeline stage that synchronizes multiple threads using a CyclicBarrier or a Phaser
      */
     public static class SynchronizationStage implements PipelineStage {
-        private final CyclicBarrier barrier;
+        public static final String BARRIER_NAME = "barrier";
+        public static final String RELEASE_NAME = "release";
+
+        private final String name;
+        private final Runnable await;
 
         /**
          * Constructs a SynchronizationStage with the given barrier.
@@ -60,7 +108,38 @@ public class WorkPipeline {
          * @param barrier the CyclicBarrier to use for synchronization
          */
         public SynchronizationStage(CyclicBarrier barrier) {
-            this.barrier = barrier;
+            this(BARRIER_NAME, () -> {
+                try {
+                    barrier.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    throw new RuntimeException("Synchronization failed", e);
+                }
+            });
+        }
+
+        /**
+         * Constructs a SynchronizationStage waiting for the parties registered to a phaser
+         *
+         * @param phaser the Phaser to use for synchronization
+         */
+        public SynchronizationStage(Phaser phaser) {
+            this(BARRIER_NAME, phaser::arriveAndAwaitAdvance);
+        }
+
+        private SynchronizationStage(String name, Runnable await) {
+            this.name = name;
+            this.await = await;
+        }
+
+        /**
+         * Creates a stage that arrives at the current phase without waiting and leaves the phaser, for a thread
+         * with no work left
+         *
+         * @param phaser the Phaser the thread is registered to
+         * @return the release stage
+         */
+        public static SynchronizationStage release(Phaser phaser) {
+            return new SynchronizationStage(RELEASE_NAME, phaser::arriveAndDeregister);
         }
 
         /**
@@ -70,11 +149,12 @@ public class WorkPipeline {
          */
         @Override
         public void execute() {
-            try {
-                barrier.await();
-            } catch (InterruptedException | BrokenBarrierException e) {
-                throw new RuntimeException("Synchronization failed", e);
-            }
+            await.run();
+        }
+
+        @Override
+        public String getName() {
+            return name;
         }
     }
 
@@ -82,14 +162,17 @@ public class WorkPipeline {
      * A pipeline stage that executes a custom action defined by a Runnable
      */
     public static class ActionStage implements PipelineStage {
+        private final String name;
         private final Runnable action;
 
         /**
          * Constructs an ActionStage with the given runnable action
          *
+         * @param name the name of the stage
          * @param action the action to execute in this stage
          */
-        public ActionStage(Runnable action) {
+        public ActionStage(String name, Runnable action) {
+            this.name = name;
             this.action = action;
         }
 
@@ -100,20 +183,28 @@ public class WorkPipeline {
         public void execute() {
             action.run();
         }
+
+        @Override
+        public String getName() {
+            return name;
+        }
     }
 
     /**
      * A pipeline stage that executes a specified Operator
      */
     public static class OperatorStage implements PipelineStage {
+        private final String name;
         private final Operator operator;
 
         /**
          * Constructs an OperatorStage with the given operator
          *
+         * @param name the name of the stage
          * @param operator the operator to execute in this stage
          */
-        public OperatorStage(Operator operator) {
+        public OperatorStage(String name, Operator operator) {
+            this.name = name;
             this.operator = operator;
         }
 
@@ -124,6 +215,11 @@ public class WorkPipeline {
         public void execute() {
             operator.execute();
         }
+
+        @Override
+        public String getName() {
+            return name;
+        }
     }
 
 }
@@ -1,12 +1,20 @@
 package multithreading;
 
 import auxs.Constants;
+import auxs.Options;
+import articles.NewsArticle;
 import operators.*;
 import database.ConcurrentDb;
+import database.FileSplitter;
+import database.MemoryEstimator;
 import database.SequentialDb;
+import database.SketchDb;
+import database.SpillStore;
 
 import java.util.List;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Phaser;
+import java.util.function.Consumer;
 
 /**
  * Represents a worker thread that processes news articles in parallel
@@ -22,8 +30,12 @@ public class WorkerThread extends Thread implements Runnable {
     // partitioner to divide work among threads from shared lists
     private final WorkPartitioner partitioner;
 
-    // synchronization barrier
+    // synchronization barrier (fixed plan) or phaser (auto plan, threads leave once their work is done)
     private final CyclicBarrier syncBarrier;
+    private final Phaser phaser;
+
+    // parallelism of the merge and write stages
+    private final StagePlan plan;
 
     // local sequential db for this thread
     private final SequentialDb localDb;
@@ -36,14 +48,37 @@ public class WorkerThread extends Thread implements Runnable {
      * @param barrier the cyclic barrier for synchronization
      */
     public WorkerThread(List<String> allFilesToRead, int threadId, int numThreads, CyclicBarrier barrier, SequentialDb localDb) {
+        this(allFilesToRead, threadId, StagePlan.fixed(numThreads), barrier, null, localDb);
+    }
+
+    /**
+     * Constructs a WorkerThread following a stage plan; threads with no merge or write work leave the phaser
+     * instead of waiting at the remaining barriers.
+     * @param allFilesToRead list of all files to read from
+     * @param threadId the ID of this thread
+     * @param plan the parallelism of every stage
+     * @param phaser the phaser for synchronization, with one party per thread
+     */
+    public WorkerThread(List<String> allFilesToRead, int threadId, StagePlan plan, Phaser phaser, SequentialDb localDb) {
+        this(allFilesToRead, threadId, plan, null, phaser, localDb);
+    }
+
+    private WorkerThread(List<String> allFilesToRead, int threadId, StagePlan plan, CyclicBarrier barrier,
+                         Phaser phaser, SequentialDb localDb) {
         this.threadId = threadId;
         this.allFiles = allFilesToRead;
-        this.partitioner = new WorkPartitioner(threadId, numThreads);
+        this.partitioner = new WorkPartitioner(threadId, plan.threads());
         this.syncBarrier = barrier;
-        this.numThreads = numThreads;
+        this.phaser = phaser;
+        this.plan = plan;
+        this.numThreads = plan.threads();
         this.localDb = localDb;
     }
 
+    public int getWorkerId() {
+        return threadId;
+    }
+
     /**
      * Checks if this is the master thread
      *
@@ -58,7 +93,18 @@ public class WorkerThread extends Thread implements Runnable {
      */
     @Override
     public void run() {
+        PipelineProfiler profiler = PipelineProfiler.getInstance();
+        if (profiler.isEnabled()) {
+            profiler.beginStage(threadId);
+        }
+
+        long start = System.nanoTime();
         WorkPipeline pipeline = buildPipeline();
+
+        if (profiler.isEnabled()) {
+            profiler.record(threadId, "build-pipeline", false, start, System.nanoTime());
+        }
+
         pipeline.execute();
     }
 
@@ -68,10 +114,92 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the configured work pipeline
      */
     private WorkPipeline buildPipeline() {
-        WorkPipeline pipeline = new WorkPipeline();
+        WorkPipeline pipeline = new WorkPipeline(threadId);
 
+        // the approximate mode only updates and merges sketches
+        if (Options.MODE == Options.Mode.APPROX) {
+            addApproxStages(pipeline);
+            return pipeline;
+        }
+
+        // read, deduplicate and process articles (already done by the shard processes in distributed mode)
+        switch (Options.MODE) {
+            case EXCHANGE -> addExchangeIngestStages(pipeline);
+            case STREAM -> addStreamIngestStages(pipeline);
+            case DISTRIBUTED -> { }
+            default -> addStagedIngestStages(pipeline);
+        }
+
+        // spill the articles processed since the last spill (stream mode), merged from disk instead of building the
+        // global list
+        boolean spilling = ConcurrentDb.getInstance().isSpilling();
+        if (spilling) {
+            SpillStore spill = ConcurrentDb.getInstance().getSpillStore(threadId);
+            pipeline.addStage(new WorkPipeline.ActionStage("spill", () -> spill.spill(localDb)));
+        }
+
+        int mergeThreads = plan.mergeThreads(ConcurrentDb.getInstance().getMergeOperations().size());
+        boolean merges = threadId < mergeThreads;
+        boolean writes = threadId < plan.writeThreads();
+
+        // master thread creates global article list, sync
+        if (isMasterThread() && !spilling) {
+            pipeline.addStage(createGlobalListStage());
+        }
+        if (addReleaseStage(pipeline, merges || writes)) return pipeline;
+        pipeline.addStage(createSyncStage());
+
+        // merges data and creates stats data, sync
+        if (merges) {
+            pipeline.addStage(createDataMergeStage(mergeThreads));
+        }
+        if (addReleaseStage(pipeline, writes)) return pipeline;
+        pipeline.addStage(createSyncStage());
+
+        // finally write results, partial files and sync
+        if (writes) {
+            pipeline.addStage(createWriteStage());
+        }
+        if (addReleaseStage(pipeline, false)) return pipeline;
+        pipeline.addStage(createSyncStage());
+
+        // merge all partial files and write report (master thread only)
+        if (isMasterThread()) {
+            pipeline.addStage(createMergeFilesStage());
+            pipeline.addStage(createReportWriteStage());
+
+            // extrapolate the report of a sampled run
+            if (Options.SAMPLE_FRACTION < 1) {
+                pipeline.addStage(new WorkPipeline.OperatorStage("sample-report", new SampleReportWriter(Options.SAMPLE_FRACTION)));
+            }
+        }
+
+        return pipeline;
+    }
+
+    /**
+     * Ends the pipeline of a thread with no work left, when synchronizing with a phaser
+     *
+     * @param pipeline the pipeline to extend
+     * @param workLeft whether the thread has work in the following stages
+     * @return true if the thread leaves the phaser here
+     */
+    private boolean addReleaseStage(WorkPipeline pipeline, boolean workLeft) {
+        if (phaser == null || workLeft || isMasterThread()) return false;
+
+        pipeline.addStage(WorkPipeline.SynchronizationStage.release(phaser));
+        return true;
+    }
+
+    /**
+     * Adds the default ingest: every thread keeps the articles of its files, the master builds the global dedup maps
+     *
+     * @param pipeline the pipeline to extend
+     */
+    private void addStagedIngestStages(WorkPipeline pipeline) {
         // read articles from files and sync
         pipeline.addStage(createReadStage());
+        addRetainedSizeStage(pipeline, "after-read");
         pipeline.addStage(createSyncStage());
 
         // master thread creates global deduplication, sync
@@ -81,40 +209,165 @@ public class WorkerThread extends Thread implements Runnable {
         pipeline.addStage(createSyncStage());
 
         // process articles
-        pipeline.addStage(createProcessStage());
+        addProcessStages(pipeline, new Processor(localDb));
+        addRetainedSizeStage(pipeline, "after-process");
         pipeline.addStage(createSyncStage());
+    }
 
-        // master thread creates global article list, sync
+    /**
+     * Adds the exchange ingest: readers route the articles to their owner threads, every owner
+     * deduplicates its partition locally (no serial dedup stage)
+     *
+     * @param pipeline the pipeline to extend
+     */
+    private void addExchangeIngestStages(WorkPipeline pipeline) {
+        ArticleExchange exchange = ArticleExchange.getInstance();
+
+        // read articles and send them to their owners, sync
+        pipeline.addStage(new WorkPipeline.OperatorStage("read",
+                createReader(article -> exchange.route(threadId, article))));
+        pipeline.addStage(createSyncStage());
+
+        // receive the owned articles and titles, sync
+        pipeline.addStage(new WorkPipeline.ActionStage("exchange", () -> exchange.drain(threadId, localDb)));
+        addRetainedSizeStage(pipeline, "after-read");
+        pipeline.addStage(createSyncStage());
+
+        // process the owned articles
+        addProcessStages(pipeline, new Processor(localDb, article -> exchange.isDuplicate(article, localDb)));
+        addRetainedSizeStage(pipeline, "after-process");
+        pipeline.addStage(createSyncStage());
+    }
+
+    /**
+     * Adds the processing of the local articles; with near-duplicate detection, the exactly deduplicated articles
+     * are first signed, bucketed by LSH band and clustered, and the near-duplicates removed before processing
+     *
+     * @param pipeline the pipeline to extend
+     * @param processor the processor of the local db
+     */
+    private void addProcessStages(WorkPipeline pipeline, Processor processor) {
+        NearDuplicateDetector detector = NearDuplicateDetector.getInstance();
+        if (!detector.isEnabled()) {
+            pipeline.addStage(new WorkPipeline.ActionStage("process", processor::execute));
+            return;
+        }
+
+        // remove exact duplicates and sign the texts, sync
+        pipeline.addStage(new WorkPipeline.ActionStage("sign", () -> {
+            processor.removeDuplicates();
+            detector.sign(threadId, localDb.getArticleSet());
+        }));
+        pipeline.addStage(createSyncStage());
+
+        // find the near-duplicate pairs of this thread's bands, sync
+        pipeline.addStage(new WorkPipeline.ActionStage("lsh", () -> detector.findPairs(threadId)));
+        pipeline.addStage(createSyncStage());
+
+        // master thread clusters the pairs, sync
         if (isMasterThread()) {
-            pipeline.addStage(createGlobalListStage());
+            pipeline.addStage(new WorkPipeline.ActionStage("near-dup-clusters", () ->
+                ConcurrentDb.getInstance().setNearDuplicatesRemoved(detector.resolve())
+            ));
         }
         pipeline.addStage(createSyncStage());
 
-        // merges data and creates stats data, sync
-        pipeline.addStage(createDataMergeStage());
+        pipeline.addStage(new WorkPipeline.ActionStage("process", () -> {
+            localDb.removeDuplicates(detector::isNearDuplicate);
+            processor.processArticles();
+        }));
+    }
+
+    /**
+     * Adds the streaming ingest: the worker consumes the batches of the I/O threads, counting them in the first
+     * pass and processing them in the second; the article texts are dropped once processed
+     *
+     * @param pipeline the pipeline to extend
+     */
+    private void addStreamIngestStages(WorkPipeline pipeline) {
+        ArticleStream stream = ArticleStream.getInstance();
+
+        // count uuids and titles, sync
+        pipeline.addStage(new WorkPipeline.ActionStage("consume-counts", () -> {
+            for (List<NewsArticle> batch; (batch = stream.take()) != null; ) {
+                batch.forEach(localDb::countArticle);
+            }
+        }));
         pipeline.addStage(createSyncStage());
 
-        // finally write results, partial files and sync
-        pipeline.addStage(createWriteStage());
+        // master thread creates global deduplication, sync
+        if (isMasterThread()) {
+            pipeline.addStage(createDeduplicationStage());
+        }
+        pipeline.addStage(createSyncStage());
+
+        // process the articles as they arrive, sync
+        pipeline.addStage(new WorkPipeline.ActionStage("consume-process", () -> {
+            ConcurrentDb mainDb = ConcurrentDb.getInstance();
+            Processor processor = new Processor(localDb);
+            SpillStore spill = mainDb.isSpilling() ? mainDb.getSpillStore(threadId) : null;
+
+            for (List<NewsArticle> batch; (batch = stream.take()) != null; ) {
+                for (NewsArticle article : batch) {
+                    if (mainDb.getUuidCount().get(article.getUuid()) > 1
+                            || mainDb.getTitleCount().get(article.getTitle()) > 1) continue;
+
+                    processor.processArticle(article);
+                    article.setText(null);
+                    localDb.getArticleSet().add(article);
+
+                    if (spill != null && localDb.getArticleSet().size() >= Options.SPILL_ARTICLES) {
+                        spill.spill(localDb);
+                    }
+                }
+            }
+            processor.sortEntries();
+        }));
+        addRetainedSizeStage(pipeline, "after-process");
+        pipeline.addStage(createSyncStage());
+    }
+
+    /**
+     * Adds the approximate pipeline: every thread feeds its sketches, the master merges them and writes the report
+     *
+     * @param pipeline the pipeline to extend
+     */
+    private void addApproxStages(WorkPipeline pipeline) {
+        SketchDb sketches = ConcurrentDb.getInstance().getPartialSketch(threadId);
+
+        pipeline.addStage(new WorkPipeline.OperatorStage("read", createReader(sketches::addArticle)));
         pipeline.addStage(createSyncStage());
 
-        // merge all partial files and write report (master thread only)
         if (isMasterThread()) {
-            pipeline.addStage(createMergeFilesStage());
-            pipeline.addStage(createReportWriteStage());
+            pipeline.addStage(new WorkPipeline.ActionStage("merge-sketches", () ->
+                ConcurrentDb.getInstance().mergeSketches()
+            ));
+            pipeline.addStage(new WorkPipeline.OperatorStage("report", new ApproxReportWriter()));
         }
+    }
 
-        return pipeline;
+    /**
+     * Adds a stage estimating the retained size of the local db, when memory profiling is enabled
+     *
+     * @param pipeline the pipeline to extend
+     * @param point the name of the pipeline point
+     */
+    private void addRetainedSizeStage(WorkPipeline pipeline, String point) {
+        if (!PipelineProfiler.getInstance().isMemoryEnabled()) return;
+
+        pipeline.addStage(new WorkPipeline.ActionStage("size-estimate", () ->
+            PipelineProfiler.getInstance().recordRetainedSizes(threadId, point, MemoryEstimator.estimate(localDb))
+        ));
     }
 
     private WorkPipeline.PipelineStage createGlobalListStage() {
-        return new WorkPipeline.ActionStage(() ->
+        return new WorkPipeline.ActionStage("global-list", () ->
             ConcurrentDb.getInstance().generateGlobalArticleList()
         );
     }
 
     private WorkPipeline.PipelineStage createDeduplicationStage() {
-        return new WorkPipeline.ActionStage(() ->
+        return new WorkPipeline.ActionStage("dedup", () ->
             ConcurrentDb.getInstance().generateGlobalDedupMaps()
         );
     }
@@ -125,8 +378,19 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the read stage
      */
     private WorkPipeline.PipelineStage createReadStage() {
+        return new WorkPipeline.OperatorStage("read", createReader(localDb::addArticle));
+    }
+
+    /**
+     * Creates the reader of this thread's partition of files and of chunks of the split files
+     *
+     * @param sink the consumer of the parsed articles
+     * @return the reader
+     */
+    private Reader createReader(Consumer<NewsArticle> sink) {
         List<String> filesToRead = partitioner.partitionList(allFiles);
-        return new WorkPipeline.OperatorStage(new Reader(filesToRead, localDb));
+        List<FileSplitter.Chunk> chunksToRead = partitioner.partitionList(ConcurrentDb.getInstance().getFileChunks());
+        return new Reader(filesToRead, chunksToRead, sink, true);
     }
 
     /**
@@ -135,7 +399,9 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the synchronization stage
      */
     private WorkPipeline.PipelineStage createSyncStage() {
-        return new WorkPipeline.SynchronizationStage(syncBarrier);
+        return phaser != null
+                ? new WorkPipeline.SynchronizationStage(phaser)
+                : new WorkPipeline.SynchronizationStage(syncBarrier);
     }
 
     /**
@@ -149,25 +415,16 @@ public class WorkerThread extends Thread implements Runnable {
 //        );
 //    }
 
-    /**
-     * Creates the article processing stage.
-     *
-     * @return the processing stage
-     */
-    private WorkPipeline.PipelineStage createProcessStage() {
-        return new WorkPipeline.ActionStage(() -> {
-            new Processor(localDb).execute();
-        });
-    }
-
     /**
      * Creates the data merging stage for this thread's partition of merge operations
      *
+     * @param mergeThreads the number of threads sharing the merge operations
      * @return the data merge stage
      */
-    private WorkPipeline.PipelineStage createDataMergeStage() {
-        List<ConcurrentDb.MergeFunction> mfs = partitioner.partitionList(ConcurrentDb.getInstance().getMergeOperations());
-        return new WorkPipeline.ActionStage(() -> {
+    private WorkPipeline.PipelineStage createDataMergeStage(int mergeThreads) {
+        List<ConcurrentDb.MergeFunction> mfs = new WorkPartitioner(threadId, mergeThreads)
+                .partitionList(ConcurrentDb.getInstance().getMergeOperations());
+        return new WorkPipeline.ActionStage("merge", () -> {
             new DataMerger(mfs).execute();
         });
     }
@@ -178,7 +435,8 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the write stage
      */
     private WorkPipeline.PipelineStage createWriteStage() {
-        return new WorkPipeline.OperatorStage(new Writer(partitioner, threadId));
+        return new WorkPipeline.OperatorStage("write",
+                new Writer(new WorkPartitioner(threadId, plan.writeThreads()), threadId));
     }
 
     /**
@@ -187,7 +445,7 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the file merge stage
      */
     private WorkPipeline.PipelineStage createMergeFilesStage() {
-        return new WorkPipeline.OperatorStage(new FileMerger(numThreads));
+        return new WorkPipeline.OperatorStage("file-merge", new FileMerger(plan.writeThreads()));
     }
 
     /**
@@ -196,7 +454,7 @@ public class WorkerThread extends Thread implements Runnable {
      * @return the report write stage
      */
     private WorkPipeline.PipelineStage createReportWriteStage() {
-        return new WorkPipeline.ActionStage(() -> {
+        return new WorkPipeline.ActionStage("report", () -> {
             new ReportWriter().execute();
         });
     }
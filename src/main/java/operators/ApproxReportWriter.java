@@ -0,0 +1,119 @@
+package operators;
+
+import auxs.Constants;
+import auxs.Utils;
+import database.ConcurrentDb;
+import database.SketchDb;
+import sketches.HyperLogLog;
+import sketches.SpaceSaving;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Operator writing the approximate report (reports.txt with error bounds) and the top keywords (performed by MASTER)
+ */
+public class ApproxReportWriter implements Operator {
+    // z-score of the 95% confidence intervals of the distinct counts
+    private static final double Z_95 = 1.96;
+
+    // merged sketches, available once the merge stage has run
+    private SketchDb sketches;
+
+    /**
+     * Writes reports.txt and keywords_top.txt
+     */
+    @Override
+    public void execute() {
+        sketches = ConcurrentDb.getInstance().getSketchData();
+        writeReport();
+        writeTopKeywords();
+    }
+
+    private void writeReport() {
+        HyperLogLog uuids = sketches.getUniqueUuids();
+        long unique = uuids.estimate();
+        long uniqueBound = distinctBound(uuids, unique);
+        long titles = sketches.getUniqueTitles().estimate();
+
+        List<SpaceSaving.Entry> authors = sketches.getTopAuthors();
+        List<SpaceSaving.Entry> keywords = sketches.getTopKeywords();
+        Map.Entry<String, Integer> language = top(sketches.getLanguageCount());
+        Map.Entry<String, Integer> category = top(sketches.getCategoryCount());
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(Constants.REPORT_FILE))) {
+            writer.write("duplicates_found - " + Math.max(0, sketches.getArticles() - unique) + " ± " + uniqueBound + " (95%)");
+            writer.write("\n");
+
+            writer.write("unique_articles - " + unique + " ± " + uniqueBound + " (95%)");
+            writer.write("\n");
+
+            writer.write("unique_titles - " + titles + " ± " + distinctBound(sketches.getUniqueTitles(), titles) + " (95%)");
+            writer.write("\n");
+
+            writer.write("best_author - " + (authors.isEmpty() ? "" : withError(authors.getFirst())));
+            writer.write("\n");
+
+            writer.write("top_language - " + (language == null ? "" : language.getKey() + " " + language.getValue()));
+            writer.write("\n");
+
+            writer.write("top_category - " + (category == null ? ""
+                    : Utils.normalizeCategory(category.getKey()) + " " + category.getValue()));
+            writer.write("\n");
+
+            writer.write("most_recent_article - " + sketches.getMostRecentArticle());
+            writer.write("\n");
+
+            writer.write("top_keyword_en - " + (keywords.isEmpty() ? "" : withError(keywords.getFirst())));
+            writer.write("\n");
+
+            writer.write(String.format(Locale.ROOT,
+                    "error_bounds - counts include duplicates, duplicates_found counts repeated uuids only; unlisted keyword counts <= %d, unlisted author counts <= %d; "
+                            + "Count-Min overestimates <= %d (keywords), %d (authors) with probability >= %.4f",
+                    sketches.getKeywordSummary().errorBound(), sketches.getAuthorSummary().errorBound(),
+                    sketches.getKeywordFrequencies().errorBound(), sketches.getAuthorFrequencies().errorBound(),
+                    1 - sketches.getKeywordFrequencies().failureProbability()));
+            writer.write("\n");
+
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the monitored keywords as "keyword count max_overestimate", by decreasing count
+     */
+    private void writeTopKeywords() {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(Constants.TOP_WORDS_FILE))) {
+            for (SpaceSaving.Entry e : sketches.getTopKeywords()) {
+                writer.write(e.key() + " " + e.count() + " " + e.error());
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static long distinctBound(HyperLogLog sketch, long estimate) {
+        return Math.round(Z_95 * sketch.relativeError() * estimate);
+    }
+
+    private static String withError(SpaceSaving.Entry e) {
+        return e.key() + " " + e.count() + " (overestimate <= " + e.error() + ")";
+    }
+
+    /**
+     * Returns the entry with the highest count, ties broken by name
+     */
+    private static Map.Entry<String, Integer> top(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .min(Comparator.<Map.Entry<String, Integer>>comparingInt(e -> -e.getValue())
+                        .thenComparing(Map.Entry::getKey))
+                .orElse(null);
+    }
+}
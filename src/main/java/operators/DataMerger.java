@@ -1,6 +1,8 @@
 package operators;
 
 import database.ConcurrentDb;
+import multithreading.PipelineEvents;
+import multithreading.PipelineMetrics;
 
 import java.util.List;
 
@@ -25,7 +27,15 @@ public class DataMerger implements Operator {
     @Override
     public void execute() {
         for (var f : mergeFunctionList) {
+            PipelineEvents.Merge event = new PipelineEvents.Merge();
+            event.begin();
             f.compute();
+            if (event.shouldCommit()) {
+                event.worker = PipelineEvents.currentWorker();
+                event.operation = f.getName();
+                event.commit();
+            }
+            PipelineMetrics.getInstance().mergeTaskDone();
         }
     }
 }
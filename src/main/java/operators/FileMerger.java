@@ -1,6 +1,10 @@
 package operators;
 
 import auxs.Constants;
+import database.ConcurrentDb;
+import multithreading.PipelineEvents;
+import multithreading.PipelineMetrics;
+
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
@@ -27,8 +31,14 @@ public class FileMerger implements Operator {
      */
     @Override
     public void execute() {
-        mergeAllFile(Constants.ALL_FILE);
+        // with spilled runs, all_articles.txt is written directly by the merge stage
+        if (!ConcurrentDb.getInstance().isSpilling()) {
+            mergeAllFile(Constants.ALL_FILE);
+        }
         mergeAllFile(Constants.WORDS_FILE);
+        if (ConcurrentDb.getInstance().hasBigrams()) {
+            mergeAllFile(Constants.BIGRAMS_FILE);
+        }
     }
 
     /**
@@ -37,6 +47,8 @@ public class FileMerger implements Operator {
      * @param filename the base filename to merge
      */
     private void mergeAllFile(String filename) {
+        PipelineEvents.FileWrite event = new PipelineEvents.FileWrite();
+        event.begin();
 
         // efficient file merger
         try (FileChannel outChannel = FileChannel.open(
@@ -49,6 +61,15 @@ public class FileMerger implements Operator {
                 String inputFileName = i + "_" + filename;
                 mergeFileInto(inputFileName, outChannel);
             }
+            PipelineMetrics.getInstance().bytesWritten(outChannel.size());
+
+            // the lines of the concatenated partial files are not counted
+            if (event.shouldCommit()) {
+                event.worker = PipelineEvents.currentWorker();
+                event.path = filename;
+                event.bytes = outChannel.size();
+                event.commit();
+            }
 
         } catch (IOException e) {
             System.err.println("Error creating merged file: " + e.getMessage());
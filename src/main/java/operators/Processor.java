@@ -1,15 +1,47 @@
 package operators;
 
 import auxs.Constants;
+import auxs.Dictionary;
+import auxs.IntIntMap;
+import auxs.LongIntMap;
 import auxs.Utils;
+import articles.NewsArticle;
 import database.ConcurrentDb;
 import database.SequentialDb;
+import database.TrendCounters;
+import multithreading.PipelineMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
 
 public class Processor implements Operator {
     private final SequentialDb db;
 
+    // tells whether an article has a duplicate uuid or title (null: use the global dedup maps)
+    private final Predicate<NewsArticle> isDuplicate;
+
+    // words and packed bigrams of the current article, reused across articles
+    private final List<String> wordList = new ArrayList<>();
+    private long[] bigrams = new long[64];
+
+    // word ids of the current article in another language, reused across articles
+    private int[] wordIds = new int[64];
+
     public Processor(SequentialDb db) {
+        this(db, null);
+    }
+
+    /**
+     * Constructs a Processor with a custom duplicate check
+     *
+     * @param db the local db to process
+     * @param isDuplicate predicate telling whether an article must be removed as a duplicate
+     */
+    public Processor(SequentialDb db, Predicate<NewsArticle> isDuplicate) {
         this.db = db;
+        this.isDuplicate = isDuplicate;
     }
 
     /**
@@ -18,43 +50,165 @@ public class Processor implements Operator {
     @Override
     public void execute() {
         removeDuplicates();
+        processArticles();
+    }
+
+    /**
+     * Indexes all articles left in the database partition and sorts the article lists
+     */
+    public void processArticles() {
+        db.getArticleSet().forEach(this::processArticle);
+        sortEntries();
+    }
+
+    /**
+     * Indexes a single (non-duplicate) article: language, categories, author, most recent article and keywords
+     *
+     * @param article the article to process
+     */
+    public void processArticle(NewsArticle article) {
+        PipelineMetrics.getInstance().articleProcessed();
+
+        // time window of the trend counters
+        TrendCounters trends = db.getTrendCounters();
+        int bucket = trends == null ? 0 : trends.bucketOf(article.getPublished());
+        boolean trending = trends != null && TrendCounters.hasBucket(bucket);
+
+        // process language
+        String language = article.getLanguage();
+        if (db.getLanguages().contains(language)) {
+            db.addArticleToLanguage(language, article.getUuid());
+        }
+
+        // process categories
+        article.getCategories().stream()
+                .filter(db.getCategories()::contains)
+                .forEach(c -> {
+                    db.addArticleToCategory(c, article.getUuid());
+                    if (trending) trends.add(TrendCounters.Dimension.CATEGORIES, bucket, c);
+                });
+
+        // process author occurrences
+        db.incrementAuthorOccurrence(article.getAuthor());
+        if (trending && article.getAuthor() != null) {
+            trends.add(TrendCounters.Dimension.AUTHORS, bucket, article.getAuthor());
+        }
+
+        // update most recent article
+        if (db.getMostRecentArticle() == null ||
+                article.getPublished().compareTo(db.getMostRecentArticle().getPublished()) > 0) {
+            db.setMostRecentArticle(article);
+        }
 
-        db.getArticleSet().forEach(article -> {
-            // process language
-            String language = article.getLanguage();
-            if (db.getLanguages().contains(language)) {
-                db.addArticleToLanguage(language, article.getUuid());
+        // the keywords of the other languages are only counted when enabled
+        if (!language.equals(Constants.LANGUAGE)) {
+            IntIntMap counts = db.getLanguageKeywordOccurences(language);
+            if (counts != null) {
+                countLanguageKeywords(article.getText(), db.getLanguageKeywords(language), counts);
             }
+            return;
+        }
 
-            // process categories
-            article.getCategories().stream()
-                    .filter(db.getCategories()::contains)
-                    .forEach(c -> db.addArticleToCategory(c, article.getUuid()));
+        // with bigrams, the tokenizer also collects the words in text order
+        boolean bigramsOn = db.getBigramOccurences() != null;
+        wordList.clear();
+        var wordsInArticle = Utils.textToWords(article.getText(), bigramsOn ? wordList : null);
+        // the option is ignored in the modes that build no index (approx, shard processes)
+        int ordinal = ConcurrentDb.getInstance().hasKeywordIndex() ? db.indexArticle(article.getUuid()) : -1;
+        wordsInArticle.forEach(word -> {
+            if (db.getLinkingWords().contains(word)) return;
 
-            // process author occurrences
-            db.incrementAuthorOccurrence(article.getAuthor());
+            db.incrementKeywordOccurrence(word);
+            if (ordinal >= 0) {
+                db.addPosting(word, ordinal);
+            }
+            if (trending) {
+                trends.add(TrendCounters.Dimension.KEYWORDS, bucket, word);
+            }
+        });
 
-            // update most recent article
-            if (db.getMostRecentArticle() == null ||
-                    article.getPublished().compareTo(db.getMostRecentArticle().getPublished()) > 0) {
-                db.setMostRecentArticle(article);
+        if (bigramsOn) {
+            countBigrams(wordList);
+        }
+    }
+
+    /**
+     * Counts the keywords of an article in another language than english, once per article
+     *
+     * @param text the text of the article
+     * @param dictionary the dictionary of the language, with its linking words reserved
+     * @param counts the keyword counts of the language
+     */
+    private void countLanguageKeywords(String text, Dictionary dictionary, IntIntMap counts) {
+        wordList.clear();
+        Utils.textToUnicodeWords(text, wordList);
+        if (wordIds.length < wordList.size()) {
+            wordIds = new int[wordList.size()];
+        }
+
+        int n = 0;
+        for (String word : wordList) {
+            int id = dictionary.idOf(word);
+            if (!dictionary.isReserved(id)) {
+                wordIds[n++] = id;
             }
+        }
 
-            // process keywords for english arts only
-            if (!language.equals(Constants.LANGUAGE)) return;
+        // repeated words of the article are adjacent once sorted
+        Arrays.sort(wordIds, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || wordIds[i] != wordIds[i - 1]) {
+                counts.add(wordIds[i], 1);
+            }
+        }
+    }
 
-            var wordsInArticle = Utils.textToWords(article.getText());
-            wordsInArticle.forEach(word -> {
-                if (db.getLinkingWords().contains(word)) return;
+    /**
+     * Counts the pairs of adjacent words of an article once per article, as the keywords are counted. A linking
+     * word breaks the phrase: it is neither part of a bigram nor skipped over.
+     *
+     * @param words the words of the article, in text order
+     */
+    private void countBigrams(List<String> words) {
+        Dictionary dictionary = db.getBigramWords();
+        if (bigrams.length < words.size()) {
+            bigrams = new long[words.size()];
+        }
 
-                db.incrementKeywordOccurrence(word);
-            });
-        });
+        int n = 0;
+        int previous = -1;
+        for (String word : words) {
+            int id = dictionary.idOf(word);
+            if (dictionary.isReserved(id)) {
+                // linking word
+                previous = -1;
+                continue;
+            }
 
-        sortEntries();
+            if (previous >= 0) {
+                bigrams[n++] = LongIntMap.pack(previous, id);
+            }
+            previous = id;
+        }
+
+        // repeated bigrams of the article are adjacent once sorted
+        Arrays.sort(bigrams, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || bigrams[i] != bigrams[i - 1]) {
+                db.incrementBigramOccurrence(bigrams[i]);
+            }
+        }
     }
 
-    private void removeDuplicates() {
+    /**
+     * Removes the articles with a duplicate uuid or title from the database partition
+     */
+    public void removeDuplicates() {
+        if (isDuplicate != null) {
+            db.removeDuplicates(isDuplicate);
+            return;
+        }
+
         ConcurrentDb mainDb = ConcurrentDb.getInstance();
         db.removeDuplicates(mainDb.getUuidCount(), mainDb.getTitleCount());
 
@@ -63,7 +217,7 @@ public class Processor implements Operator {
     /**
      * Sorts category and language article lists.
      */
-    private void sortEntries() {
+    public void sortEntries() {
         db.getCategories().forEach(db::sortCategoryArticles);
         db.getLanguages().forEach(db::sortLanguageArticles);
     }
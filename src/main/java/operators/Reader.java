@@ -2,32 +2,90 @@ package operators;
 
 import articles.NewsArticle;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import database.ArticleArchive;
+import database.CompressedInput;
 import database.ConcurrentDb;
 import auxs.Constants;
+import auxs.Options;
+import database.FilePrefetcher;
+import database.FileSplitter;
 import database.SequentialDb;
+import multithreading.PipelineEvents;
+import multithreading.PipelineMetrics;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Operator responsible for reading news articles from JSON files
  */
 public class Reader implements Operator {
+    // built once: resolving the deserializer of the article list is not repeated for every file
+    private static final ObjectReader ARTICLES_READER = Constants.MAPPER.readerFor(new TypeReference<List<NewsArticle>>() {});
+    // NDJSON: a sequence of root-level articles
+    private static final ObjectReader ARTICLE_READER = Constants.MAPPER.readerFor(NewsArticle.class);
+
     private final List<String> filesToRead;
-    private final ObjectMapper mapper;
-    private final SequentialDb localDb;
+    private final List<FileSplitter.Chunk> chunksToRead;
+    private final Consumer<NewsArticle> sink;
+
+    // whether the articles read are added to the global article counter
+    private final boolean countArticles;
 
     /**
      * Constructs a Reader with a list of files to process.
      *
      * @param filesToRead list of JSON file paths to read articles from
+     * @param localDb the local db receiving the articles
      */
     public Reader(List<String> filesToRead, SequentialDb localDb) {
+        this(filesToRead, localDb::addArticle);
+    }
+
+    /**
+     * Constructs a Reader that hands every parsed article to a sink
+     *
+     * @param filesToRead list of JSON file paths to read articles from
+     * @param sink the consumer of the parsed articles
+     */
+    public Reader(List<String> filesToRead, Consumer<NewsArticle> sink) {
+        this(filesToRead, sink, true);
+    }
+
+    /**
+     * Constructs a Reader that hands every parsed article to a sink
+     *
+     * @param filesToRead list of JSON file paths to read articles from
+     * @param sink the consumer of the parsed articles
+     * @param countArticles false when the files are read again, so the articles are not counted twice
+     */
+    public Reader(List<String> filesToRead, Consumer<NewsArticle> sink, boolean countArticles) {
+        this(filesToRead, List.of(), sink, countArticles);
+    }
+
+    /**
+     * Constructs a Reader of whole files and chunks of split files
+     *
+     * @param filesToRead list of JSON file paths to read articles from
+     * @param chunksToRead chunks of the large files to read articles from
+     * @param sink the consumer of the parsed articles
+     * @param countArticles false when the files are read again, so the articles are not counted twice
+     */
+    public Reader(List<String> filesToRead, List<FileSplitter.Chunk> chunksToRead, Consumer<NewsArticle> sink,
+                  boolean countArticles) {
         this.filesToRead = filesToRead;
-        this.mapper = Constants.MAPPER;
-        this.localDb = localDb;
+        this.chunksToRead = chunksToRead;
+        this.sink = sink;
+        this.countArticles = countArticles;
     }
 
     /**
@@ -35,29 +93,163 @@ public class Reader implements Operator {
      */
     @Override
     public void execute() {
-        ConcurrentDb db = ConcurrentDb.getInstance();
+        ArticleArchive archive = ArticleArchive.getInstance();
         int total = 0;
 
-        for (String fileName : filesToRead) {
-            File file = new File(fileName);
-
+        // the next files are read ahead while the current one is parsed; otherwise, the next compressed file
+        // is decompressed while the current one is parsed
+        try (FilePrefetcher prefetcher = FilePrefetcher.of(filesToRead, archive)) {
+            InputStream ahead = null;
             try {
-                List<NewsArticle> articles = mapper.readValue(
-                        file,
-                        new TypeReference<List<NewsArticle>>() {}
-                );
-
-                for (NewsArticle a : articles) {
-                    localDb.addArticle(a);
-                    total++;
+                for (int i = 0; i < filesToRead.size(); i++) {
+                    InputStream current = ahead;
+                    FilePrefetcher.Buffer prefetched = prefetcher == null ? null : prefetcher.take(i);
+                    ahead = prefetcher == null && i + 1 < filesToRead.size()
+                            ? openAhead(filesToRead.get(i + 1), archive) : null;
+                    total += read(filesToRead.get(i), null, archive, current, prefetched);
                 }
-            } catch (IOException e) {
-                System.err.println("Error reading file " + fileName);
-                System.err.println(e.getMessage());
+            } finally {
+                // the file started ahead of a parse that failed (e.g. a failing sink) stops decompressing
+                closeQuietly(ahead);
             }
         }
+        for (FileSplitter.Chunk chunk : chunksToRead) {
+            total += read(chunk.path(), chunk, archive, null, null);
+        }
 
         // increments the total number of articles read
-        db.incrementArts(total);
+        if (countArticles) {
+            ConcurrentDb.getInstance().incrementArts(total);
+        }
+    }
+
+    /**
+     * Parses a file or a chunk of a file and hands its articles to the sink
+     *
+     * @param fileName the file
+     * @param chunk the chunk to read, or null for the whole file
+     * @param archive the archive in use, or null
+     * @param opened the stream of the file if already opened, or null
+     * @param prefetched the contents of the file if read ahead (released once parsed), or null
+     * @return the number of articles read
+     */
+    private int read(String fileName, FileSplitter.Chunk chunk, ArticleArchive archive, InputStream opened,
+                     FilePrefetcher.Buffer prefetched) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        PipelineEvents.FileRead event = new PipelineEvents.FileRead();
+        event.begin();
+
+        try {
+            boolean ndjson = chunk != null ? chunk.ndjson()
+                    : FileSplitter.isNdjson(CompressedInput.uncompressedName(fileName));
+
+            List<NewsArticle> articles;
+            if (prefetched != null && CompressedInput.Codec.of(fileName) == null) {
+                // parsed straight from the buffer, without a stream
+                articles = ndjson
+                        ? ARTICLE_READER.<NewsArticle>readValues(prefetched.data(), 0, prefetched.length()).readAll()
+                        : ARTICLES_READER.readValue(prefetched.data(), 0, prefetched.length());
+            } else {
+                try (InputStream in = opened != null ? opened : open(fileName, chunk, archive, prefetched)) {
+                    if (ndjson) {
+                        articles = ARTICLE_READER.<NewsArticle>readValues(in).readAll();
+                    } else {
+                        // the elements of an array chunk are parsed as an array of their own
+                        articles = ARTICLES_READER.readValue(chunk == null ? in : new SequenceInputStream(
+                                Collections.enumeration(List.of(new ByteArrayInputStream(new byte[] {'['}), in,
+                                        new ByteArrayInputStream(new byte[] {']'})))));
+                    }
+                }
+            }
+            event.end();
+
+            for (NewsArticle a : articles) {
+                sink.accept(a);
+            }
+            if (countArticles) {
+                ConcurrentDb.getInstance().addFileArticles(articles.size());
+            }
+            // the files read again (stream mode, auto plan probe) are not counted twice
+            if (countArticles && metrics.isEnabled()) {
+                metrics.fileRead(sizeOf(fileName, chunk), articles.size());
+            }
+            if (event.shouldCommit()) {
+                event.worker = PipelineEvents.currentWorker();
+                event.path = fileName;
+                event.offset = chunk == null ? 0 : chunk.start();
+                event.bytes = sizeOf(fileName, chunk);
+                event.articles = articles.size();
+                event.commit();
+            }
+            return articles.size();
+        } catch (IOException e) {
+            System.err.println("Error reading file " + fileName);
+            System.err.println(e.getMessage());
+            return 0;
+        } finally {
+            if (prefetched != null) {
+                FilePrefetcher.release(prefetched);
+            }
+        }
+    }
+
+    /**
+     * Opens a file or a chunk of a file: chunks and packed files are read from mapped buffers, the others are
+     * opened, and compressed files are decompressed (on their own thread when pipelined)
+     *
+     * @param fileName the file
+     * @param chunk the chunk to read, or null for the whole file
+     * @param archive the archive in use, or null
+     * @param prefetched the contents of the file if read ahead, or null
+     * @return the stream of the JSON contents
+     * @throws IOException if the file cannot be opened
+     */
+    private static InputStream open(String fileName, FileSplitter.Chunk chunk, ArticleArchive archive,
+                                    FilePrefetcher.Buffer prefetched) throws IOException {
+        if (chunk != null) {
+            return new ByteBufferBackedInputStream(chunk.map());
+        }
+
+        ByteBuffer segment = archive == null ? null : archive.segment(fileName);
+        InputStream raw;
+        if (prefetched != null) {
+            raw = new ByteArrayInputStream(prefetched.data(), 0, prefetched.length());
+        } else {
+            raw = segment == null ? new FileInputStream(fileName) : new ByteBufferBackedInputStream(segment);
+        }
+        CompressedInput.Codec codec = CompressedInput.Codec.of(fileName);
+        if (codec == null) return raw;
+        return Options.PIPELINED_DECOMPRESSION ? CompressedInput.open(raw, codec) : codec.decompress(raw);
+    }
+
+    /**
+     * Starts decompressing a compressed file before it is parsed
+     *
+     * @return its stream, or null if the file is not compressed or cannot be opened (reported when it is read)
+     */
+    private static InputStream openAhead(String fileName, ArticleArchive archive) {
+        if (!Options.PIPELINED_DECOMPRESSION || CompressedInput.Codec.of(fileName) == null) return null;
+
+        try {
+            return open(fileName, null, archive, null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing was read from it
+        }
+    }
+
+    /**
+     * Returns the size of a file (compressed) or chunk as stored
+     */
+    private static long sizeOf(String fileName, FileSplitter.Chunk chunk) {
+        return chunk != null ? chunk.length() : ArticleArchive.sizeOf(fileName);
     }
 }
@@ -3,6 +3,7 @@ package operators;
 import auxs.Constants;
 import auxs.Utils;
 import database.ConcurrentDb;
+import multithreading.NearDuplicateDetector;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -30,7 +31,12 @@ public class ReportWriter implements Operator {
             writer.write("duplicates_found - " + db.getDuplicatesRemoved());
             writer.write("\n");
 
-            writer.write("unique_articles - " + db.getArticles().size());
+            if (NearDuplicateDetector.getInstance().isEnabled()) {
+                writer.write("near_duplicates_found - " + db.getNearDuplicatesRemoved());
+                writer.write("\n");
+            }
+
+            writer.write("unique_articles - " + db.getUniqueArticleCount());
             writer.write("\n");
 
             writer.write("best_author - " + db.getAuthorData());
@@ -48,6 +54,11 @@ public class ReportWriter implements Operator {
             writer.write("top_keyword_en - " + db.getKwData());
             writer.write("\n");
 
+            for (String language : db.getKeywordLanguages()) {
+                writer.write("top_keyword_" + language + " - " + db.getLanguageKwData(language));
+                writer.write("\n");
+            }
+
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
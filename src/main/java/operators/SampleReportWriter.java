@@ -0,0 +1,126 @@
+package operators;
+
+import auxs.Constants;
+import auxs.Utils;
+import database.AbstractDataBase.PairData;
+import database.ConcurrentDb;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Operator extrapolating the report metrics of a sampled run to the full corpus, with 95% confidence intervals
+ * (performed by MASTER).
+ * <p>
+ * Given the n of N files that were sampled, the number of articles is estimated as N times the mean articles per
+ * sampled file (variance of a simple random sample of files, so articles are treated as clustered by file). The
+ * other metrics are proportions of the sampled articles, scaled by the estimated totals. Both copies of a duplicate
+ * are only seen when both files were sampled, so duplicate copies are assumed to lie in different files and the
+ * observed duplicate rate is divided by n / N.
+ */
+public class SampleReportWriter implements Operator {
+    private static final double Z_95 = 1.96;
+
+    // requested sampling probability of every file
+    private final double fraction;
+
+    /**
+     * Constructs a SampleReportWriter
+     *
+     * @param fraction the probability with which every file was sampled
+     */
+    public SampleReportWriter(double fraction) {
+        this.fraction = fraction;
+    }
+
+    /**
+     * An extrapolated value with its standard error
+     */
+    private record Estimate(double value, double stdError) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.0f ± %.0f (95%%)", value, Z_95 * stdError);
+        }
+    }
+
+    /**
+     * Executes the estimation, writing sample_report.txt
+     */
+    @Override
+    public void execute() {
+        ConcurrentDb db = ConcurrentDb.getInstance();
+        int n = db.getSampledFiles(), total = db.getTotalFiles();
+        if (n == 0) {
+            System.err.println("No file was sampled, increase the sample fraction");
+            return;
+        }
+
+        double f = (double) n / total;
+        long read = db.getArticlesRead();
+        int unique = db.getUniqueArticleCount();
+
+        // total articles: N * mean articles per file, with the between-file variance
+        double mean = (double) read / n;
+        double variance = n < 2 ? 0 : (db.getFileArticleSquares() - n * mean * mean) / (n - 1);
+        Estimate articles = new Estimate(total * mean, total * Math.sqrt((1 - f) * variance / n));
+
+        // duplicate rate: observed rate / f, binomial error
+        double observedRate = read == 0 ? 0 : (double) (read - unique) / read;
+        double rate = Math.min(1, observedRate / f);
+        double rateError = read == 0 ? 0 : Math.sqrt(observedRate * (1 - observedRate) / read) / f;
+
+        Estimate duplicates = new Estimate(rate * articles.value(),
+                Math.hypot(articles.value() * rateError, rate * articles.stdError()));
+        Estimate uniqueArticles = new Estimate((1 - rate) * articles.value(),
+                Math.hypot(articles.value() * rateError, (1 - rate) * articles.stdError()));
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(Constants.SAMPLE_REPORT_FILE))) {
+            writer.write(String.format(Locale.ROOT, "sample - %d of %d files (fraction %s)", n, total, fraction));
+            writer.write("\n");
+
+            writer.write("articles_read - " + articles);
+            writer.write("\n");
+
+            writer.write("duplicates_found - " + duplicates);
+            writer.write("\n");
+
+            writer.write("unique_articles - " + uniqueArticles);
+            writer.write("\n");
+
+            writer.write("top_language - " + share(db.getLanguageData(), unique, uniqueArticles));
+            writer.write("\n");
+
+            PairData category = db.getCategoryData();
+            writer.write("top_category - " + share(new PairData(Utils.normalizeCategory(category.data()), category.times()),
+                    unique, uniqueArticles));
+            writer.write("\n");
+
+            writer.write("top_keyword_en - " + share(db.getKwData(), unique, uniqueArticles));
+            writer.write("\n");
+
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Extrapolates a count observed among the unique sampled articles, as a proportion of the unique articles
+     *
+     * @param data the top entry of the sample
+     * @param sampleUnique the number of unique sampled articles
+     * @param uniqueArticles the estimated number of unique articles
+     * @return the entry with its extrapolated count
+     */
+    private static String share(PairData data, int sampleUnique, Estimate uniqueArticles) {
+        if (data == null || sampleUnique == 0) return "";
+
+        double p = Math.min(1, (double) data.times() / sampleUnique);
+        double pError = Math.sqrt(p * (1 - p) / sampleUnique);
+
+        Estimate count = new Estimate(p * uniqueArticles.value(),
+                Math.hypot(uniqueArticles.value() * pError, p * uniqueArticles.stdError()));
+        return data.data() + " " + count;
+    }
+}
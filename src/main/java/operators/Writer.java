@@ -3,9 +3,13 @@ package operators;
 import articles.NewsArticle;
 import auxs.Constants;
 import database.ConcurrentDb;
+import database.TrendCounters;
+import multithreading.PipelineEvents;
+import multithreading.PipelineMetrics;
 import multithreading.WorkPartitioner;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.List;
@@ -29,10 +33,32 @@ public class Writer implements Operator {
 
     @Override
     public void execute() {
-        writeCategories();
-        writeLanguages();
-        writePartialData();
+        // with spilled runs, the article, category and language files are written by the merge stage
+        if (!db.isSpilling()) {
+            writeCategories();
+            writeLanguages();
+            writePartialData();
+        }
         writePartialKeyWords();
+        if (db.hasBigrams()) {
+            writePartialBigrams();
+        }
+        if (db.hasLanguageKeywords()) {
+            writeLanguageKeyWords();
+        }
+
+        if (db.hasTrends()) {
+            writeTrends();
+        }
+    }
+
+    /**
+     * Partitions the trend dimensions and writes the per-window top-N file of each
+     */
+    private void writeTrends() {
+        for (TrendCounters.Dimension dimension : partitioner.partitionList(List.of(TrendCounters.Dimension.values()))) {
+            writeListToFile(dimension.getFile(), db.getTrendLines(dimension));
+        }
     }
 
     /**
@@ -80,13 +106,36 @@ public class Writer implements Operator {
         writeListToFile(filename, data.stream().map(ConcurrentDb.PairData::toString).collect(Collectors.toList()));
     }
 
+    /**
+     * Writes this thread's partition of bigram occurrence data to a partial file
+     */
+    private void writePartialBigrams() {
+        var data = partitioner.partitionList(db.getBigramsData());
+        String filename = prefixToFile + Constants.BIGRAMS_FILE;
+        writeListToFile(filename, data.stream().map(ConcurrentDb.PairData::toString).collect(Collectors.toList()));
+    }
+
+    /**
+     * Partitions the other languages and writes the keyword occurrence file of each
+     */
+    private void writeLanguageKeyWords() {
+        for (String language : partitioner.partitionList(db.getKeywordLanguages())) {
+            String filename = String.format(Constants.LANGUAGE_WORDS_FILE, language);
+            writeListToFile(filename, db.getLanguageKeywordsData(language).stream()
+                    .map(ConcurrentDb.PairData::toString).collect(Collectors.toList()));
+        }
+    }
+
     /**
      * Writes a list of strings to a file, one item per line
      *
      * @param filename the output file path
      * @param items the list of strings to write
      */
-    private void writeListToFile(String filename, List<String> items) {
+    static void writeListToFile(String filename, List<String> items) {
+        PipelineEvents.FileWrite event = new PipelineEvents.FileWrite();
+        event.begin();
+
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
             for (String item : items) {
                 writer.write(item);
@@ -95,5 +144,16 @@ public class Writer implements Operator {
         } catch (IOException e) {
             System.err.println("Error writing to file " + filename + ": " + e.getMessage());
         }
+
+        if (PipelineMetrics.getInstance().isEnabled()) {
+            PipelineMetrics.getInstance().bytesWritten(new File(filename).length());
+        }
+        if (event.shouldCommit()) {
+            event.worker = PipelineEvents.currentWorker();
+            event.path = filename;
+            event.bytes = new File(filename).length();
+            event.lines = items.size();
+            event.commit();
+        }
     }
 }
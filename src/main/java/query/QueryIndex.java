@@ -0,0 +1,291 @@
+package query;
+
+import articles.NewsArticle;
+import auxs.Utils;
+import database.AbstractDataBase.PairData;
+import database.ConcurrentDb;
+import database.KeywordIndexFile;
+
+import java.util.*;
+
+/**
+ * Read-only in-memory index over the aggregated database, used to answer queries without re-reading the outputs
+ */
+public class QueryIndex {
+    private static final int[] NO_ARTICLES = new int[0];
+    private static final PairData[] NO_DATA = new PairData[0];
+
+    // articles sorted by publish date (oldest first) and their timestamps, searched with binary search
+    private final NewsArticle[] byTime;
+    private final String[] published;
+
+    // category / language -> sorted ordinals into byTime
+    private final Map<String, int[]> categoryIndex = new HashMap<>();
+    private final Map<String, int[]> languageIndex = new HashMap<>();
+
+    // uuid -> ordinal into byTime
+    private final Map<String, Integer> ordinals;
+
+    // keyword -> articles, mapped from the keyword index file (null if it was not built)
+    private final KeywordIndexFile keywordIndex;
+
+    // top-N structures, already sorted (times descending, data ascending)
+    private final PairData[] keywords;
+    private final PairData[] authors;
+    private final Map<String, PairData[]> authorsByLanguage = new HashMap<>();
+
+    /**
+     * Builds the index from an already merged database
+     *
+     * @param db the concurrent database, after the merge stage
+     */
+    public QueryIndex(ConcurrentDb db) {
+        this(db, null);
+    }
+
+    /**
+     * Builds the index from an already merged database, with keyword search over a keyword index
+     *
+     * @param db the concurrent database, after the merge stage
+     * @param keywordIndex the mapped keyword index file, or null for no keyword search
+     */
+    public QueryIndex(ConcurrentDb db, KeywordIndexFile keywordIndex) {
+        this.keywordIndex = keywordIndex;
+        List<NewsArticle> articles = db.getArticles();
+        int n = articles.size();
+
+        // the global list is sorted newest first
+        byTime = new NewsArticle[n];
+        published = new String[n];
+        ordinals = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            NewsArticle article = articles.get(n - 1 - i);
+            byTime[i] = article;
+            published[i] = article.getPublished();
+            ordinals.put(article.getUuid(), i);
+        }
+
+        buildOrdinalIndex(db.getCategoryToArticle(), ordinals, categoryIndex, true);
+        buildOrdinalIndex(db.getLanguageToArticle(), ordinals, languageIndex, false);
+
+        keywords = db.getKeywordsData().toArray(NO_DATA);
+        authors = buildAuthorRankings();
+    }
+
+    /**
+     * Converts uuid lists into sorted ordinal arrays
+     *
+     * @param lists the uuid lists of each key
+     * @param ordinals uuid to ordinal mapping
+     * @param index the index to fill
+     * @param normalize whether the normalized key (as used in output file names) is indexed too
+     */
+    private void buildOrdinalIndex(Map<String, List<String>> lists, Map<String, Integer> ordinals,
+                                   Map<String, int[]> index, boolean normalize) {
+        for (var entry : lists.entrySet()) {
+            int[] ords = entry.getValue().stream()
+                    .map(ordinals::get)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+
+            index.put(entry.getKey(), ords);
+            if (normalize) {
+                index.putIfAbsent(Utils.normalizeCategory(entry.getKey()), ords);
+            }
+        }
+    }
+
+    /**
+     * Counts articles per author, globally and per language
+     *
+     * @return the global author ranking
+     */
+    private PairData[] buildAuthorRankings() {
+        Map<String, Integer> global = new HashMap<>();
+        Map<String, Map<String, Integer>> perLanguage = new HashMap<>();
+
+        for (NewsArticle article : byTime) {
+            String author = article.getAuthor();
+            if (author == null) continue;
+
+            global.merge(author, 1, Integer::sum);
+            if (article.getLanguage() != null) {
+                perLanguage.computeIfAbsent(article.getLanguage(), l -> new HashMap<>())
+                        .merge(author, 1, Integer::sum);
+            }
+        }
+
+        perLanguage.forEach((language, counts) -> authorsByLanguage.put(language, toRanking(counts)));
+        return toRanking(global);
+    }
+
+    private static PairData[] toRanking(Map<String, Integer> counts) {
+        PairData[] ranking = new PairData[counts.size()];
+        int i = 0;
+        for (var entry : counts.entrySet()) {
+            ranking[i++] = new PairData(entry.getKey(), entry.getValue());
+        }
+        Arrays.sort(ranking);
+        return ranking;
+    }
+
+    /**
+     * Finds the first position whose timestamp is >= key (or > key when upper is set)
+     *
+     * @param ords ordinals to search, or null to search all articles
+     * @param key the timestamp to look for
+     * @param upper whether equal timestamps are skipped
+     * @return the insertion position inside ords
+     */
+    private int bound(int[] ords, String key, boolean upper) {
+        int lo = 0, hi = ords == null ? published.length : ords.length;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = published[ords == null ? mid : ords[mid]].compareTo(key);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the articles of an ordinal list published in [from, to], oldest first
+     *
+     * @param ords ordinals to search, or null for all articles
+     * @param from lower timestamp bound (inclusive), null for no bound
+     * @param to upper timestamp bound (inclusive), null for no bound
+     * @param limit maximum number of articles returned
+     * @return the matching articles
+     */
+    private List<NewsArticle> range(int[] ords, String from, String to, int limit) {
+        if (ords != null && ords.length == 0) return List.of();
+
+        int size = ords == null ? byTime.length : ords.length;
+        int lo = from == null ? 0 : bound(ords, from, false);
+        int hi = to == null ? size : bound(ords, to, true);
+        hi = (int) Math.min(hi, (long) lo + Math.max(limit, 0));
+
+        List<NewsArticle> result = new ArrayList<>(Math.max(hi - lo, 0));
+        for (int i = lo; i < hi; i++) {
+            result.add(byTime[ords == null ? i : ords[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all articles published in [from, to]
+     *
+     * @param from lower bound (inclusive), null for no bound
+     * @param to upper bound (inclusive), null for no bound
+     * @param limit maximum number of articles returned
+     * @return the matching articles, oldest first
+     */
+    public List<NewsArticle> between(String from, String to, int limit) {
+        return range(null, from, to, limit);
+    }
+
+    /**
+     * Returns the articles of a category published in [from, to]
+     *
+     * @param category category name (raw or normalized)
+     * @param from lower bound (inclusive), null for no bound
+     * @param to upper bound (inclusive), null for no bound
+     * @param limit maximum number of articles returned
+     * @return the matching articles, oldest first
+     */
+    public List<NewsArticle> inCategory(String category, String from, String to, int limit) {
+        return range(categoryIndex.getOrDefault(category, NO_ARTICLES), from, to, limit);
+    }
+
+    /**
+     * Returns the articles of a language published in [from, to]
+     *
+     * @param language language name
+     * @param from lower bound (inclusive), null for no bound
+     * @param to upper bound (inclusive), null for no bound
+     * @param limit maximum number of articles returned
+     * @return the matching articles, oldest first
+     */
+    public List<NewsArticle> inLanguage(String language, String from, String to, int limit) {
+        return range(languageIndex.getOrDefault(language, NO_ARTICLES), from, to, limit);
+    }
+
+    /**
+     * Returns the n most frequent english keywords
+     *
+     * @param n number of keywords
+     * @return the top keywords
+     */
+    public List<PairData> topKeywords(int n) {
+        return top(keywords, n);
+    }
+
+    /**
+     * Returns the n authors with most articles
+     *
+     * @param language language filter, null for all languages
+     * @param n number of authors
+     * @return the top authors
+     */
+    public List<PairData> topAuthors(String language, int n) {
+        PairData[] ranking = language == null ? authors : authorsByLanguage.getOrDefault(language, NO_DATA);
+        return top(ranking, n);
+    }
+
+    /**
+     * Returns the articles containing all (or any) of the keywords, in index order
+     *
+     * @param keywords the keywords, matched in lowercase
+     * @param all whether every keyword must be present (AND) or any of them (OR)
+     * @param limit maximum number of articles returned
+     * @return the matching articles
+     */
+    public List<NewsArticle> search(List<String> keywords, boolean all, int limit) {
+        if (keywordIndex == null) {
+            throw new IllegalArgumentException("Keyword index not built (run with -Daggregator.keywordIndex=true)");
+        }
+
+        List<String> lower = keywords.stream().map(String::toLowerCase).toList();
+        int[] matches = all ? keywordIndex.and(lower) : keywordIndex.or(lower);
+
+        List<NewsArticle> result = new ArrayList<>();
+        for (int i = 0; i < matches.length && result.size() < limit; i++) {
+            Integer ordinal = ordinals.get(keywordIndex.uuid(matches[i]));
+            if (ordinal != null) {
+                result.add(byTime[ordinal]);
+            }
+        }
+        return result;
+    }
+
+    public boolean hasKeywordIndex() {
+        return keywordIndex != null;
+    }
+
+    private static List<PairData> top(PairData[] ranking, int n) {
+        return Arrays.asList(ranking).subList(0, Math.clamp(n, 0, ranking.length));
+    }
+
+    public int size() {
+        return byTime.length;
+    }
+
+    public String getPublished(int ordinal) {
+        return published[ordinal];
+    }
+
+    public Set<String> getCategories() {
+        return categoryIndex.keySet();
+    }
+
+    public Set<String> getLanguages() {
+        return languageIndex.keySet();
+    }
+}
@@ -0,0 +1,108 @@
+package query;
+
+import database.AbstractDataBase.PairData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Load-test harness that runs a deterministic mix of queries against a QueryIndex and reports latency percentiles
+ */
+public class QueryLoadTest {
+    private static final long SEED = 42;
+    private static final int TOP_N = 20;
+    private static final int LIMIT = 100;
+    private static final int KEYWORD_POOL = 1000;
+
+    private final QueryIndex index;
+    private final int numQueries;
+
+    /**
+     * Constructs the harness
+     *
+     * @param index the index to query
+     * @param numQueries number of measured queries (a tenth more are run as warm-up)
+     */
+    public QueryLoadTest(QueryIndex index, int numQueries) {
+        this.index = index;
+        this.numQueries = numQueries;
+    }
+
+    /**
+     * Runs the warm-up and measured queries and prints the latency summary
+     */
+    public void execute() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<String> categories = new ArrayList<>(index.getCategories());
+        List<String> languages = new ArrayList<>(index.getLanguages());
+
+        // warm-up, not measured
+        for (int i = 0; i < numQueries / 10; i++) {
+            runQuery(random, categories, languages);
+        }
+
+        long[] latencies = new long[numQueries];
+        long results = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < numQueries; i++) {
+            long t0 = System.nanoTime();
+            results += runQuery(random, categories, languages);
+            latencies[i] = System.nanoTime() - t0;
+        }
+
+        long total = System.nanoTime() - start;
+        Arrays.sort(latencies);
+
+        System.out.printf("Query load test: %d queries, %d results, %.0f queries/s%n",
+                numQueries, results, numQueries / (total / 1e9));
+        System.out.printf("Query latency: p50 = %.1f us, p99 = %.1f us, max = %.1f us%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e3);
+    }
+
+    /**
+     * Runs one random query: a time window over a category or language, a top-N ranking or a keyword search
+     *
+     * @return the number of results, so the work cannot be optimized away
+     */
+    private int runQuery(SplittableRandom random, List<String> categories, List<String> languages) {
+        if (index.size() == 0) return 0;
+
+        String from = index.getPublished(random.nextInt(index.size()));
+        String to = index.getPublished(random.nextInt(index.size()));
+        if (from.compareTo(to) > 0) {
+            String aux = from;
+            from = to;
+            to = aux;
+        }
+
+        // keyword searches over one or two of the top keywords, when the keyword index was built
+        if (index.hasKeywordIndex() && random.nextInt(5) == 0) {
+            List<PairData> keywords = index.topKeywords(KEYWORD_POOL);
+            if (keywords.isEmpty()) return 0;
+
+            List<String> query = random.nextBoolean()
+                    ? List.of(keywords.get(random.nextInt(keywords.size())).data())
+                    : List.of(keywords.get(random.nextInt(keywords.size())).data(),
+                              keywords.get(random.nextInt(keywords.size())).data());
+            return index.search(query, random.nextBoolean(), LIMIT).size();
+        }
+
+        return switch (random.nextInt(4)) {
+            case 0 -> categories.isEmpty() ? 0 :
+                    index.inCategory(categories.get(random.nextInt(categories.size())), from, to, LIMIT).size();
+            case 1 -> languages.isEmpty() ? 0 :
+                    index.inLanguage(languages.get(random.nextInt(languages.size())), from, to, LIMIT).size();
+            case 2 -> index.topAuthors(languages.isEmpty() ? null :
+                    languages.get(random.nextInt(languages.size())), TOP_N).size();
+            default -> index.topKeywords(TOP_N).size();
+        };
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.round(p * (sorted.length - 1))] / 1e3;
+    }
+}
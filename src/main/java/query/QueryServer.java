@@ -0,0 +1,153 @@
+package query;
+
+import articles.NewsArticle;
+import auxs.Constants;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Small local HTTP endpoint serving queries from a QueryIndex as JSON
+ * <p>
+ * GET /articles?category=&amp;language=&amp;from=&amp;to=&amp;limit=
+ * GET /authors?language=&amp;n=
+ * GET /keywords?n=
+ * GET /search?q=word+word&amp;op=and|or&amp;limit=
+ */
+public class QueryServer {
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int DEFAULT_TOP = 20;
+
+    private final QueryIndex index;
+    private final HttpServer server;
+
+    /**
+     * Record describing an article in query responses
+     */
+    public record ArticleView(String uuid, String published, String url) {
+        static ArticleView of(NewsArticle article) {
+            return new ArticleView(article.getUuid(), article.getPublished(), article.getUrl());
+        }
+    }
+
+    /**
+     * Creates a server bound to the loopback interface
+     *
+     * @param index the index to serve
+     * @param port the local port
+     * @throws IOException if the port cannot be bound
+     */
+    public QueryServer(QueryIndex index, int port) throws IOException {
+        this.index = index;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+        server.createContext("/articles", exchange -> handle(exchange, this::articles));
+        server.createContext("/authors", exchange -> handle(exchange,
+                params -> index.topAuthors(params.get("language"), intParam(params, "n", DEFAULT_TOP))));
+        server.createContext("/keywords", exchange -> handle(exchange,
+                params -> index.topKeywords(intParam(params, "n", DEFAULT_TOP))));
+        server.createContext("/search", exchange -> handle(exchange, this::search));
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Object articles(Map<String, String> params) {
+        String from = params.get("from"), to = params.get("to");
+        int limit = intParam(params, "limit", DEFAULT_LIMIT);
+
+        List<NewsArticle> result;
+        if (params.containsKey("category")) {
+            result = index.inCategory(params.get("category"), from, to, limit);
+        } else if (params.containsKey("language")) {
+            result = index.inLanguage(params.get("language"), from, to, limit);
+        } else {
+            result = index.between(from, to, limit);
+        }
+        return result.stream().map(ArticleView::of).toList();
+    }
+
+    private Object search(Map<String, String> params) {
+        String q = params.getOrDefault("q", "").trim();
+        if (q.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter q");
+        }
+
+        String op = params.getOrDefault("op", "and");
+        if (!op.equals("and") && !op.equals("or")) {
+            throw new IllegalArgumentException("Invalid value for op: " + op);
+        }
+        return index.search(List.of(q.split("\\s+")), op.equals("and"), intParam(params, "limit", DEFAULT_LIMIT))
+                .stream().map(ArticleView::of).toList();
+    }
+
+    /**
+     * Runs a query and writes its result as JSON
+     *
+     * @param exchange the http exchange
+     * @param query the query to answer, from the decoded parameters
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(HttpExchange exchange, Function<Map<String, String>, Object> query) throws IOException {
+        int status = 200;
+        byte[] body;
+
+        try {
+            body = Constants.MAPPER.writeValueAsBytes(query.apply(parseQuery(exchange.getRequestURI().getRawQuery())));
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = Constants.MAPPER.writeValueAsBytes(Map.of("error", String.valueOf(e.getMessage())));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package sketches;
+
+/**
+ * Count-Min sketch of point frequencies (fixed memory, mergeable by cell sum).
+ * <p>
+ * Estimates never undercount; with width w = ceil(e / epsilon) and depth d = ceil(ln(1 / delta)), an estimate
+ * exceeds the true count by more than epsilon * N with probability at most delta (N = total count added).
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[][] cells;
+    private long total;
+
+    /**
+     * Creates an empty sketch sized for the given error guarantees
+     *
+     * @param epsilon relative overestimate bound (fraction of the total count)
+     * @param delta probability of exceeding the bound
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        this((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    /**
+     * Creates an empty sketch with explicit dimensions
+     *
+     * @param width counters per row
+     * @param depth number of rows (hash functions)
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Count-Min dimensions must be positive: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.cells = new long[depth][width];
+    }
+
+    /**
+     * Adds occurrences of a key
+     *
+     * @param key the key
+     * @param count the number of occurrences
+     */
+    public void add(String key, long count) {
+        long h = Hashing.hash64(key);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+
+        // double hashing: row i uses h1 + i * h2
+        for (int i = 0; i < depth; i++) {
+            cells[i][Math.floorMod(h1 + i * h2, width)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Estimates the count of a key (never below the true count)
+     *
+     * @param key the key
+     * @return the estimated count
+     */
+    public long estimate(String key) {
+        long h = Hashing.hash64(key);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, cells[i][Math.floorMod(h1 + i * h2, width)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds all counts of another sketch with the same dimensions
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different dimensions");
+        }
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < width; j++) {
+                cells[i][j] += other.cells[i][j];
+            }
+        }
+        total += other.total;
+    }
+
+    /**
+     * Returns the overestimate bound of the point estimates (e / width * total)
+     *
+     * @return the bound, holding with probability 1 - failureProbability()
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    /**
+     * Returns the probability that an estimate exceeds errorBound()
+     *
+     * @return e^-depth
+     */
+    public double failureProbability() {
+        return Math.exp(-depth);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
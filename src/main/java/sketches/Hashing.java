@@ -0,0 +1,38 @@
+package sketches;
+
+/**
+ * Utility class for the 64-bit hashes used by the sketches
+ */
+public final class Hashing {
+    private Hashing() {
+        // utility class
+    }
+
+    /**
+     * Hashes a string to 64 well-mixed bits (polynomial hash finished with the murmur3 mixer)
+     *
+     * @param s the string to hash (null hashes to a fixed value)
+     * @return the 64-bit hash
+     */
+    public static long hash64(String s) {
+        long h = 1125899906842597L;
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h = 31 * h + s.charAt(i);
+            }
+        }
+        return mix64(h);
+    }
+
+    /**
+     * Murmur3 fmix64 finalizer
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
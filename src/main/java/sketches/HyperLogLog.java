@@ -0,0 +1,92 @@
+package sketches;
+
+/**
+ * HyperLogLog distinct counter with 2^precision one-byte registers (fixed memory, mergeable by register max).
+ * The relative standard error of the estimate is 1.04 / sqrt(2^precision).
+ */
+public class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param precision number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds an element
+     *
+     * @param value the element
+     */
+    public void add(String value) {
+        long h = Hashing.hash64(value);
+        int idx = (int) (h >>> (64 - precision));
+        // rank of the first set bit in the remaining bits (a sentinel bit bounds it)
+        int rank = Long.numberOfLeadingZeros((h << precision) | (1L << (precision - 1))) + 1;
+
+        if (rank > registers[idx]) {
+            registers[idx] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds all elements of another sketch with the same precision
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+    }
+
+    /**
+     * Estimates the number of distinct elements added
+     *
+     * @return the estimate
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+
+        // small range correction: linear counting while there are empty registers
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns the relative standard error of the estimates
+     *
+     * @return 1.04 / sqrt(m)
+     */
+    public double relativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+}
@@ -0,0 +1,81 @@
+package sketches;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MinHash signatures over the word shingles of a text. The fraction of equal positions in the signatures of two
+ * texts estimates the Jaccard similarity of their shingle sets, with a standard error of at most 0.5 / sqrt(k).
+ */
+public class MinHash {
+    private final long[] seeds;
+    private final int shingleSize;
+
+    /**
+     * Creates the k hash functions of the signatures
+     *
+     * @param numHashes signature length k
+     * @param shingleSize words per shingle
+     * @param seed seed of the hash functions
+     */
+    public MinHash(int numHashes, int shingleSize, long seed) {
+        if (numHashes < 1 || shingleSize < 1) {
+            throw new IllegalArgumentException("MinHash needs at least one hash and one word per shingle");
+        }
+        this.shingleSize = shingleSize;
+        this.seeds = new long[numHashes];
+        for (int i = 0; i < numHashes; i++) {
+            seeds[i] = Hashing.mix64(seed + 0x9e3779b97f4a7c15L * (i + 1));
+        }
+    }
+
+    /**
+     * Computes the signature of a text; a text shorter than one shingle is a single shingle
+     *
+     * @param words the words of the text, in order
+     * @return the signature, or null if the text has no words
+     */
+    public int[] signature(List<String> words) {
+        if (words.isEmpty()) return null;
+
+        long[] wordHashes = new long[words.size()];
+        for (int i = 0; i < wordHashes.length; i++) {
+            wordHashes[i] = Hashing.hash64(words.get(i));
+        }
+
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        int shingles = Math.max(1, wordHashes.length - shingleSize + 1);
+        for (int s = 0; s < shingles; s++) {
+            // order-sensitive combination of the words of the shingle
+            long shingle = 0;
+            for (int w = s; w < Math.min(s + shingleSize, wordHashes.length); w++) {
+                shingle = Long.rotateLeft(shingle, 23) ^ wordHashes[w];
+            }
+
+            for (int i = 0; i < seeds.length; i++) {
+                int h = (int) (Hashing.mix64(shingle ^ seeds[i]) >>> 32);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of two texts from their signatures
+     *
+     * @param a the first signature
+     * @param b the second signature, of the same length
+     * @return the fraction of equal positions
+     */
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / a.length;
+    }
+}
@@ -0,0 +1,193 @@
+package sketches;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving top-K summary monitoring at most capacity keys (fixed memory, mergeable).
+ * <p>
+ * Every monitored count is an overestimate by at most its recorded error, and every key whose true count exceeds
+ * N / capacity is monitored (N = total count added). The counters are kept in a min-heap on count, so an
+ * unmonitored key replaces the smallest counter in O(log capacity).
+ */
+public class SpaceSaving {
+    /**
+     * A monitored key with its (over)estimated count and the maximum overestimate
+     *
+     * @param key the key
+     * @param count the estimated count
+     * @param error the maximum amount by which count exceeds the true count
+     */
+    public record Entry(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+        final String key;
+        long count;
+        long error;
+        int heapIndex;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final Counter[] heap;
+    private int size;
+    private long total;
+
+    /**
+     * Creates an empty summary
+     *
+     * @param capacity maximum number of monitored keys
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    /**
+     * Adds occurrences of a key
+     *
+     * @param key the key
+     * @param count the number of occurrences
+     */
+    public void add(String key, long count) {
+        total += count;
+        add(key, count, 0);
+    }
+
+    private void add(String key, long count, long error) {
+        Counter c = counters.get(key);
+        if (c != null) {
+            c.count += count;
+            c.error += error;
+            siftDown(c.heapIndex);
+            return;
+        }
+
+        if (size < capacity) {
+            c = new Counter(key, count, error);
+            counters.put(key, c);
+            c.heapIndex = size;
+            heap[size++] = c;
+            siftUp(c.heapIndex);
+            return;
+        }
+
+        // replace the smallest counter; the new key inherits its count as error
+        Counter min = heap[0];
+        counters.remove(min.key);
+        c = new Counter(key, min.count + count, min.count + error);
+        c.heapIndex = 0;
+        heap[0] = c;
+        counters.put(key, c);
+        siftDown(0);
+    }
+
+    /**
+     * Adds another summary: counts of common keys are summed, and a key missing from a full summary is charged
+     * that summary's minimum count as count and error; the largest capacity counters are kept
+     *
+     * @param other the summary to merge
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = minCount(), otherMin = other.minCount();
+        Map<String, Entry> merged = new HashMap<>();
+
+        for (Entry e : entries()) {
+            Counter o = other.counters.get(e.key());
+            merged.put(e.key(), o == null
+                    ? new Entry(e.key(), e.count() + otherMin, e.error() + otherMin)
+                    : new Entry(e.key(), e.count() + o.count, e.error() + o.error));
+        }
+        for (Entry e : other.entries()) {
+            if (!merged.containsKey(e.key())) {
+                merged.put(e.key(), new Entry(e.key(), e.count() + thisMin, e.error() + thisMin));
+            }
+        }
+
+        List<Entry> kept = new ArrayList<>(merged.values());
+        kept.sort((a, b) -> Long.compare(b.count(), a.count()));
+
+        counters.clear();
+        size = 0;
+        for (Entry e : kept.subList(0, Math.min(capacity, kept.size()))) {
+            add(e.key(), e.count(), e.error());
+        }
+        total += other.total;
+    }
+
+    /**
+     * Returns the smallest monitored count, which bounds the count of any unmonitored key (0 while not full)
+     */
+    private long minCount() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    /**
+     * Returns the monitored keys, by decreasing count then key
+     *
+     * @return the entries
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(heap[i].key, heap[i].count, heap[i].error));
+        }
+        entries.sort((a, b) -> a.count() != b.count() ? Long.compare(b.count(), a.count()) : a.key().compareTo(b.key()));
+        return entries;
+    }
+
+    /**
+     * Returns the bound on the count of any unmonitored key and on any overestimate (N / capacity)
+     *
+     * @return the error bound
+     */
+    public long errorBound() {
+        return (total + capacity - 1) / capacity;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    private void siftUp(int i) {
+        Counter c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= c.count) break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(c, i);
+    }
+
+    private void siftDown(int i) {
+        Counter c = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if (c.count <= heap[child].count) break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(c, i);
+    }
+
+    private void place(Counter c, int i) {
+        heap[i] = c;
+        c.heapIndex = i;
+    }
+}
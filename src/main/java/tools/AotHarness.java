@@ -0,0 +1,124 @@
+package tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compares the startup of Tema1 with and without the AOT cache written by a training run (make aot-train):
+ * time to first stage, execution time and total process time, in fresh JVMs alternating between both setups.
+ * <p>
+ * Usage: AotHarness articles=FILE inputs=FILE [cache=target/tema1.aot] [flag=-XX:AOTCache=] [threads=4] [runs=5]
+ * [csv=aot.csv] [jvm="-Xmx1g"]
+ * <p>
+ * flag selects how the cache is passed, e.g. flag=-XX:SharedArchiveFile= for a CDS archive on older JDKs.
+ */
+public class AotHarness {
+    private final String articlesFile;
+    private final String inputsFile;
+    private final String cacheFlag;
+    private final String threads;
+    private final int runs;
+    private final File csvFile;
+    private final List<String> jvmArgs;
+
+    /**
+     * Configures the harness from the command line arguments
+     *
+     * @param args parsed key=value arguments
+     */
+    public AotHarness(ToolArgs args) {
+        articlesFile = new File(args.getString("articles", "articles.txt")).getAbsolutePath();
+        inputsFile = new File(args.getString("inputs", "inputs.txt")).getAbsolutePath();
+        String cache = new File(args.getString("cache", "target/tema1.aot")).getAbsolutePath();
+        cacheFlag = args.getString("flag", "-XX:AOTCache=") + cache;
+        threads = args.getString("threads", "4");
+        runs = args.getInt("runs", 5);
+        csvFile = new File(args.getString("csv", "aot.csv"));
+
+        String jvm = args.getString("jvm", "").trim();
+        jvmArgs = new ArrayList<>(jvm.isEmpty() ? List.of() : List.of(jvm.split("\\s+")));
+        jvmArgs.add("-Daggregator.timing.startup=true");
+
+        if (!new File(cache).exists()) {
+            System.err.println("[WARN] no cache at " + cache + ", run make aot-train first");
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            new AotHarness(new ToolArgs(args)).execute();
+        } catch (IOException e) {
+            System.err.println("AOT comparison failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs both setups the configured number of times, interleaved so that both see the same page cache,
+     * then writes the CSV
+     *
+     * @throws IOException if a run fails or the CSV cannot be written
+     */
+    public void execute() throws IOException {
+        List<String> cachedArgs = new ArrayList<>(jvmArgs);
+        cachedArgs.add(cacheFlag);
+
+        Map<String, Tema1Run[]> results = new LinkedHashMap<>();
+        results.put("no-cache", new Tema1Run[runs]);
+        results.put("cache", new Tema1Run[runs]);
+
+        for (int run = 0; run < runs; run++) {
+            for (var entry : results.entrySet()) {
+                Path workDir = Files.createTempDirectory("aot-" + entry.getKey() + "-");
+                Tema1Run result = Tema1Run.launch(entry.getKey().equals("cache") ? cachedArgs : jvmArgs,
+                        threads, articlesFile, inputsFile, workDir);
+                ScalingHarness.deleteRecursively(workDir.toFile());
+
+                entry.getValue()[run] = result;
+                System.out.println(entry.getKey() + ", run " + run + ": first stage " + result.firstStageMs()
+                        + " ms, execution " + result.executionMs() + " ms, total " + result.wallMs() + " ms");
+            }
+        }
+
+        writeCsv(results);
+        System.out.println("AOT comparison written to " + csvFile.getPath());
+    }
+
+    /**
+     * Writes one row per setup with the median of every timing and the min/max total time
+     *
+     * @param results runs of every setup
+     * @throws IOException if the file cannot be written
+     */
+    private void writeCsv(Map<String, Tema1Run[]> results) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFile))) {
+            writer.write("setup,first_stage_ms,execution_ms,total_ms,min_total_ms,max_total_ms");
+            writer.newLine();
+
+            for (var entry : results.entrySet()) {
+                Tema1Run[] setupRuns = entry.getValue();
+                long[] total = sorted(setupRuns, Tema1Run::wallMs);
+
+                writer.write(String.format(Locale.ROOT, "%s,%.1f,%.1f,%.1f,%d,%d", entry.getKey(),
+                        median(sorted(setupRuns, Tema1Run::firstStageMs)),
+                        median(sorted(setupRuns, Tema1Run::executionMs)),
+                        median(total), total[0], total[total.length - 1]));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static long[] sorted(Tema1Run[] runs, ToLongFunction<Tema1Run> timing) {
+        return Arrays.stream(runs).mapToLong(timing).sorted().toArray();
+    }
+
+    private static double median(long[] sorted) {
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0;
+    }
+}
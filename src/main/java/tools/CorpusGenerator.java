@@ -0,0 +1,397 @@
+package tools;
+
+import articles.NewsArticle;
+import auxs.Constants;
+import database.CompressedInput;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic generator of article corpora in the NewsArticle JSON schema, together with the
+ * manifest (articles.txt) and auxiliary files (inputs.txt) expected by Tema1.
+ * <p>
+ * Every file and article is derived only from the seed and its index, so the same arguments always
+ * produce the same corpus, whatever the number of threads used to generate it.
+ * <p>
+ * Usage: CorpusGenerator out=DIR [files=1000] [articles=100] [sizes=fixed|uniform|exponential|lognormal]
+ * [dupUuid=0.05] [dupTitle=0.02] [languages=8] [langSkew=1.2] [categories=12] [catSkew=1.0]
+ * [maxCategories=3] [authors=2000] [words=300] [vocabulary=50000] [seed=1] [compress=none|gz|zst]
+ * [nearDup=0] [nearDupEdits=0.02]
+ * <p>
+ * With nearDup=R, a fraction R of the articles get the text of an earlier article with a fraction nearDupEdits of
+ * its words replaced (a syndicated copy), under their own uuid and title; their number is printed, as the ground
+ * truth of the near-duplicate detection.
+ */
+public class CorpusGenerator {
+    private static final String[] LANGUAGE_NAMES = {
+            "english", "german", "french", "spanish", "italian", "portuguese", "russian", "dutch", "swedish",
+            "polish", "turkish", "arabic", "chinese", "japanese", "korean", "greek", "finnish", "danish"
+    };
+    private static final String[] CATEGORY_NAMES = {
+            "Politics", "Sports", "Economy, Business and Finance", "Science and Technology", "Health",
+            "Entertainment", "Environment", "Education", "Crime, Law and Justice", "Lifestyle and Leisure",
+            "Arts, Culture", "Weather", "Religion", "Labour", "Society"
+    };
+    private static final String[] LINKING_WORDS = {
+            "the", "and", "of", "to", "in", "a", "is", "that", "for", "on", "with", "as", "by", "at", "from",
+            "it", "was", "be", "are", "this", "or", "an", "but", "not", "have", "has", "which", "their"
+    };
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "ta", "po", "si", "de", "vu", "ra", "te", "no", "li", "ma", "zo"
+    };
+
+    private static final long START_EPOCH = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final long YEAR_SECONDS = 365L * 24 * 3600;
+    private static final DateTimeFormatter PUBLISHED_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx").withZone(ZoneOffset.UTC);
+    // generators of the articles, uuids, titles and near-duplicate texts of every id
+    private static final int ARTICLE_STREAM = 0, UUID_STREAM = 1, TITLE_STREAM = 2, NEAR_DUP_STREAM = 3;
+    private static final int FILES_PER_DIR = 1000;
+
+    private final File outDir;
+    private final int numFiles;
+    private final int meanArticles;
+    private final String sizeDistribution;
+    private final double dupUuidRate;
+    private final double dupTitleRate;
+    private final double nearDupRate;
+    private final double nearDupEdits;
+    private final int maxCategories;
+    private final int meanWords;
+    private final long seed;
+    // compression of the article files (null: plain JSON)
+    private final CompressedInput.Codec codec;
+
+    private final String[] languages;
+    private final String[] categories;
+    private final String[] vocabulary;
+    private final ZipfSampler languageSampler;
+    private final ZipfSampler categorySampler;
+    private final ZipfSampler authorSampler;
+    private final ZipfSampler wordSampler;
+
+    // first global article id of every file (size numFiles + 1)
+    private long[] fileOffsets;
+    // articles generated as edited copies of an earlier text
+    private final AtomicLong nearDuplicates = new AtomicLong();
+
+    /**
+     * Configures the generator from the command line arguments
+     *
+     * @param args parsed key=value arguments
+     */
+    public CorpusGenerator(ToolArgs args) {
+        outDir = new File(args.getString("out", "corpus"));
+        numFiles = args.getInt("files", 1000);
+        meanArticles = args.getInt("articles", 100);
+        sizeDistribution = args.getString("sizes", "exponential");
+        dupUuidRate = args.getDouble("dupUuid", 0.05);
+        dupTitleRate = args.getDouble("dupTitle", 0.02);
+        nearDupRate = args.getDouble("nearDup", 0);
+        nearDupEdits = args.getDouble("nearDupEdits", 0.02);
+        maxCategories = args.getInt("maxCategories", 3);
+        meanWords = args.getInt("words", 300);
+        seed = args.getLong("seed", 1);
+        String compress = args.getString("compress", "none");
+        codec = compress.equals("none") ? null : CompressedInput.Codec.of("." + compress);
+        if (codec == null && !compress.equals("none")) {
+            throw new IllegalArgumentException("Unknown compression: " + compress);
+        }
+
+        languages = names(LANGUAGE_NAMES, args.getInt("languages", 8), "language");
+        categories = names(CATEGORY_NAMES, args.getInt("categories", 12), "Category ");
+        vocabulary = buildVocabulary(args.getInt("vocabulary", 50000));
+
+        languageSampler = new ZipfSampler(languages.length, args.getDouble("langSkew", 1.2));
+        categorySampler = new ZipfSampler(categories.length, args.getDouble("catSkew", 1.0));
+        authorSampler = new ZipfSampler(args.getInt("authors", 2000), 0.8);
+        wordSampler = new ZipfSampler(vocabulary.length, 1.0);
+    }
+
+    public static void main(String[] args) {
+        CorpusGenerator generator = new CorpusGenerator(new ToolArgs(args));
+        try {
+            generator.generate();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error generating corpus: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the whole corpus, the manifest and the auxiliary files
+     *
+     * @throws IOException if an output file cannot be written
+     */
+    public void generate() throws IOException {
+        long start = System.currentTimeMillis();
+        fileOffsets = computeFileOffsets();
+
+        writeListFile(new File(outDir, "languages.txt"), List.of(languages));
+        writeListFile(new File(outDir, "categories.txt"), List.of(categories));
+        writeListFile(new File(outDir, "linking_words.txt"), List.of(LINKING_WORDS));
+        writeListFile(new File(outDir, "inputs.txt"), List.of("languages.txt", "categories.txt", "linking_words.txt"));
+
+        List<String> paths = new ArrayList<>(numFiles);
+        for (int i = 0; i < numFiles; i++) {
+            paths.add(relativePath(i));
+        }
+        writeListFile(new File(outDir, "articles.txt"), paths);
+
+        // every file only depends on (seed, index): generation order does not change the output
+        AtomicLong bytes = new AtomicLong();
+        IntStream.range(0, numFiles).parallel().forEach(i -> bytes.addAndGet(writeArticleFile(i)));
+
+        System.out.printf("Generated %d articles in %d files (%.1f MB) in %d ms%n", fileOffsets[numFiles],
+                numFiles, bytes.get() / 1e6, System.currentTimeMillis() - start);
+        if (nearDupRate > 0) {
+            System.out.printf("%d articles are edited copies of an earlier text%n", nearDuplicates.get());
+        }
+    }
+
+    /**
+     * Draws the number of articles of every file from the configured distribution
+     *
+     * @return prefix sums of the file sizes
+     */
+    private long[] computeFileOffsets() {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] offsets = new long[numFiles + 1];
+
+        for (int i = 0; i < numFiles; i++) {
+            int size = switch (sizeDistribution) {
+                case "fixed" -> meanArticles;
+                case "uniform" -> 1 + random.nextInt(2 * meanArticles - 1);
+                case "exponential" -> 1 + (int) (-Math.log(1 - random.nextDouble()) * (meanArticles - 1));
+                case "lognormal" -> Math.max(1, (int) Math.round(meanArticles * Math.exp(gaussian(random) - 0.5)));
+                default -> throw new IllegalArgumentException("Unknown size distribution: " + sizeDistribution);
+            };
+            offsets[i + 1] = offsets[i] + size;
+        }
+        return offsets;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller, so the draw only depends on this generator
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private String relativePath(int fileIndex) {
+        return String.format("articles/%04d/%08d.json", fileIndex / FILES_PER_DIR, fileIndex)
+                + (codec == null ? "" : codec.getExtension());
+    }
+
+    /**
+     * Generates and writes one article file
+     *
+     * @param fileIndex index of the file
+     * @return the size of the written file
+     */
+    private long writeArticleFile(int fileIndex) {
+        List<NewsArticle> articles = new ArrayList<>((int) (fileOffsets[fileIndex + 1] - fileOffsets[fileIndex]));
+        for (long id = fileOffsets[fileIndex]; id < fileOffsets[fileIndex + 1]; id++) {
+            NewsArticle article = createArticle(id);
+            if (isNearDuplicate(id)) {
+                article.setText(copyText(id));
+                nearDuplicates.incrementAndGet();
+            }
+            articles.add(article);
+        }
+
+        File file = new File(outDir, relativePath(fileIndex));
+        file.getParentFile().mkdirs();
+        try (OutputStream out = codec == null
+                ? new FileOutputStream(file) : codec.compress(new FileOutputStream(file))) {
+            Constants.MAPPER.writeValue(out, articles);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file.length();
+    }
+
+    /**
+     * Creates the article with the given global id; duplicates reuse the uuid or title of an earlier id
+     *
+     * @param id global article id
+     * @return the article
+     */
+    private NewsArticle createArticle(long id) {
+        SplittableRandom random = random(ARTICLE_STREAM, id);
+        NewsArticle article = new NewsArticle();
+
+        long uuidSource = id > 0 && random.nextDouble() < dupUuidRate ? random.nextLong(id) : id;
+        long titleSource = id > 0 && random.nextDouble() < dupTitleRate ? random.nextLong(id) : id;
+
+        article.setUuid(uuid(uuidSource));
+        article.setTitle(title(titleSource));
+        article.setUrl("https://news.example.com/" + Long.toString(id, 36));
+        article.setAuthor("Author " + authorSampler.sample(random));
+        article.setPublished(PUBLISHED_FORMAT.format(Instant.ofEpochSecond(START_EPOCH + random.nextLong(YEAR_SECONDS))));
+        article.setLanguage(languages[languageSampler.sample(random)]);
+
+        int numCategories = random.nextInt(maxCategories + 1);
+        Set<String> articleCategories = new LinkedHashSet<>();
+        for (int i = 0; i < numCategories; i++) {
+            articleCategories.add(categories[categorySampler.sample(random)]);
+        }
+        article.setCategories(new ArrayList<>(articleCategories));
+        article.setText(text(random, meanWords / 2 + random.nextInt(meanWords + 1)));
+        return article;
+    }
+
+    /**
+     * Tells whether an article gets the edited text of an earlier article
+     */
+    private boolean isNearDuplicate(long id) {
+        return nearDupRate > 0 && id > 0 && random(NEAR_DUP_STREAM, id).nextDouble() < nearDupRate;
+    }
+
+    /**
+     * Returns the text of a random earlier article (itself possibly a copy) with a fraction of its words replaced
+     */
+    private String copyText(long id) {
+        SplittableRandom random = random(NEAR_DUP_STREAM, id);
+        random.nextDouble();
+        long source = random.nextLong(id);
+        String text = isNearDuplicate(source) ? copyText(source) : createArticle(source).getText();
+
+        String[] words = text.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (random.nextDouble() < nearDupEdits) {
+                words[i] = vocabulary[wordSampler.sample(random)];
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    /**
+     * Returns the generator of one stream of an id. Its seed is mixed: SplittableRandom adds a fixed gamma to its
+     * seed for every draw, so generators seeded with values a gamma apart (e.g. seed + id * gamma) would replay
+     * each other's draws shifted by one, making consecutive articles near-copies
+     */
+    private SplittableRandom random(int stream, long id) {
+        return new SplittableRandom(mix64(mix64(seed * 3 + stream) + id));
+    }
+
+    /**
+     * 64-bit finalizer of SplitMix64 (Stafford variant 13)
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private String uuid(long id) {
+        SplittableRandom random = random(UUID_STREAM, id);
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private String title(long id) {
+        SplittableRandom random = random(TITLE_STREAM, id);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            sb.append(vocabulary[wordSampler.sample(random)]).append(' ');
+        }
+        return sb.append(Long.toString(id, 36)).toString();
+    }
+
+    /**
+     * Generates a text with Zipf-distributed words, linking words, capitals and punctuation
+     */
+    private String text(SplittableRandom random, int words) {
+        StringBuilder sb = new StringBuilder(words * 8);
+        boolean sentenceStart = true;
+
+        for (int i = 0; i < words; i++) {
+            String word = random.nextInt(3) == 0
+                    ? LINKING_WORDS[random.nextInt(LINKING_WORDS.length)]
+                    : vocabulary[wordSampler.sample(random)];
+
+            if (sentenceStart) {
+                sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sb.append(word);
+            }
+
+            sentenceStart = random.nextInt(15) == 0;
+            sb.append(sentenceStart ? ". " : random.nextInt(20) == 0 ? ", " : " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds distinct letter-only words out of syllables
+     */
+    private static String[] buildVocabulary(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = i;
+            do {
+                sb.append(SYLLABLES[n % SYLLABLES.length]);
+                n /= SYLLABLES.length;
+            } while (n > 0);
+            words[i] = sb.toString();
+        }
+        return words;
+    }
+
+    private static String[] names(String[] known, int count, String prefix) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = i < known.length ? known[i] : prefix + i;
+        }
+        return names;
+    }
+
+    /**
+     * Writes a list file in the format read by DbInitializer (count line, then one item per line)
+     */
+    private static void writeListFile(File file, List<String> items) throws IOException {
+        file.getParentFile().mkdirs();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(String.valueOf(items.size()));
+            writer.newLine();
+            for (String item : items) {
+                writer.write(item);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Samples ranks 0..n-1 following a Zipf distribution (exponent 0 means uniform)
+     */
+    private static class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int idx = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(idx >= 0 ? idx : -idx - 1, cumulative.length - 1);
+        }
+    }
+}
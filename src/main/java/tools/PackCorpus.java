@@ -0,0 +1,28 @@
+package tools;
+
+import database.ArticleArchive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Packs the article files of a manifest into the archive Tema1 reads instead of the files (&lt;manifest&gt;.pack)
+ * <p>
+ * Usage: PackCorpus articles=FILE [out=FILE.pack]
+ */
+public class PackCorpus {
+    public static void main(String[] args) {
+        ToolArgs toolArgs = new ToolArgs(args);
+        String manifest = toolArgs.getString("articles", "articles.txt");
+        Path out = Path.of(toolArgs.getString("out", manifest + ArticleArchive.EXTENSION));
+
+        try {
+            long start = System.currentTimeMillis();
+            int files = ArticleArchive.write(manifest, out);
+            System.out.println("Packed " + files + " files into " + out + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.err.println("Error packing corpus: " + e.getMessage());
+        }
+    }
+}
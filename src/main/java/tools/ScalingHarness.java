@@ -0,0 +1,125 @@
+package tools;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Runs the full Tema1 pipeline in fresh JVMs for several thread counts and writes the execution time
+ * and speedup curves (the data behind graphs/time.png and graphs/speedup.png) as CSV.
+ * <p>
+ * Usage: ScalingHarness articles=FILE inputs=FILE [threads=1,2,4,6,8] [runs=3] [csv=scaling.csv] [jvm="-Xmx4g"]
+ */
+public class ScalingHarness {
+    private final String articlesFile;
+    private final String inputsFile;
+    private final int[] threadCounts;
+    private final int runs;
+    private final File csvFile;
+    private final List<String> jvmArgs;
+
+    /**
+     * Configures the harness from the command line arguments
+     *
+     * @param args parsed key=value arguments
+     */
+    public ScalingHarness(ToolArgs args) {
+        articlesFile = new File(args.getString("articles", "articles.txt")).getAbsolutePath();
+        inputsFile = new File(args.getString("inputs", "inputs.txt")).getAbsolutePath();
+        threadCounts = Arrays.stream(args.getString("threads", "1,2,4,6,8").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        runs = args.getInt("runs", 3);
+        csvFile = new File(args.getString("csv", "scaling.csv"));
+
+        String jvm = args.getString("jvm", "").trim();
+        jvmArgs = jvm.isEmpty() ? List.of() : List.of(jvm.split("\\s+"));
+    }
+
+    public static void main(String[] args) {
+        try {
+            new ScalingHarness(new ToolArgs(args)).execute();
+        } catch (IOException e) {
+            System.err.println("Scaling run failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs every thread count the configured number of times, then writes the CSV
+     *
+     * @throws IOException if a run fails or the CSV cannot be written
+     */
+    public void execute() throws IOException {
+        Map<Integer, long[]> times = new LinkedHashMap<>();
+        String referenceReport = null;
+
+        for (int threads : threadCounts) {
+            long[] runTimes = new long[runs];
+
+            for (int run = 0; run < runs; run++) {
+                Path workDir = Files.createTempDirectory("scaling-" + threads + "-");
+                runTimes[run] = Tema1Run.launch(jvmArgs, String.valueOf(threads), articlesFile, inputsFile, workDir)
+                        .executionMs();
+
+                // every run must produce the same report, otherwise the timings compare different work
+                String report = Files.readString(workDir.resolve("reports.txt"));
+                if (referenceReport == null) {
+                    referenceReport = report;
+                } else if (!referenceReport.equals(report)) {
+                    System.err.println("[WARN] reports.txt differs for " + threads + " threads (run " + run + ")");
+                }
+                deleteRecursively(workDir.toFile());
+
+                System.out.println(threads + " threads, run " + run + ": " + runTimes[run] + " ms");
+            }
+            Arrays.sort(runTimes);
+            times.put(threads, runTimes);
+        }
+
+        writeCsv(times);
+        System.out.println("Scaling results written to " + csvFile.getPath());
+    }
+
+    /**
+     * Writes one row per thread count: median/min/max time, speedup and efficiency relative to the first count
+     *
+     * @param times sorted run times of every thread count
+     * @throws IOException if the file cannot be written
+     */
+    private void writeCsv(Map<Integer, long[]> times) throws IOException {
+        // speedup is relative to the first thread count, which should be 1 to match graphs/speedup.png
+        double baseTime = median(times.values().iterator().next());
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFile))) {
+            writer.write("threads,median_ms,min_ms,max_ms,speedup,efficiency");
+            writer.newLine();
+
+            for (var entry : times.entrySet()) {
+                int threads = entry.getKey();
+                long[] runTimes = entry.getValue();
+                double speedup = baseTime / median(runTimes);
+
+                writer.write(String.format(Locale.ROOT, "%d,%.1f,%d,%d,%.3f,%.3f", threads, median(runTimes),
+                        runTimes[0], runTimes[runTimes.length - 1], speedup, speedup * threadCounts[0] / threads));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static double median(long[] sorted) {
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0;
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
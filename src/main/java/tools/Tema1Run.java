@@ -0,0 +1,77 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Timings of one Tema1 run in a fresh JVM, as seen by the launching tool
+ *
+ * @param wallMs time from spawning the JVM until it exited
+ * @param executionMs execution time reported by Tema1
+ * @param firstStageMs JVM uptime when the worker pipelines started, -1 if not reported
+ */
+record Tema1Run(long wallMs, long executionMs, long firstStageMs) {
+    private static final Pattern TIME_LINE = Pattern.compile("Execution time with (\\d+) threads = (\\d+) ms");
+    private static final Pattern FIRST_STAGE_LINE = Pattern.compile("Time to first stage = (\\d+) ms");
+
+    /**
+     * Runs Tema1 once in a new JVM, inside its own working directory
+     *
+     * @param jvmArgs options of the new JVM
+     * @param threads number of worker threads, or "auto"
+     * @param articlesFile absolute path of the articles list
+     * @param inputsFile absolute path of the auxiliary inputs list
+     * @param workDir directory receiving the output files
+     * @return the timings of the run
+     * @throws IOException if the process fails or does not report its time
+     */
+    static Tema1Run launch(List<String> jvmArgs, String threads, String articlesFile, String inputsFile,
+                           Path workDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Tema1");
+        command.add(threads);
+        command.add(articlesFile);
+        command.add(inputsFile);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .start();
+
+        long time = -1, firstStage = -1;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Matcher m = TIME_LINE.matcher(line);
+                if (m.find()) {
+                    time = Long.parseLong(m.group(2));
+                }
+                m = FIRST_STAGE_LINE.matcher(line);
+                if (m.find()) {
+                    firstStage = Long.parseLong(m.group(1));
+                }
+            }
+        }
+
+        try {
+            if (process.waitFor() != 0 || time < 0) {
+                throw new IOException("Tema1 with " + threads + " threads exited without reporting its time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for Tema1", e);
+        }
+        return new Tema1Run((System.nanoTime() - start) / 1_000_000, time, firstStage);
+    }
+}
@@ -0,0 +1,43 @@
+package tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses the key=value arguments of the command line tools
+ */
+public class ToolArgs {
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Parses the arguments
+     *
+     * @param args arguments in the key=value form
+     * @throws IllegalArgumentException if an argument has no value
+     */
+    public ToolArgs(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+    }
+
+    public String getString(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return values.containsKey(key) ? Long.parseLong(values.get(key)) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+}
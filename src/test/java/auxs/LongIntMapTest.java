@@ -0,0 +1,74 @@
+package auxs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LongIntMapTest {
+
+    /**
+     * Adds random packed keys to the map and the expected counts, with enough distinct keys for several resizes
+     */
+    private static void addRandom(LongIntMap map, Map<Long, Integer> expected, long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            // small ids repeat often, and the extreme ones check the packing
+            int high = random.nextInt(8) == 0 ? Integer.MAX_VALUE - random.nextInt(2) : random.nextInt(100);
+            int low = random.nextInt(8) == 0 ? Integer.MAX_VALUE : random.nextInt(50);
+            long key = LongIntMap.pack(high, low);
+            int delta = 1 + random.nextInt(5);
+
+            map.add(key, delta);
+            expected.merge(key, delta, Integer::sum);
+        }
+    }
+
+    private static void assertSameEntries(Map<Long, Integer> expected, LongIntMap map) {
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, count) -> assertEquals(count, map.get(key), "key " + key));
+
+        Map<Long, Integer> seen = new HashMap<>();
+        map.forEach((key, count) -> assertNull(seen.put(key, count)));
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void countsLikeAHashMapAcrossResizes() {
+        // from the smallest table: every insertion that fills half of it resizes, the inserted count included
+        LongIntMap map = new LongIntMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int n = 1; n <= 20_000; n *= 3) {
+            addRandom(map, expected, n, n);
+            assertSameEntries(expected, map);
+        }
+        assertEquals(0, map.get(LongIntMap.pack(1_000, 1_000)));
+    }
+
+    @Test
+    void addAllSumsTheCounts() {
+        LongIntMap left = new LongIntMap(), right = new LongIntMap(1000);
+        Map<Long, Integer> expected = new HashMap<>();
+        addRandom(left, expected, 1, 5_000);
+        addRandom(right, expected, 2, 5_000);
+
+        left.addAll(right);
+        assertSameEntries(expected, left);
+    }
+
+    @Test
+    void packsAndUnpacksNonNegativeInts() {
+        int[] values = {0, 1, 127, 1 << 16, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        for (int high : values) {
+            for (int low : values) {
+                long key = LongIntMap.pack(high, low);
+                assertEquals(high, LongIntMap.high(key));
+                assertEquals(low, LongIntMap.low(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package auxs;
+
+import jdk.incubator.vector.ShortVector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VectorTokenizerTest {
+    // every char of the \s of the scalar split
+    private static final String SPACES = " \t\n\u000B\f\r";
+    // non-ASCII chars: U+0130 and the Kelvin sign lowercase to ASCII letters, the last two are spaces but not \s
+    private static final String WIDE = "\u0130\u212A\u00E9\u00DF\u0131\u00C5\u03A3\u4E2D\u00A0\u2028";
+    private static final String SYMBOLS = "0123456789.,;:-_'\"()[]{}!?/\\@#$%^&*+=<>|~`";
+
+    private int lanes;
+
+    @BeforeEach
+    void requireVectorModule() {
+        // the module is added by the surefire argLine, the test is skipped when run without it
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "needs --add-modules jdk.incubator.vector");
+        // the scalar path must be the reference, and the vector one only lowercases ASCII outside Turkish locales
+        assumeFalse(Options.TOKENIZER.equals("vector"), "Utils already uses the vector tokenizer");
+        assumeTrue("I".toLowerCase().equals("i"), "the vector tokenizer does not support the default locale");
+        lanes = ShortVector.SPECIES_PREFERRED.length();
+    }
+
+    private static void assertSameWords(String text) {
+        Set<String> wordsSet = new HashSet<>();
+        List<String> wordList = new ArrayList<>();
+        VectorTokenizer.tokenize(text, wordsSet, wordList);
+
+        List<String> expectedList = new ArrayList<>();
+        Set<String> expectedSet = Utils.textToWords(text, expectedList);
+        assertEquals(expectedList, wordList, () -> "text " + escape(text));
+        assertEquals(expectedSet, wordsSet, () -> "text " + escape(text));
+        assertEquals(Utils.textToWordList(text), wordList, () -> "text " + escape(text));
+
+        // either collection may be left out
+        List<String> listOnly = new ArrayList<>();
+        VectorTokenizer.tokenize(text, null, listOnly);
+        assertEquals(expectedList, listOnly);
+        Set<String> setOnly = new HashSet<>();
+        VectorTokenizer.tokenize(text, setOnly, null);
+        assertEquals(expectedSet, setOnly);
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        text.chars().forEach(c -> sb.append(c >= 0x20 && c < 0x7F ? String.valueOf((char) c) : String.format("\\u%04X", c)));
+        return sb.toString();
+    }
+
+    /**
+     * Builds a text of exactly length chars from tokens of random lengths and kinds, split by runs of any \s char
+     */
+    private static String randomText(SplittableRandom random, int length, boolean letters) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            if (random.nextInt(3) == 0) {
+                for (int k = 1 + random.nextInt(3); k > 0; k--) {
+                    sb.append(SPACES.charAt(random.nextInt(SPACES.length())));
+                }
+            }
+            // mostly short words, some of them longer than 64 chars
+            int tokenLength = random.nextInt(10) == 0 ? 60 + random.nextInt(150) : 1 + random.nextInt(12);
+            for (int k = 0; k < tokenLength; k++) {
+                sb.append(randomChar(random, letters));
+            }
+            sb.append(SPACES.charAt(random.nextInt(SPACES.length())));
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    private static char randomChar(SplittableRandom random, boolean letters) {
+        int kind = random.nextInt(20);
+        if (!letters || kind < 2) return SYMBOLS.charAt(random.nextInt(SYMBOLS.length()));
+        if (kind < 4) return WIDE.charAt(random.nextInt(WIDE.length()));
+        // the chars next to the letters ('@', '[', '`', '{') check the bounds of the letter test
+        if (kind < 5) return "@[`{".charAt(random.nextInt(4));
+        char c = (char) ('a' + random.nextInt(26));
+        return kind < 10 ? Character.toUpperCase(c) : c;
+    }
+
+    @Test
+    void matchesTheScalarPathAroundVectorAndBitsetBoundaries() {
+        SplittableRandom random = new SplittableRandom(49);
+        List<Integer> lengths = new ArrayList<>();
+        for (int length = 0; length <= 3 * lanes; length++) {
+            lengths.add(length);
+        }
+        // a multiple of 64 is also one of the vector length, which divides it
+        for (int block = 64; block <= 64 * 5; block += 64) {
+            for (int delta = -lanes - 1; delta <= lanes + 1; delta++) {
+                lengths.add(block + delta);
+            }
+        }
+        for (int length : lengths) {
+            for (int round = 0; round < 8; round++) {
+                assertSameWords(randomText(random, length, true));
+            }
+        }
+        for (int round = 0; round < 200; round++) {
+            assertSameWords(randomText(random, random.nextInt(5_000), true));
+        }
+    }
+
+    @Test
+    void matchesTheScalarPathOnLongTokens() {
+        SplittableRandom random = new SplittableRandom(64);
+        for (int round = 0; round < 200; round++) {
+            // one token crossing several longs of the bitsets, at any offset
+            StringBuilder sb = new StringBuilder();
+            sb.append(" ".repeat(random.nextInt(70)));
+            for (int k = 64 + random.nextInt(300); k > 0; k--) {
+                sb.append(random.nextInt(30) == 0 ? randomChar(random, true) : (char) ('A' + random.nextInt(26)));
+            }
+            sb.append(SPACES.charAt(random.nextInt(SPACES.length())));
+            sb.append("x".repeat(random.nextInt(130)));
+            assertSameWords(sb.toString());
+        }
+    }
+
+    @Test
+    void matchesTheScalarPathOnEveryWhitespaceAndNonAsciiChar() {
+        for (char space : SPACES.toCharArray()) {
+            assertSameWords("one" + space + "Two" + space + space + "three");
+            assertSameWords(space + "lead" + space);
+        }
+        // U+0130 (capital I with dot) lowercases to i and a combining dot, the Kelvin sign to 'k'
+        assertSameWords("\u0130stanbul \u212Aelvin \u00C5ngstr\u00F6m \u0130 \u212A");
+        assertSameWords("x".repeat(lanes - 1) + "\u0130 " + "y".repeat(63) + "\u212Az");
+        // non-breaking and unicode line separators are not \s, so they do not split a word
+        assertSameWords("non\u00A0breaking line\u2028separator");
+    }
+
+    @Test
+    void matchesTheScalarPathOnTextsWithoutLetters() {
+        SplittableRandom random = new SplittableRandom(7);
+        assertSameWords("");
+        assertSameWords(SPACES);
+        assertSameWords(SPACES.repeat(40));
+        assertSameWords("123 456.789 --- \u00A0 @[`{");
+        for (int round = 0; round < 200; round++) {
+            assertSameWords(randomText(random, random.nextInt(400), false));
+        }
+    }
+}
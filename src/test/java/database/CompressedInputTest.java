@@ -0,0 +1,128 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressedInputTest {
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    // empty, within one block, exactly one block, and more blocks than the pool of a stream
+    private static final int[] SIZES = {0, 1, 1000, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 9 * BLOCK_SIZE + 17};
+
+    /**
+     * Compressible bytes with every byte value: runs of random bytes repeated a few times
+     */
+    private static byte[] data(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = i >= 64 && random.nextInt(4) != 0 ? data[i - 64] : (byte) random.nextInt(256);
+        }
+        return data;
+    }
+
+    private static byte[] compress(CompressedInput.Codec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.compress(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressedInput.Codec.class)
+    void roundTripsThroughThePipelinedStream(CompressedInput.Codec codec) throws IOException {
+        for (int size : SIZES) {
+            byte[] data = data(size);
+            try (InputStream in = CompressedInput.open(new ByteArrayInputStream(compress(codec, data)), codec)) {
+                assertArrayEquals(data, in.readAllBytes(), codec + ", " + size + " bytes");
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressedInput.Codec.class)
+    void readsByteByByteAndInSmallArrays(CompressedInput.Codec codec) throws IOException {
+        byte[] data = data(3 * BLOCK_SIZE + 5);
+        byte[] compressed = compress(codec, data);
+
+        try (InputStream in = CompressedInput.open(new ByteArrayInputStream(compressed), codec)) {
+            byte[] read = new byte[data.length];
+            for (int i = 0; i < read.length; i++) {
+                read[i] = (byte) in.read();
+            }
+            assertArrayEquals(data, read);
+            assertEquals(-1, in.read());
+        }
+
+        try (InputStream in = CompressedInput.open(new ByteArrayInputStream(compressed), codec)) {
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            for (int n; (n = in.read(buffer, 0, buffer.length)) != -1; ) {
+                read.write(buffer, 0, n);
+            }
+            assertArrayEquals(data, read.toByteArray());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressedInput.Codec.class)
+    void inlineDecompressionMatches(CompressedInput.Codec codec) throws IOException {
+        byte[] data = data(2 * BLOCK_SIZE + 3);
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compress(codec, data)))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressedInput.Codec.class)
+    void reportsATruncatedStream(CompressedInput.Codec codec) throws IOException {
+        byte[] compressed = compress(codec, data(4 * BLOCK_SIZE));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        try (InputStream in = CompressedInput.open(new ByteArrayInputStream(truncated), codec)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressedInput.Codec.class)
+    void closingEarlyDoesNotBlockTheNextStreams(CompressedInput.Codec codec) throws IOException {
+        byte[] data = data(8 * BLOCK_SIZE);
+        byte[] compressed = compress(codec, data);
+
+        // abandoned after one byte, with the decompressor waiting for free blocks
+        for (int i = 0; i < 10; i++) {
+            InputStream in = CompressedInput.open(new ByteArrayInputStream(compressed), codec);
+            in.read();
+            in.close();
+        }
+        try (InputStream in = CompressedInput.open(new ByteArrayInputStream(compressed), codec)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void tellsTheCodecFromTheExtension() {
+        assertEquals(CompressedInput.Codec.GZIP, CompressedInput.Codec.of("a/articles.json.gz"));
+        assertEquals(CompressedInput.Codec.ZSTD, CompressedInput.Codec.of("a/articles.ndjson.zst"));
+        assertNull(CompressedInput.Codec.of("a/articles.json"));
+        assertEquals("a/articles.ndjson", CompressedInput.uncompressedName("a/articles.ndjson.zst"));
+        assertEquals("a/articles.json", CompressedInput.uncompressedName("a/articles.json"));
+    }
+}
@@ -0,0 +1,138 @@
+package database;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSplitterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // strings that look like structure: brackets, braces, escaped quotes and backslashes next to quotes
+    private static final String[] TEXTS = {
+            "plain text",
+            "a {brace} and a [bracket], then }] closing ones",
+            "an \"escaped quote\" with { inside",
+            "a trailing backslash \\",
+            "backslashes \\\\\" and \\\" mixed with {\"uuid\": 1}",
+            "[{\"nested\": [\"looks\", \"like\", {\"an\": \"array\"}]}]",
+            "unicode éè and \\u0041",
+    };
+
+    @TempDir
+    Path directory;
+
+    private static List<Map<String, Object>> articles(int n) {
+        List<Map<String, Object>> articles = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> article = new LinkedHashMap<>();
+            article.put("uuid", "uuid-" + i);
+            article.put("title", TEXTS[(i + 3) % TEXTS.length]);
+            article.put("text", TEXTS[i % TEXTS.length].repeat(1 + i % 5));
+            article.put("categories", List.of("c" + i % 3, "[x]"));
+            article.put("thread", Map.of("site", "{s}", "ranks", List.of(i, i + 1)));
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    private static String content(FileSplitter.Chunk chunk) throws IOException {
+        ByteBuffer buffer = chunk.map();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits a JSON array at every chunk size from 1 byte to the whole file and parses every chunk as the elements
+     * of an array: together they must be the articles, in order
+     */
+    private void assertArraySplits(Path file, List<Map<String, Object>> articles) throws IOException {
+        long size = Files.size(file);
+        for (long chunkBytes = 1; chunkBytes <= size; chunkBytes += chunkBytes < 64 ? 1 : 7) {
+            List<FileSplitter.Chunk> chunks = FileSplitter.split(file.toString(), chunkBytes);
+            List<Map<String, Object>> parsed = new ArrayList<>();
+            long previousEnd = 0;
+
+            for (FileSplitter.Chunk chunk : chunks) {
+                assertTrue(chunk.start() >= previousEnd && chunk.length() > 0, "chunk size " + chunkBytes);
+                previousEnd = chunk.end();
+                parsed.addAll(MAPPER.readValue("[" + content(chunk) + "]", new TypeReference<>() {}));
+            }
+            assertEquals(articles, parsed, "chunk size " + chunkBytes);
+        }
+    }
+
+    @Test
+    void splitsACompactArrayBetweenTopLevelObjects() throws IOException {
+        List<Map<String, Object>> articles = articles(40);
+        Path file = directory.resolve("articles.json");
+        Files.writeString(file, MAPPER.writeValueAsString(articles));
+
+        assertArraySplits(file, articles);
+    }
+
+    @Test
+    void splitsAnIndentedArrayWithSurroundingWhitespace() throws IOException {
+        List<Map<String, Object>> articles = articles(25);
+        Path file = directory.resolve("articles.json");
+        Files.writeString(file, "\n  " + MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(articles) + " \n\n");
+
+        assertArraySplits(file, articles);
+    }
+
+    @Test
+    void splitsNdjsonAtLineStarts() throws IOException {
+        List<Map<String, Object>> articles = articles(30);
+        StringBuilder lines = new StringBuilder();
+        for (Map<String, Object> article : articles) {
+            lines.append(MAPPER.writeValueAsString(article)).append('\n');
+        }
+        Path file = directory.resolve("articles.ndjson");
+        Files.writeString(file, lines);
+
+        for (long chunkBytes = 1; chunkBytes <= lines.length(); chunkBytes += 3) {
+            List<FileSplitter.Chunk> chunks = FileSplitter.split(file.toString(), chunkBytes);
+            StringBuilder joined = new StringBuilder();
+            for (FileSplitter.Chunk chunk : chunks) {
+                String content = content(chunk);
+                assertTrue(chunk.ndjson() && content.endsWith("\n"), "chunk size " + chunkBytes);
+                joined.append(content);
+            }
+            assertEquals(lines.toString(), joined.toString(), "chunk size " + chunkBytes);
+        }
+    }
+
+    @Test
+    void aChunkSizeAboveTheFileGivesOneChunk() throws IOException {
+        Path file = directory.resolve("articles.json");
+        Files.writeString(file, MAPPER.writeValueAsString(articles(3)));
+
+        List<FileSplitter.Chunk> chunks = FileSplitter.split(file.toString(), 1 << 20);
+        assertEquals(1, chunks.size());
+        assertEquals(1, chunks.getFirst().start());
+        assertEquals(Files.size(file) - 1, chunks.getFirst().end());
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAnArray() throws IOException {
+        Path file = directory.resolve("article.json");
+        Files.writeString(file, MAPPER.writeValueAsString(articles(1).getFirst()));
+
+        assertThrows(IOException.class, () -> FileSplitter.split(file.toString(), 16));
+    }
+}
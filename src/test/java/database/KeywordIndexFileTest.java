@@ -0,0 +1,135 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeywordIndexFileTest {
+    @TempDir
+    Path directory;
+
+    // keyword -> global ordinals, and the uuid of every global ordinal
+    private final Map<String, TreeSet<Integer>> postings = new HashMap<>();
+    private final List<String> uuids = new ArrayList<>();
+
+    private SequentialDb partialDb() {
+        return new SequentialDb(Set.of(), Set.of(), Set.of());
+    }
+
+    private void index(SequentialDb db, String uuid, String... keywords) {
+        int ordinal = db.indexArticle(uuid);
+        for (String keyword : keywords) {
+            db.addPosting(keyword, ordinal);
+            postings.computeIfAbsent(keyword, k -> new TreeSet<>()).add(uuids.size());
+        }
+        uuids.add(uuid);
+    }
+
+    private static int[] toArray(TreeSet<Integer> ordinals) {
+        return ordinals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Partial dbs with empty ones between them, and keywords whose gaps need one, two and three varint bytes
+     */
+    private List<SequentialDb> partialDbs() {
+        SplittableRandom random = new SplittableRandom(5);
+        List<SequentialDb> dbs = List.of(partialDb(), partialDb(), partialDb(), partialDb(), partialDb());
+        int[] sizes = {300, 0, 20_000, 0, 1_000};
+
+        int global = 0;
+        for (int t = 0; t < dbs.size(); t++) {
+            for (int i = 0; i < sizes[t]; i++, global++) {
+                List<String> keywords = new ArrayList<>(List.of("every"));
+                if (global % 200 == 0) keywords.add("sparse");
+                if (global == 0 || global == 17_000 || global == 21_299) keywords.add("rare");
+                if (random.nextInt(10) == 0) keywords.add("w" + random.nextInt(20));
+                if (t == 4) keywords.add("last");
+                index(dbs.get(t), (global == 7 ? "uuid-é-" : "uuid-") + global, keywords.toArray(new String[0]));
+            }
+        }
+        return dbs;
+    }
+
+    @Test
+    void roundTripsThePostingsOfAllPartialDbs() throws IOException {
+        Path path = directory.resolve("keyword_index.bin");
+        KeywordIndexFile.write(partialDbs(), path);
+        KeywordIndexFile index = KeywordIndexFile.open(path);
+
+        assertEquals(uuids.size(), index.size());
+        assertEquals(postings.size(), index.keywordCount());
+        for (int ordinal = 0; ordinal < uuids.size(); ordinal++) {
+            assertEquals(uuids.get(ordinal), index.uuid(ordinal));
+        }
+        postings.forEach((keyword, ordinals) -> assertArrayEquals(toArray(ordinals), index.lookup(keyword), keyword));
+        assertArrayEquals(new int[0], index.lookup("missing"));
+        assertArrayEquals(new int[0], index.lookup("a"));
+        assertArrayEquals(new int[0], index.lookup("zzz"));
+    }
+
+    @Test
+    void andAndOrMatchTheSetOperations() throws IOException {
+        Path path = directory.resolve("keyword_index.bin");
+        KeywordIndexFile.write(partialDbs(), path);
+        KeywordIndexFile index = KeywordIndexFile.open(path);
+
+        List<String> candidates = new ArrayList<>(postings.keySet());
+        candidates.add("missing");
+        SplittableRandom random = new SplittableRandom(9);
+
+        for (int query = 0; query < 300; query++) {
+            List<String> keywords = new ArrayList<>();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                keywords.add(candidates.get(random.nextInt(candidates.size())));
+            }
+
+            TreeSet<Integer> all = null, any = new TreeSet<>();
+            for (String keyword : keywords) {
+                TreeSet<Integer> ordinals = postings.getOrDefault(keyword, new TreeSet<>());
+                any.addAll(ordinals);
+                if (all == null) all = new TreeSet<>(ordinals);
+                else all.retainAll(ordinals);
+            }
+            assertArrayEquals(toArray(all), index.and(keywords), "and " + keywords);
+            assertArrayEquals(toArray(any), index.or(keywords), "or " + keywords);
+        }
+        assertArrayEquals(new int[0], index.and(List.of()));
+        assertArrayEquals(new int[0], index.or(List.of()));
+    }
+
+    @Test
+    void roundTripsAnEmptyIndex() throws IOException {
+        Path path = directory.resolve("keyword_index.bin");
+        KeywordIndexFile.write(List.of(partialDb(), partialDb()), path);
+        KeywordIndexFile index = KeywordIndexFile.open(path);
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.keywordCount());
+        assertArrayEquals(new int[0], index.lookup("every"));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAnIndex() throws IOException {
+        Path path = directory.resolve("keyword_index.bin");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> KeywordIndexFile.open(path));
+
+        Files.write(path, new byte[3]);
+        assertThrows(IOException.class, () -> KeywordIndexFile.open(path));
+    }
+}
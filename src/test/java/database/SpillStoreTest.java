@@ -0,0 +1,115 @@
+package database;
+
+import articles.NewsArticle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillStoreTest {
+    private static final Set<String> LANGUAGES = Set.of("english", "german");
+    private static final Set<String> CATEGORIES = Set.of("Sports", "Politics", "Science");
+
+    @TempDir
+    Path directory;
+
+    private static NewsArticle article(String uuid, String published) {
+        NewsArticle article = new NewsArticle();
+        article.setUuid(uuid);
+        article.setPublished(published);
+        return article;
+    }
+
+    @Test
+    void mergesTheRunsOfAllStoresInOutputOrder() throws IOException {
+        SplittableRandom random = new SplittableRandom(7);
+        List<SpillStore> stores = new ArrayList<>();
+        List<NewsArticle> all = new ArrayList<>();
+        Map<String, Set<String>> categories = new TreeMap<>(), languages = new TreeMap<>();
+
+        // 3 threads spilling 3 times each; few distinct dates, so many articles tie on published
+        for (int thread = 0; thread < 3; thread++) {
+            SpillStore store = new SpillStore(directory, "t" + thread);
+            stores.add(store);
+            for (int spill = 0; spill < 3; spill++) {
+                SequentialDb db = new SequentialDb(LANGUAGES, CATEGORIES, Set.of());
+                for (int i = 0; i < 200; i++) {
+                    String uuid = String.format("%08x", random.nextInt());
+                    NewsArticle article = article(uuid, "2024-01-0" + (1 + random.nextInt(5)) + "T00:00:00");
+                    db.addArticle(article);
+                    all.add(article);
+
+                    // Science stays empty
+                    String category = random.nextBoolean() ? "Sports" : "Politics";
+                    db.addArticleToCategory(category, uuid);
+                    categories.computeIfAbsent(category, k -> new TreeSet<>()).add(uuid);
+                    if (random.nextInt(4) == 0) {
+                        // also listed by another thread, written once
+                        String other = all.get(random.nextInt(all.size())).getUuid();
+                        db.addArticleToCategory(category, other);
+                        categories.get(category).add(other);
+                    }
+                    String language = random.nextInt(3) == 0 ? "german" : "english";
+                    db.addArticleToLanguage(language, uuid);
+                    languages.computeIfAbsent(language, k -> new TreeSet<>()).add(uuid);
+                }
+                store.spill(db);
+                assertTrue(db.getArticleSet().isEmpty());
+            }
+        }
+
+        Path articlesFile = directory.resolve("all_articles.txt");
+        assertEquals(all.size(), SpillStore.mergeArticles(stores, articlesFile.toString()));
+        all.sort(null);
+        List<String> expected = new ArrayList<>();
+        all.forEach(a -> expected.add(a.getUuid() + " " + a.getPublished()));
+        assertEquals(expected, Files.readAllLines(articlesFile));
+
+        assertIndex(stores, SpillStore.RunType.CATEGORIES, categories);
+        assertIndex(stores, SpillStore.RunType.LANGUAGES, languages);
+        assertFalse(Files.exists(directory.resolve("CATEGORIES-Science.txt")));
+
+        stores.forEach(SpillStore::deleteRuns);
+        try (var files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".run")));
+        }
+    }
+
+    private void assertIndex(List<SpillStore> stores, SpillStore.RunType type, Map<String, Set<String>> expected)
+            throws IOException {
+        Map<String, Integer> sizes = SpillStore.mergeIndex(stores, type,
+                key -> directory.resolve(type + "-" + key + ".txt").toString());
+
+        assertEquals(expected.keySet(), sizes.keySet());
+        for (Map.Entry<String, Set<String>> e : expected.entrySet()) {
+            assertEquals(e.getValue().size(), sizes.get(e.getKey()));
+            assertEquals(new ArrayList<>(e.getValue()),
+                    Files.readAllLines(directory.resolve(type + "-" + e.getKey() + ".txt")));
+        }
+    }
+
+    @Test
+    void mergesNothingWithoutRuns() throws IOException {
+        SpillStore store = new SpillStore(directory, "empty");
+        store.spill(new SequentialDb(LANGUAGES, CATEGORIES, Set.of()));
+
+        Path articlesFile = directory.resolve("all_articles.txt");
+        assertEquals(0, SpillStore.mergeArticles(List.of(store), articlesFile.toString()));
+        assertEquals(List.of(), Files.readAllLines(articlesFile));
+        assertTrue(SpillStore.mergeIndex(List.of(store), SpillStore.RunType.CATEGORIES,
+                key -> directory.resolve(key).toString()).isEmpty());
+    }
+}
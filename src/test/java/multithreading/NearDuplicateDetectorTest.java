@@ -0,0 +1,107 @@
+package multithreading;
+
+import articles.NewsArticle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NearDuplicateDetectorTest {
+    private static final double THRESHOLD = 0.8;
+
+    private static String randomText(SplittableRandom random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("word").append((char) ('a' + random.nextInt(26))).append((char) ('a' + random.nextInt(26)))
+                    .append((char) ('a' + random.nextInt(26))).append(' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Replaces 2 words of a text: 6 of its 198 shingles change, a Jaccard similarity of 0.94 to the source, well
+     * above the threshold for the 64-hash estimate (standard error 0.03)
+     */
+    private static String edit(String text, SplittableRandom random) {
+        String[] words = text.split(" ");
+        for (int i = 0; i < 2; i++) {
+            words[random.nextInt(words.length)] = "edited";
+        }
+        return String.join(" ", words);
+    }
+
+    private static NewsArticle article(String uuid, String text) {
+        NewsArticle article = new NewsArticle();
+        article.setUuid(uuid);
+        article.setText(text);
+        return article;
+    }
+
+    /**
+     * 300 unrelated articles, and 30 edited copies of them under larger uuids, 10 of which are copies of the
+     * same source
+     */
+    private static List<NewsArticle> corpus(Set<String> expected) {
+        SplittableRandom random = new SplittableRandom(11);
+        List<NewsArticle> articles = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            articles.add(article(String.format("a%04d", i), randomText(random)));
+        }
+        for (int i = 0; i < 30; i++) {
+            NewsArticle source = articles.get(i < 10 ? 0 : i);
+            String uuid = String.format("b%04d", i);
+            articles.add(article(uuid, edit(source.getText(), random)));
+            expected.add(uuid);
+        }
+        // an article without words is never a near-duplicate
+        articles.add(article("c0000", "123 456"));
+        articles.add(article("c0001", "123 456"));
+        return articles;
+    }
+
+    private static Set<String> detect(List<NewsArticle> articles, int numThreads) {
+        NearDuplicateDetector detector = NearDuplicateDetector.getInstance();
+        detector.init(numThreads, THRESHOLD, 16, 4, 3);
+
+        // the articles are split round-robin, like files across threads
+        for (int t = 0; t < numThreads; t++) {
+            List<NewsArticle> part = new ArrayList<>();
+            for (int i = t; i < articles.size(); i += numThreads) {
+                part.add(articles.get(i));
+            }
+            detector.sign(t, part);
+        }
+        for (int t = 0; t < numThreads; t++) {
+            detector.findPairs(t);
+        }
+        int found = detector.resolve();
+
+        Set<String> nearDuplicates = new HashSet<>();
+        articles.stream().filter(detector::isNearDuplicate).forEach(a -> nearDuplicates.add(a.getUuid()));
+        assertEquals(found, nearDuplicates.size());
+        return nearDuplicates;
+    }
+
+    @Test
+    void removesTheEditedCopiesAndKeepsTheSmallestUuid() {
+        Set<String> expected = new HashSet<>();
+        List<NewsArticle> articles = corpus(expected);
+
+        assertEquals(expected, detect(articles, 1));
+    }
+
+    @Test
+    void findsTheSameDuplicatesWithAnyThreadCount() {
+        List<NewsArticle> articles = corpus(new HashSet<>());
+        Set<String> single = detect(articles, 1);
+
+        for (int numThreads : new int[] {2, 3, 5}) {
+            assertEquals(single, detect(articles, numThreads), numThreads + " threads");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package sketches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+
+    /**
+     * Adds a skewed stream of keys (key i drawn with probability about 1 / i) to the sketch and the exact counts
+     */
+    private static void addStream(CountMinSketch sketch, Map<String, Long> counts, long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            String key = "k" + (int) Math.exp(random.nextDouble() * Math.log(100_000));
+            long count = 1 + random.nextInt(3);
+            sketch.add(key, count);
+            counts.merge(key, count, Long::sum);
+        }
+    }
+
+    @Test
+    void estimatesNeverUndercountAndRarelyExceedTheBound() {
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+        Map<String, Long> counts = new HashMap<>();
+        addStream(sketch, counts, 1, 200_000);
+
+        long bound = sketch.errorBound();
+        int over = 0;
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            long estimate = sketch.estimate(e.getKey());
+            assertTrue(estimate >= e.getValue(), e.getKey());
+            if (estimate - e.getValue() > bound) over++;
+        }
+        assertTrue(over <= DELTA * counts.size(), over + " of " + counts.size() + " keys over the bound");
+        assertEquals(counts.values().stream().mapToLong(Long::longValue).sum(), sketch.getTotal());
+    }
+
+    @Test
+    void mergeEqualsTheSketchOfBothStreams() {
+        CountMinSketch left = new CountMinSketch(EPSILON, DELTA), right = new CountMinSketch(EPSILON, DELTA);
+        CountMinSketch both = new CountMinSketch(EPSILON, DELTA);
+        Map<String, Long> counts = new HashMap<>();
+        addStream(left, counts, 2, 50_000);
+        addStream(right, counts, 3, 50_000);
+        addStream(both, new HashMap<>(), 2, 50_000);
+        addStream(both, new HashMap<>(), 3, 50_000);
+
+        left.merge(right);
+        assertEquals(both.getTotal(), left.getTotal());
+        for (String key : counts.keySet()) {
+            assertEquals(both.estimate(key), left.estimate(key), key);
+        }
+    }
+
+    @Test
+    void mergeRejectsOtherDimensions() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CountMinSketch(100, 4).merge(new CountMinSketch(200, 4)));
+    }
+}
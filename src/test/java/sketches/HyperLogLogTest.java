@@ -0,0 +1,53 @@
+package sketches;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private static void assertWithin(long expected, HyperLogLog hll, double errors) {
+        double error = Math.abs(hll.estimate() - expected) / (double) expected;
+        assertTrue(error <= errors * hll.relativeError(),
+                "estimate " + hll.estimate() + " of " + expected + " (error " + error + ")");
+    }
+
+    @Test
+    void estimatesSmallAndLargeCardinalities() {
+        for (int n : new int[] {100, 1_000, 10_000, 200_000}) {
+            HyperLogLog hll = new HyperLogLog(14);
+            for (int i = 0; i < n; i++) {
+                hll.add("value-" + i);
+            }
+            assertWithin(n, hll, 3);
+        }
+    }
+
+    @Test
+    void repeatedValuesAreCountedOnce() {
+        HyperLogLog hll = new HyperLogLog(12);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20_000; i++) {
+                hll.add("value-" + i);
+            }
+        }
+        assertWithin(20_000, hll, 3);
+    }
+
+    @Test
+    void mergeEqualsTheUnion() {
+        HyperLogLog left = new HyperLogLog(14), right = new HyperLogLog(14), union = new HyperLogLog(14);
+        // overlapping halves: 0..60k and 40k..100k
+        for (int i = 0; i < 100_000; i++) {
+            String value = "value-" + i;
+            if (i < 60_000) left.add(value);
+            if (i >= 40_000) right.add(value);
+            union.add(value);
+        }
+
+        left.merge(right);
+        assertEquals(union.estimate(), left.estimate());
+        assertWithin(100_000, left, 3);
+    }
+}
@@ -0,0 +1,88 @@
+package sketches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinHashTest {
+    private static final int HASHES = 256;
+    private static final int SHINGLE = 3;
+
+    private static List<String> randomWords(SplittableRandom random, int n) {
+        List<String> words = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            words.add("w" + random.nextInt(5000));
+        }
+        return words;
+    }
+
+    private static Set<List<String>> shingles(List<String> words) {
+        Set<List<String>> shingles = new HashSet<>();
+        for (int i = 0; i + SHINGLE <= words.size(); i++) {
+            shingles.add(words.subList(i, i + SHINGLE));
+        }
+        return shingles;
+    }
+
+    private static double jaccard(List<String> a, List<String> b) {
+        Set<List<String>> union = shingles(a), common = shingles(a);
+        union.addAll(shingles(b));
+        common.retainAll(shingles(b));
+        return (double) common.size() / union.size();
+    }
+
+    @Test
+    void estimatesTheJaccardSimilarityOfTheShingles() {
+        MinHash minHash = new MinHash(HASHES, SHINGLE, 1);
+        SplittableRandom random = new SplittableRandom(3);
+        double maxError = 3 * 0.5 / Math.sqrt(HASHES);
+
+        for (double edits : new double[] {0, 0.02, 0.05, 0.1, 0.3, 1}) {
+            List<String> text = randomWords(random, 300);
+            List<String> copy = new ArrayList<>(text);
+            for (int i = 0; i < copy.size(); i++) {
+                if (random.nextDouble() < edits) copy.set(i, "edit" + random.nextInt(5000));
+            }
+
+            double estimate = MinHash.similarity(minHash.signature(text), minHash.signature(copy));
+            double exact = jaccard(text, copy);
+            assertTrue(Math.abs(estimate - exact) <= maxError, "edits " + edits + ": " + estimate + " vs " + exact);
+        }
+    }
+
+    @Test
+    void signaturesOnlyDependOnTheWordsAndTheSeed() {
+        List<String> words = randomWords(new SplittableRandom(5), 100);
+        int[] signature = new MinHash(HASHES, SHINGLE, 1).signature(words);
+
+        assertArrayEquals(signature, new MinHash(HASHES, SHINGLE, 1).signature(new ArrayList<>(words)));
+        assertEquals(1.0, MinHash.similarity(signature, new MinHash(HASHES, SHINGLE, 1).signature(words)));
+        assertTrue(MinHash.similarity(signature, new MinHash(HASHES, SHINGLE, 2).signature(words)) < 0.1);
+    }
+
+    @Test
+    void shortAndEmptyTexts() {
+        MinHash minHash = new MinHash(HASHES, SHINGLE, 1);
+
+        // shorter than a shingle: a single shingle, still order-sensitive
+        int[] ab = minHash.signature(List.of("a", "b"));
+        assertNotNull(ab);
+        assertEquals(1.0, MinHash.similarity(ab, minHash.signature(List.of("a", "b"))));
+        assertTrue(MinHash.similarity(ab, minHash.signature(List.of("b", "a"))) < 0.1);
+
+        assertNull(minHash.signature(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new MinHash(0, SHINGLE, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MinHash(HASHES, 0, 1));
+    }
+}
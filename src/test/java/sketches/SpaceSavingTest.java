@@ -0,0 +1,91 @@
+package sketches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+    private static final int CAPACITY = 100;
+
+    /**
+     * Adds a skewed stream of keys (key i drawn with probability about 1 / i) to the summary and the exact counts
+     */
+    private static void addStream(SpaceSaving summary, Map<String, Long> counts, long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            String key = "k" + (int) Math.exp(random.nextDouble() * Math.log(10_000));
+            summary.add(key, 1);
+            counts.merge(key, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Checks the guarantees of the summary against the exact counts: every count is an overestimate by at most its
+     * error, and every key above the error bound is monitored
+     */
+    private static void assertGuarantees(SpaceSaving summary, Map<String, Long> counts) {
+        Set<String> monitored = new HashSet<>();
+        for (SpaceSaving.Entry e : summary.entries()) {
+            long exact = counts.getOrDefault(e.key(), 0L);
+            assertTrue(e.count() >= exact, e.key());
+            assertTrue(e.count() - e.error() <= exact, e.key());
+            assertTrue(e.error() <= summary.errorBound(), e.key());
+            monitored.add(e.key());
+        }
+        counts.forEach((key, count) -> {
+            if (count > summary.errorBound()) {
+                assertTrue(monitored.contains(key), key + " (" + count + ") is not monitored");
+            }
+        });
+        assertTrue(summary.entries().size() <= CAPACITY);
+    }
+
+    @Test
+    void boundsTheCountsOfASkewedStream() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<String, Long> counts = new HashMap<>();
+        addStream(summary, counts, 1, 100_000);
+
+        assertEquals(100_000, summary.getTotal());
+        assertGuarantees(summary, counts);
+    }
+
+    @Test
+    void keepsTheGuaranteesAcrossMerges() {
+        SpaceSaving merged = new SpaceSaving(CAPACITY);
+        Map<String, Long> counts = new HashMap<>();
+        for (int part = 0; part < 4; part++) {
+            SpaceSaving summary = new SpaceSaving(CAPACITY);
+            addStream(summary, counts, 10 + part, 25_000);
+            merged.merge(summary);
+        }
+
+        assertEquals(100_000, merged.getTotal());
+        assertGuarantees(merged, counts);
+    }
+
+    @Test
+    void isExactBelowCapacity() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        for (int i = 0; i < 50; i++) {
+            summary.add("k" + i, i + 1);
+        }
+        for (SpaceSaving.Entry e : summary.entries()) {
+            assertEquals(Integer.parseInt(e.key().substring(1)) + 1, e.count());
+            assertEquals(0, e.error());
+        }
+    }
+
+    @Test
+    void rejectsANonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}